@@ -0,0 +1,189 @@
+package com.pb.lunchandlearn.config;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.pb.lunchandlearn.domain.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-document reading cost of the hot domain types, "reflective" is the mapping converter without custom
+ * conversions (before DomainConverters) and "handwritten" the one the application is configured with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DomainConvertersBenchmark {
+	private static final int MAP_SIZE = 50;
+	private static final int TRAININGS_SIZE = 20;
+
+	@Param({"reflective", "handwritten"})
+	private String mapping;
+
+	private MongoClient mongoClient;
+	private MappingMongoConverter converter;
+	private DBObject trainingDbo;
+	private DBObject topicDbo;
+	private DBObject employeeDbo;
+	private DBObject commentDbo;
+
+	@Setup
+	public void setup() {
+		CustomConversions conversions = "handwritten".equals(mapping) ?
+				new CustomConversions(DomainConverters.getConverters()) : new CustomConversions(Collections.emptyList());
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		mappingContext.initialize();
+		//no connection is opened, the resolver is only asked for DBRefs and the domain types have none
+		mongoClient = new MongoClient();
+		converter = new MappingMongoConverter(new DefaultDbRefResolver(
+				new SimpleMongoDbFactory(mongoClient, "lunchandlearn")), mappingContext);
+		converter.setCustomConversions(conversions);
+		converter.afterPropertiesSet();
+
+		trainingDbo = write(createTraining());
+		topicDbo = write(createTopic());
+		employeeDbo = write(createEmployee());
+		commentDbo = write(createComment());
+	}
+
+	@TearDown
+	public void tearDown() {
+		mongoClient.close();
+	}
+
+	@Benchmark
+	public Training readTraining() {
+		return converter.read(Training.class, trainingDbo);
+	}
+
+	@Benchmark
+	public Topic readTopic() {
+		return converter.read(Topic.class, topicDbo);
+	}
+
+	@Benchmark
+	public Employee readEmployee() {
+		return converter.read(Employee.class, employeeDbo);
+	}
+
+	@Benchmark
+	public Comment readComment() {
+		return converter.read(Comment.class, commentDbo);
+	}
+
+	//documents are always written by the mapping converter, only their reading is hand-written
+	private DBObject write(Object entity) {
+		DBObject dbo = new BasicDBObject();
+		converter.write(entity, dbo);
+		return dbo;
+	}
+
+	private static Training createTraining() {
+		Training training = new Training();
+		training.setId(1L);
+		training.setName("Java concurrency in practice");
+		training.setDesc("Executors, futures and the memory model");
+		training.setAgenda("Executors, futures, locks and atomics");
+		training.setLikedBy(createEmployeeMap("liked"));
+		training.setTrainers(createEmployeeMap("trainer"));
+		training.setTrainees(createEmployeeMap("trainee"));
+		training.setTopics(createTopicMap());
+		training.setPrerequisites(createTopicMap());
+		training.setScheduledOn(new Date());
+		training.setCreateDateTime(new Date());
+		training.setLastModifiedOn(new Date());
+		training.setCreatedByGuid("guid0");
+		training.setCreatedByName("name0");
+		training.setLastModifiedByGuid("guid1");
+		training.setLastModifiedByName("name1");
+		training.setStatus(TrainingStatus.SCHEDULED);
+		training.setCommentsCount(10);
+		training.setLikesCount(MAP_SIZE);
+		training.setFeedBackList(Arrays.asList(1L, 2L, 3L));
+		training.setDuration(1.5f);
+		training.setLocation("Board room");
+		training.setVersion(3L);
+		return training;
+	}
+
+	private static Topic createTopic() {
+		Topic topic = new Topic();
+		topic.setId(1L);
+		topic.setName("Concurrency");
+		topic.setDesc("Threads, executors and the memory model");
+		topic.setInterestedEmployees(createEmployeeMap("interested"));
+		topic.setEmployeesKnowAbout(createEmployeeMap("knows"));
+		topic.setTrainings(createTrainingDetails());
+		topic.setLikesCount(MAP_SIZE);
+		topic.setCreateDateTime(new Date());
+		topic.setLastModifiedOn(new Date());
+		topic.setCreatedByGuid("guid0");
+		topic.setCreatedByName("name0");
+		topic.setLastModifiedByGuid("guid1");
+		topic.setLastModifiedByName("name1");
+		topic.setVersion(3L);
+		return topic;
+	}
+
+	private static Employee createEmployee() {
+		Employee employee = new Employee("guid0", "name0", "name0@lunchandlearn.com", Arrays.asList("USER", "ADMIN"));
+		employee.setManagers(createEmployeeMap("manager"));
+		employee.setAncestors(Arrays.asList("guid1", "guid2", "guid3"));
+		employee.setTrainingsInterestedIn(createTrainingDetails());
+		employee.setTrainingsAttended(createTrainingDetails());
+		employee.setTrainingsImparted(createTrainingDetails());
+		employee.setTopicsKnown(createTopicMap());
+		employee.setTopicsInterestedIn(createTopicMap());
+		employee.setSyncHash("0123456789abcdef");
+		employee.setActive(true);
+		employee.setVersion(3L);
+		return employee;
+	}
+
+	private static Comment createComment() {
+		Comment comment = new Comment("Slides are in the attachments");
+		comment.setId(1L);
+		comment.setTrainingId(1L);
+		comment.setOwnerGuid("guid0");
+		comment.setOwnerName("name0");
+		comment.setDateTime(new Date());
+		comment.setRepliesCount(2);
+		return comment;
+	}
+
+	private static Map<String, String> createEmployeeMap(String prefix) {
+		Map<String, String> employees = new HashMap<>(MAP_SIZE);
+		for (int index = 0; index < MAP_SIZE; ++index) {
+			employees.put(prefix + "Guid" + index, prefix + "Name" + index);
+		}
+		return employees;
+	}
+
+	private static Map<Long, String> createTopicMap() {
+		Map<Long, String> topics = new HashMap<>();
+		for (long id = 0; id < 5; ++id) {
+			topics.put(id, "topic" + id);
+		}
+		return topics;
+	}
+
+	private static List<MiniTrainingDetail> createTrainingDetails() {
+		List<MiniTrainingDetail> trainings = new ArrayList<>(TRAININGS_SIZE);
+		for (long id = 0; id < TRAININGS_SIZE; ++id) {
+			trainings.add(new MiniTrainingDetail(id, "training" + id, TrainingStatus.COMPLETED, new Date()));
+		}
+		return trainings;
+	}
+}
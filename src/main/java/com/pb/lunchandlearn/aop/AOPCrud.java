@@ -3,9 +3,7 @@ package com.pb.lunchandlearn.aop;
 import com.pb.lunchandlearn.config.ModalCollectionSettings;
 import com.pb.lunchandlearn.config.SecuredUser;
 import com.pb.lunchandlearn.domain.*;
-import com.pb.lunchandlearn.exception.DuplicateResourceException;
 import com.pb.lunchandlearn.exception.ResourceNotFoundException;
-import com.pb.lunchandlearn.repository.FeedbackRepository;
 import com.pb.lunchandlearn.service.EmployeeService;
 import com.pb.lunchandlearn.service.IDProviderService;
 import com.pb.lunchandlearn.service.TopicService;
@@ -44,9 +42,6 @@ public class AOPCrud {
 	@Autowired
 	private ModalCollectionSettings modalCollectionSettings;
 
-	@Autowired
-	private FeedbackRepository feedbackRepository;
-
 	@Autowired
 	private MailService mailService;
 
@@ -73,6 +68,13 @@ public class AOPCrud {
 		return retVal;
 	}
 
+	@AfterReturning(value = "execution(* com.pb.lunchandlearn.service.*Service.updateFields(..))", returning = "retVal")
+	public Object updateFields(JoinPoint joinPoint, Object retVal) throws Throwable {
+		logger.debug("After from AOPCrud.updateFields()");
+		sendUpdateMail(retVal, joinPoint);
+		return retVal;
+	}
+
 	private void sendInsertMail(Object obj, Object[] args) {
 		if (obj != null) {
 			if (obj instanceof Topic) {
@@ -82,8 +84,6 @@ public class AOPCrud {
 			} else if (obj instanceof Comment) {
 				Long trainingId = (Long) getFirstArgOfType(args, Long.class);
 				mailService.sendMail(MailService.MailType.COMMENT_ADDED, (Comment) obj, trainingId);
-			} else if (obj instanceof FeedBack) {
-				mailService.sendMail(MailService.MailType.FEEDBACK_ADDED, (FeedBack) obj);
 			} else if (obj instanceof Employee) {
 				mailService.sendMail(MailService.MailType.EMPLOYEE_ADDED, (Employee) obj);
 			} else if (obj instanceof FileAttachmentInfo) {
@@ -115,17 +115,7 @@ public class AOPCrud {
 			} else if(joinPoint.getTarget() instanceof EmployeeService) {
 				mailService.sendMail(MailService.MailType.EMPLOYEE_UPDATED, (String) getFirstArgOfType(joinPoint.getArgs(), String.class));
 			} else if(joinPoint.getTarget() instanceof TrainingService) {
-				SimpleFieldEntry simpleFieldEntry = (SimpleFieldEntry) getFirstArgOfType(joinPoint.getArgs(), SimpleFieldEntry.class);
-				Long trainingId = (Long) getFirstArgOfType(joinPoint.getArgs(), Long.class);
-				if("status".equalsIgnoreCase(simpleFieldEntry.getName())) {
-					TrainingStatus status = TrainingStatus.valueOf(simpleFieldEntry.getValue().toString());
-					if(TrainingStatus.SCHEDULED == status) {
-						mailService.sendMail(MailService.MailType.TRAINING_SCHEDULED, trainingId);
-					}
-					else if(TrainingStatus.CANCELLED == status || status == TrainingStatus.POSTPONED) {
-						mailService.sendMail(MailService.MailType.TRAINING_CANCELLED, (Long) trainingId);
-					}
-				}
+				//status changes are mailed by TrainingStatusFanoutService, after topics and trainers are updated
 //				mailService.sendMail(MailService.MailType.TRAINING_UPDATED, trainingId);
 			}
 		}
@@ -146,22 +136,13 @@ public class AOPCrud {
 			training.setStatus(TrainingStatus.NOMINATED);
 			training.setCreateDateTime(new Date());
 			training.setLikesCount(0);
-			training.setComments(Collections.EMPTY_LIST);
+			training.setCommentsCount(0);
 			setTrainingCreateUser(training, getLoggedInUser());
 		} else if (obj instanceof Comment) {
 			Comment cmt = (Comment) obj;
 			cmt.setId(
 					idProviderService.getNextId(modalCollectionSettings.getComment()));
 			setCommentUser(cmt, getLoggedInUser());
-		} else if (obj instanceof FeedBack) {
-			FeedBack feedBack = (FeedBack) obj;
-			if (feedbackRepository.countByParentIdAndRespondentGuid(feedBack.getParentId(),
-					feedBack.getRespondentGuid()) > 0) {
-				throw new DuplicateResourceException("Feedback already exist");
-			}
-			feedBack.setId(
-					idProviderService.getNextId(modalCollectionSettings.getFeedback()));
-			setFeedBackUser(feedBack, getLoggedInUser());
 		} else if (obj instanceof Employee) {
 			Employee emp = (Employee) obj;
 			emp.setGuid(emp.getGuid().toUpperCase());
@@ -247,11 +228,6 @@ public class AOPCrud {
 	private void attachmentMethod() {
 	}
 
-	private void setFeedBackUser(FeedBack feedBack, SecuredUser user) {
-		feedBack.setRespondentGuid(user.getGuid());
-		feedBack.setRespondentName(user.getUsername());
-	}
-
 	private void setTopicCreateUser(Topic topic, SecuredUser user) {
 		topic.setCreatedByGuid(user.getGuid());
 		topic.setCreatedByName(user.getUsername());
@@ -0,0 +1,242 @@
+package com.pb.lunchandlearn.config;
+
+import com.mongodb.DBObject;
+import com.pb.lunchandlearn.domain.*;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+import java.util.*;
+
+/**
+ * Hand-written reading of the documents read on every request, registered in place of the reflective entity
+ * reading. Only read converters are registered: a write converter would make CustomConversions treat the type as a
+ * simple type, leaving it without a persistent entity, so its indexes and query mapping would be lost. Documents are
+ * written by the mapping converter, and field names and stored types are the ones it uses (ids as "_id", enums by
+ * name, map keys as strings).
+ */
+public final class DomainConverters {
+	private DomainConverters() {
+	}
+
+	public static List<Converter<?, ?>> getConverters() {
+		return Arrays.<Converter<?, ?>>asList(TrainingReadConverter.INSTANCE, TopicReadConverter.INSTANCE,
+				EmployeeReadConverter.INSTANCE, MiniTrainingDetailReadConverter.INSTANCE, CommentReadConverter.INSTANCE);
+	}
+
+	@ReadingConverter
+	enum TrainingReadConverter implements Converter<DBObject, Training> {
+		INSTANCE;
+
+		@Override
+		public Training convert(DBObject source) {
+			Training training = new Training();
+			training.setId(getLong(source, "_id"));
+			training.setName((String) source.get("name"));
+			training.setLikedBy(readMap(source, "likedBy"));
+			training.setDesc((String) source.get("desc"));
+			training.setScore(getFloat(source, "score"));
+			training.setTrainers(readMap(source, "trainers"));
+			training.setScheduledOn((Date) source.get("scheduledOn"));
+			training.setCreateDateTime((Date) source.get("createDateTime"));
+			training.setTrainees(readMap(source, "trainees"));
+			training.setTopics(readLongKeyMap(source, "topics"));
+			training.setPrerequisites(readLongKeyMap(source, "prerequisites"));
+			training.setCreatedByGuid((String) source.get("createdByGuid"));
+			training.setCreatedByName((String) source.get("createdByName"));
+			training.setLastModifiedByGuid((String) source.get("lastModifiedByGuid"));
+			training.setLastModifiedByName((String) source.get("lastModifiedByName"));
+			training.setLastModifiedOn((Date) source.get("lastModifiedOn"));
+			training.setCommentsCount(getInteger(source, "commentsCount"));
+			training.setAttachmentInfos(readAttachmentInfos(source.get("attachmentInfos")));
+			training.setAgenda((String) source.get("agenda"));
+			training.setStatus(getStatus(source, "status"));
+			training.setFeedBackList(readLongList(source.get("feedBackList")));
+			training.setDuration(getFloat(source, "duration"));
+			training.setLocation((String) source.get("location"));
+			training.setLikesCount(getInteger(source, "likesCount"));
+			training.setVersion(getLong(source, "version"));
+			training.setArchived(Boolean.TRUE.equals(source.get("archived")));
+			return training;
+		}
+	}
+
+	@ReadingConverter
+	enum TopicReadConverter implements Converter<DBObject, Topic> {
+		INSTANCE;
+
+		@Override
+		public Topic convert(DBObject source) {
+			Topic topic = new Topic();
+			topic.setId(getLong(source, "_id"));
+			topic.setName((String) source.get("name"));
+			topic.setDesc((String) source.get("desc"));
+			topic.setInterestedEmployees(readMap(source, "interestedEmployees"));
+			topic.setEmployeesKnowAbout(readMap(source, "employeesKnowAbout"));
+			topic.setTrainings(readMiniTrainingDetails(source.get("trainings")));
+			topic.setLikesCount(getInteger(source, "likesCount"));
+			topic.setCreatedByGuid((String) source.get("createdByGuid"));
+			topic.setCreatedByName((String) source.get("createdByName"));
+			topic.setLastModifiedByGuid((String) source.get("lastModifiedByGuid"));
+			topic.setLastModifiedByName((String) source.get("lastModifiedByName"));
+			topic.setCreateDateTime((Date) source.get("createDateTime"));
+			topic.setLastModifiedOn((Date) source.get("lastModifiedOn"));
+			topic.setVersion(getLong(source, "version"));
+			return topic;
+		}
+	}
+
+	@ReadingConverter
+	enum EmployeeReadConverter implements Converter<DBObject, Employee> {
+		INSTANCE;
+
+		@Override
+		public Employee convert(DBObject source) {
+			Employee employee = new Employee();
+			employee.setGuid((String) source.get("_id"));
+			employee.setName((String) source.get("name"));
+			employee.setEmailId((String) source.get("emailId"));
+			employee.setRoles(readStringList(source.get("roles")));
+			employee.setManagers(readMap(source, "managers"));
+			employee.setAncestors(readStringList(source.get("ancestors")));
+			employee.setTrainingsInterestedIn(readMiniTrainingDetails(source.get("trainingsInterestedIn")));
+			employee.setTrainingsAttended(readMiniTrainingDetails(source.get("trainingsAttended")));
+			employee.setTrainingsImparted(readMiniTrainingDetails(source.get("trainingsImparted")));
+			employee.setTopicsKnown(readLongKeyMap(source, "topicsKnown"));
+			employee.setTopicsInterestedIn(readLongKeyMap(source, "topicsInterestedIn"));
+			employee.setScore(getFloat(source, "score"));
+			employee.setVersion(getLong(source, "version"));
+			employee.setSyncHash((String) source.get("syncHash"));
+			employee.setActive((Boolean) source.get("active"));
+			return employee;
+		}
+	}
+
+	@ReadingConverter
+	enum MiniTrainingDetailReadConverter implements Converter<DBObject, MiniTrainingDetail> {
+		INSTANCE;
+
+		@Override
+		public MiniTrainingDetail convert(DBObject source) {
+			return new MiniTrainingDetail(getLong(source, "_id"), (String) source.get("name"),
+					getStatus(source, "status"), (Date) source.get("scheduledOn"));
+		}
+	}
+
+	@ReadingConverter
+	enum CommentReadConverter implements Converter<DBObject, Comment> {
+		INSTANCE;
+
+		@Override
+		public Comment convert(DBObject source) {
+			Comment comment = new Comment();
+			comment.setId(getLong(source, "_id"));
+			comment.setTrainingId(getLong(source, "trainingId"));
+			comment.setParentId(getLong(source, "parentId"));
+			comment.setOwnerGuid((String) source.get("ownerGuid"));
+			comment.setOwnerName((String) source.get("ownerName"));
+			Integer repliesCount = getInteger(source, "repliesCount");
+			comment.setRepliesCount(repliesCount == null ? 0 : repliesCount);
+			comment.setText((String) source.get("text"));
+			comment.setDateTime((Date) source.get("dateTime"));
+			return comment;
+		}
+	}
+
+	private static Long getLong(DBObject dbo, String key) {
+		Object value = dbo.get(key);
+		return value instanceof Number ? ((Number) value).longValue() : null;
+	}
+
+	private static Integer getInteger(DBObject dbo, String key) {
+		Object value = dbo.get(key);
+		return value instanceof Number ? ((Number) value).intValue() : null;
+	}
+
+	private static Float getFloat(DBObject dbo, String key) {
+		Object value = dbo.get(key);
+		return value instanceof Number ? ((Number) value).floatValue() : null;
+	}
+
+	private static TrainingStatus getStatus(DBObject dbo, String key) {
+		Object value = dbo.get(key);
+		return value == null ? null : TrainingStatus.valueOf(value.toString());
+	}
+
+	private static Map<String, String> readMap(DBObject dbo, String key) {
+		Object value = dbo.get(key);
+		if (!(value instanceof DBObject)) {
+			return null;
+		}
+		DBObject source = (DBObject) value;
+		Map<String, String> map = new LinkedHashMap<>();
+		for (String entryKey : source.keySet()) {
+			map.put(entryKey, (String) source.get(entryKey));
+		}
+		return map;
+	}
+
+	private static Map<Long, String> readLongKeyMap(DBObject dbo, String key) {
+		Object value = dbo.get(key);
+		if (!(value instanceof DBObject)) {
+			return null;
+		}
+		DBObject source = (DBObject) value;
+		Map<Long, String> map = new LinkedHashMap<>();
+		for (String entryKey : source.keySet()) {
+			map.put(Long.valueOf(entryKey), (String) source.get(entryKey));
+		}
+		return map;
+	}
+
+	private static List<Long> readLongList(Object value) {
+		if (!(value instanceof List)) {
+			return null;
+		}
+		List<Long> list = new ArrayList<>(((List) value).size());
+		for (Object element : (List) value) {
+			list.add(element == null ? null : ((Number) element).longValue());
+		}
+		return list;
+	}
+
+	private static List<String> readStringList(Object value) {
+		if (!(value instanceof List)) {
+			return null;
+		}
+		List<String> list = new ArrayList<>(((List) value).size());
+		for (Object element : (List) value) {
+			list.add((String) element);
+		}
+		return list;
+	}
+
+	private static List<MiniTrainingDetail> readMiniTrainingDetails(Object value) {
+		if (!(value instanceof List)) {
+			return null;
+		}
+		List<MiniTrainingDetail> trainings = new ArrayList<>(((List) value).size());
+		for (Object element : (List) value) {
+			trainings.add(element == null ? null : MiniTrainingDetailReadConverter.INSTANCE.convert((DBObject) element));
+		}
+		return trainings;
+	}
+
+	private static List<FileAttachmentInfo> readAttachmentInfos(Object value) {
+		if (!(value instanceof List)) {
+			return null;
+		}
+		List<FileAttachmentInfo> attachmentInfos = new ArrayList<>(((List) value).size());
+		for (Object element : (List) value) {
+			DBObject source = (DBObject) element;
+			FileAttachmentInfo attachmentInfo = new FileAttachmentInfo();
+			attachmentInfo.setFileName((String) source.get("fileName"));
+			attachmentInfo.setSize(getLong(source, "size"));
+			attachmentInfo.setContentType((String) source.get("contentType"));
+			attachmentInfo.setOwnerName((String) source.get("ownerName"));
+			attachmentInfo.setOwnerGuid((String) source.get("ownerGuid"));
+			attachmentInfo.setUploadedOn((Date) source.get("uploadedOn"));
+			attachmentInfos.add(attachmentInfo);
+		}
+		return attachmentInfos;
+	}
+}
@@ -3,6 +3,7 @@ package com.pb.lunchandlearn.config;
 import com.pb.lunchandlearn.domain.Employee;
 import com.pb.lunchandlearn.repository.EmployeeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.authentication.dao.AbstractUserDetailsAuthenticationProvider;
@@ -45,8 +46,13 @@ public class MongoDBAuthenticationProvider extends AbstractUserDetailsAuthentica
 			if(emp == null) {
 				throw new UsernameNotFoundException(MessageFormat.format("User Name: {0}", username));
 			}
+			if(Boolean.FALSE.equals(emp.getActive())) {
+				throw new DisabledException(MessageFormat.format("User Name: {0} is deactivated", username));
+			}
 			userDetails = new SecuredUser(emp.getGuid(), emp.getName(), emp.getGuid(), emp.getEmailId(),
 					getAuthorities(emp.getRoles()));
+		} catch (DisabledException exp) {
+			throw exp;
 		} catch (Exception repositoryProblem) {
 			throw new InternalAuthenticationServiceException(repositoryProblem.getMessage(), repositoryProblem);
 		}
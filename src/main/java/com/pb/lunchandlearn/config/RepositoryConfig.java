@@ -2,8 +2,10 @@ package com.pb.lunchandlearn.config;
 
 import com.mongodb.Mongo;
 import com.mongodb.MongoClient;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoConfiguration;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 /**
@@ -24,4 +26,9 @@ public class RepositoryConfig extends AbstractMongoConfiguration {
 	protected String getMappingBasePackage() {
 		return "com.pb.lunchandlearn.repository";
 	}
+	@Override
+	@Bean
+	public CustomConversions customConversions() {
+		return new CustomConversions(DomainConverters.getConverters());
+	}
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.pb.lunchandlearn.domain;
+
+/**
+ * One read of a batch request, the part of the training (topics, comments, ...) to return.
+ */
+public final class BatchRequestEntry {
+	private Long id;
+	private String part;
+
+	public BatchRequestEntry() {
+	}
+
+	public BatchRequestEntry(Long id, String part) {
+		this.id = id;
+		this.part = part;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchRequestEntry{" +
+				"id=" + id +
+				", part='" + part + '\'' +
+				'}';
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof BatchRequestEntry)) return false;
+
+		BatchRequestEntry that = (BatchRequestEntry) o;
+
+		if (id != null ? !id.equals(that.id) : that.id != null) return false;
+		return part != null ? part.equals(that.part) : that.part == null;
+
+	}
+
+	@Override
+	public int hashCode() {
+		int result = id != null ? id.hashCode() : 0;
+		result = 31 * result + (part != null ? part.hashCode() : 0);
+		return result;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getPart() {
+		return part;
+	}
+
+	public void setPart(String part) {
+		this.part = part;
+	}
+}
@@ -1,24 +1,27 @@
 package com.pb.lunchandlearn.domain;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.validation.constraints.NotNull;
 import java.util.Date;
-import java.util.List;
 
 /**
  * Created by DE007RA on 6/25/2016.
  */
-@Document
+@Document(collection = "comments")
+@CompoundIndex(name = "thread", def = "{'trainingId': 1, 'parentId': 1, 'dateTime': 1}")
 public final class Comment {
 	@Id
 	@NotNull
 	private Long id;
+	private Long trainingId;
+	private Long parentId;//null for a top level comment
 	private String ownerGuid;
 	private String ownerName;
-	private List<Comment> replies;
+	private int repliesCount;
 	private String text;
 	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
 	private Date dateTime;
@@ -36,9 +39,11 @@ public final class Comment {
 	public String toString() {
 		return "Comment{" +
 				"id=" + id +
+				", trainingId=" + trainingId +
+				", parentId=" + parentId +
 				", ownerGuid='" + ownerGuid + '\'' +
 				", ownerName='" + ownerName + '\'' +
-				", replies=" + replies +
+				", repliesCount=" + repliesCount +
 				", text='" + text + '\'' +
 				", dateTime=" + dateTime +
 				'}';
@@ -51,10 +56,12 @@ public final class Comment {
 
 		Comment comment = (Comment) o;
 
+		if (repliesCount != comment.repliesCount) return false;
 		if (id != null ? !id.equals(comment.id) : comment.id != null) return false;
+		if (trainingId != null ? !trainingId.equals(comment.trainingId) : comment.trainingId != null) return false;
+		if (parentId != null ? !parentId.equals(comment.parentId) : comment.parentId != null) return false;
 		if (ownerGuid != null ? !ownerGuid.equals(comment.ownerGuid) : comment.ownerGuid != null) return false;
 		if (ownerName != null ? !ownerName.equals(comment.ownerName) : comment.ownerName != null) return false;
-		if (replies != null ? !replies.equals(comment.replies) : comment.replies != null) return false;
 		if (text != null ? !text.equals(comment.text) : comment.text != null) return false;
 		return dateTime != null ? dateTime.equals(comment.dateTime) : comment.dateTime == null;
 
@@ -63,9 +70,11 @@ public final class Comment {
 	@Override
 	public int hashCode() {
 		int result = id != null ? id.hashCode() : 0;
+		result = 31 * result + (trainingId != null ? trainingId.hashCode() : 0);
+		result = 31 * result + (parentId != null ? parentId.hashCode() : 0);
 		result = 31 * result + (ownerGuid != null ? ownerGuid.hashCode() : 0);
 		result = 31 * result + (ownerName != null ? ownerName.hashCode() : 0);
-		result = 31 * result + (replies != null ? replies.hashCode() : 0);
+		result = 31 * result + repliesCount;
 		result = 31 * result + (text != null ? text.hashCode() : 0);
 		result = 31 * result + (dateTime != null ? dateTime.hashCode() : 0);
 		return result;
@@ -111,11 +120,27 @@ public final class Comment {
 		this.ownerName = ownerName;
 	}
 
-	public List<Comment> getReplies() {
-		return replies;
+	public Long getTrainingId() {
+		return trainingId;
 	}
 
-	public void setReplies(List<Comment> replies) {
-		this.replies = replies;
+	public void setTrainingId(Long trainingId) {
+		this.trainingId = trainingId;
+	}
+
+	public Long getParentId() {
+		return parentId;
+	}
+
+	public void setParentId(Long parentId) {
+		this.parentId = parentId;
+	}
+
+	public int getRepliesCount() {
+		return repliesCount;
+	}
+
+	public void setRepliesCount(int repliesCount) {
+		this.repliesCount = repliesCount;
 	}
 }
@@ -1,5 +1,6 @@
 package com.pb.lunchandlearn.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.hibernate.validator.constraints.Email;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.Indexed;
@@ -27,6 +28,12 @@ public final class Employee extends User {
 	@TextIndexed
 	private Map<String, String> managers;//guid, name
 
+	//guids of the managers up the hierarchy, maintained by the server. Not served, so a change of the hierarchy
+	//leaves the version and the ETag of the employee alone
+	@Indexed
+	@JsonIgnore
+	private List<String> ancestors;
+
 	@TextIndexed
 	private List<MiniTrainingDetail> trainingsInterestedIn;
 
@@ -44,18 +51,25 @@ public final class Employee extends User {
 
 	@TextScore
 	private Float score;
+	private Long version;
+	private String syncHash;//hash of the directory fields last synced from HR, maintained by the server
+	private Boolean active;//false once the employee left the HR directory, null counts as active
 
 	@Override
 	public String toString() {
 		return "Employee{" + super.toString() +
 				"guid='" + guid + '\'' +
 				", managers=" + managers +
+				", ancestors=" + ancestors +
 				", trainingsInterestedIn=" + trainingsInterestedIn +
 				", trainingsAttended=" + trainingsAttended +
 				", trainingsImparted=" + trainingsImparted +
 				", topicsKnown=" + topicsKnown +
 				", topicsInterestedIn=" + topicsInterestedIn +
 				", score=" + score +
+				", version=" + version +
+				", syncHash='" + syncHash + '\'' +
+				", active=" + active +
 				'}';
 	}
 
@@ -106,6 +120,7 @@ public final class Employee extends User {
 			return false;
 		if (topicsInterestedIn != null ? !topicsInterestedIn.equals(employee.topicsInterestedIn) : employee.topicsInterestedIn != null)
 			return false;
+		if (version != null ? !version.equals(employee.version) : employee.version != null) return false;
 		return score != null ? score.equals(employee.score) : employee.score == null;
 
 	}
@@ -121,6 +136,7 @@ public final class Employee extends User {
 		result = 31 * result + (topicsKnown != null ? topicsKnown.hashCode() : 0);
 		result = 31 * result + (topicsInterestedIn != null ? topicsInterestedIn.hashCode() : 0);
 		result = 31 * result + (score != null ? score.hashCode() : 0);
+		result = 31 * result + (version != null ? version.hashCode() : 0);
 		return result;
 	}
 
@@ -167,4 +183,36 @@ public final class Employee extends User {
 	public void setManagers(Map<String, String> managers) {
 		this.managers = managers;
 	}
+
+	public List<String> getAncestors() {
+		return ancestors;
+	}
+
+	public void setAncestors(List<String> ancestors) {
+		this.ancestors = ancestors;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public String getSyncHash() {
+		return syncHash;
+	}
+
+	public void setSyncHash(String syncHash) {
+		this.syncHash = syncHash;
+	}
+
+	public Boolean getActive() {
+		return active;
+	}
+
+	public void setActive(Boolean active) {
+		this.active = active;
+	}
 }
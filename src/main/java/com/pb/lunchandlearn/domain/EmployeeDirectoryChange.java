@@ -0,0 +1,123 @@
+package com.pb.lunchandlearn.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+
+/**
+ * One entry of the employee directory change log, the directory version is the highest entry version.
+ */
+@Document(collection = "employeeDirectoryChanges")
+public final class EmployeeDirectoryChange {
+	@Id
+	private Long version;
+	@Indexed
+	private String guid;
+	private String name;
+	private String emailId;
+	private boolean removed;
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private Date changedOn;
+
+	public EmployeeDirectoryChange() {
+	}
+
+	public EmployeeDirectoryChange(Long version, String guid, String name, String emailId, boolean removed) {
+		this.version = version;
+		this.guid = guid;
+		this.name = name;
+		this.emailId = emailId;
+		this.removed = removed;
+		this.changedOn = new Date();
+	}
+
+	@Override
+	public String toString() {
+		return "EmployeeDirectoryChange{" +
+				"version=" + version +
+				", guid='" + guid + '\'' +
+				", name='" + name + '\'' +
+				", emailId='" + emailId + '\'' +
+				", removed=" + removed +
+				", changedOn=" + changedOn +
+				'}';
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof EmployeeDirectoryChange)) return false;
+
+		EmployeeDirectoryChange that = (EmployeeDirectoryChange) o;
+
+		if (removed != that.removed) return false;
+		if (version != null ? !version.equals(that.version) : that.version != null) return false;
+		if (guid != null ? !guid.equals(that.guid) : that.guid != null) return false;
+		if (name != null ? !name.equals(that.name) : that.name != null) return false;
+		if (emailId != null ? !emailId.equals(that.emailId) : that.emailId != null) return false;
+		return changedOn != null ? changedOn.equals(that.changedOn) : that.changedOn == null;
+
+	}
+
+	@Override
+	public int hashCode() {
+		int result = version != null ? version.hashCode() : 0;
+		result = 31 * result + (guid != null ? guid.hashCode() : 0);
+		result = 31 * result + (name != null ? name.hashCode() : 0);
+		result = 31 * result + (emailId != null ? emailId.hashCode() : 0);
+		result = 31 * result + (removed ? 1 : 0);
+		result = 31 * result + (changedOn != null ? changedOn.hashCode() : 0);
+		return result;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public String getGuid() {
+		return guid;
+	}
+
+	public void setGuid(String guid) {
+		this.guid = guid;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getEmailId() {
+		return emailId;
+	}
+
+	public void setEmailId(String emailId) {
+		this.emailId = emailId;
+	}
+
+	public boolean isRemoved() {
+		return removed;
+	}
+
+	public void setRemoved(boolean removed) {
+		this.removed = removed;
+	}
+
+	public Date getChangedOn() {
+		return changedOn;
+	}
+
+	public void setChangedOn(Date changedOn) {
+		this.changedOn = changedOn;
+	}
+}
@@ -0,0 +1,173 @@
+package com.pb.lunchandlearn.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Progress and outcome of a bulk employee import, updated after each batch. Only the first MAX_ERRORS rejected rows
+ * are described.
+ */
+@Document(collection = "employeeImportJobs")
+public final class EmployeeImportJob {
+	public static final int MAX_ERRORS = 100;
+
+	@Id
+	private Long id;
+	private String fileName;
+	private ExportFormat format;
+	private Status status;
+	private long rowsRead;
+	private long inserted;
+	private long updated;
+	private long unchanged;
+	private long rejected;
+	private List<String> errors = new ArrayList<>();
+	private String startedByGuid;
+	private String startedByName;
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private Date startedOn;
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private Date finishedOn;
+
+	public enum Status {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	public void reject(long row, String error) {
+		++rejected;
+		if (errors.size() < MAX_ERRORS) {
+			errors.add("Row " + row + ": " + error);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "EmployeeImportJob{" +
+				"id=" + id +
+				", fileName='" + fileName + '\'' +
+				", status=" + status +
+				", rowsRead=" + rowsRead +
+				", inserted=" + inserted +
+				", updated=" + updated +
+				", unchanged=" + unchanged +
+				", rejected=" + rejected +
+				'}';
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public ExportFormat getFormat() {
+		return format;
+	}
+
+	public void setFormat(ExportFormat format) {
+		this.format = format;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public long getRowsRead() {
+		return rowsRead;
+	}
+
+	public void setRowsRead(long rowsRead) {
+		this.rowsRead = rowsRead;
+	}
+
+	public long getInserted() {
+		return inserted;
+	}
+
+	public void setInserted(long inserted) {
+		this.inserted = inserted;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	public void setUpdated(long updated) {
+		this.updated = updated;
+	}
+
+	public long getUnchanged() {
+		return unchanged;
+	}
+
+	public void setUnchanged(long unchanged) {
+		this.unchanged = unchanged;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<String> errors) {
+		this.errors = errors;
+	}
+
+	public String getStartedByGuid() {
+		return startedByGuid;
+	}
+
+	public void setStartedByGuid(String startedByGuid) {
+		this.startedByGuid = startedByGuid;
+	}
+
+	public String getStartedByName() {
+		return startedByName;
+	}
+
+	public void setStartedByName(String startedByName) {
+		this.startedByName = startedByName;
+	}
+
+	public Date getStartedOn() {
+		return startedOn;
+	}
+
+	public void setStartedOn(Date startedOn) {
+		this.startedOn = startedOn;
+	}
+
+	public Date getFinishedOn() {
+		return finishedOn;
+	}
+
+	public void setFinishedOn(Date finishedOn) {
+		this.finishedOn = finishedOn;
+	}
+}
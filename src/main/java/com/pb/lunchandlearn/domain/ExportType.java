@@ -0,0 +1,10 @@
+package com.pb.lunchandlearn.domain;
+
+/**
+ * What can be exported, attendance is a row per trainee of a completed training.
+ */
+public enum ExportType {
+	TRAININGS,
+	FEEDBACKS,
+	ATTENDANCE
+}
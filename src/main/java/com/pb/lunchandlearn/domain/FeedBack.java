@@ -1,6 +1,7 @@
 package com.pb.lunchandlearn.domain;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -11,6 +12,7 @@ import java.util.Map;
  * Created by de007ra on 7/8/2016.
  */
 @Document(collection = "feedbacks")
+@CompoundIndex(name = "respondent", def = "{'parentId': 1, 'respondentGuid': 1}", unique = true)
 public final class FeedBack {
 	@Id
 	private Long id;
@@ -0,0 +1,94 @@
+package com.pb.lunchandlearn.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a completed training adds to the leaderboard standings of its trainers, overall and for each of its topics.
+ * The leaderboard is the sum of these, so it is restored from them on restart.
+ */
+@Document(collection = "leaderboardContributions")
+public final class LeaderboardContribution {
+	@Id
+	private Long trainingId;
+	private Map<String, String> trainers;//empId, name
+	private List<Long> topicIds;
+	private int attendees;
+	private long ratingSum;
+	private long ratingCount;
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private Date updatedOn;
+
+	@Override
+	public String toString() {
+		return "LeaderboardContribution{" +
+				"trainingId=" + trainingId +
+				", trainers=" + trainers +
+				", topicIds=" + topicIds +
+				", attendees=" + attendees +
+				", ratingSum=" + ratingSum +
+				", ratingCount=" + ratingCount +
+				'}';
+	}
+
+	public Long getTrainingId() {
+		return trainingId;
+	}
+
+	public void setTrainingId(Long trainingId) {
+		this.trainingId = trainingId;
+	}
+
+	public Map<String, String> getTrainers() {
+		return trainers;
+	}
+
+	public void setTrainers(Map<String, String> trainers) {
+		this.trainers = trainers;
+	}
+
+	public List<Long> getTopicIds() {
+		return topicIds;
+	}
+
+	public void setTopicIds(List<Long> topicIds) {
+		this.topicIds = topicIds;
+	}
+
+	public int getAttendees() {
+		return attendees;
+	}
+
+	public void setAttendees(int attendees) {
+		this.attendees = attendees;
+	}
+
+	public long getRatingSum() {
+		return ratingSum;
+	}
+
+	public void setRatingSum(long ratingSum) {
+		this.ratingSum = ratingSum;
+	}
+
+	public long getRatingCount() {
+		return ratingCount;
+	}
+
+	public void setRatingCount(long ratingCount) {
+		this.ratingCount = ratingCount;
+	}
+
+	public Date getUpdatedOn() {
+		return updatedOn;
+	}
+
+	public void setUpdatedOn(Date updatedOn) {
+		this.updatedOn = updatedOn;
+	}
+}
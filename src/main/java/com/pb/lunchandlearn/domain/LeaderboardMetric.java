@@ -0,0 +1,10 @@
+package com.pb.lunchandlearn.domain;
+
+/**
+ * What trainers are ranked by, highest first.
+ */
+public enum LeaderboardMetric {
+	TRAININGS_IMPARTED,
+	ATTENDANCE,
+	AVERAGE_RATING
+}
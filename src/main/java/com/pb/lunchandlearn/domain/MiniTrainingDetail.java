@@ -2,6 +2,7 @@ package com.pb.lunchandlearn.domain;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.format.annotation.DateTimeFormat;
 
 import java.util.Date;
 
@@ -14,6 +15,8 @@ public class MiniTrainingDetail {
 	private Long id;
 	private String name;
 	private TrainingStatus status;
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private Date scheduledOn;
 
 	public String getName() {
 
@@ -28,6 +31,11 @@ public class MiniTrainingDetail {
 		this.id = id;
 	}
 
+	public MiniTrainingDetail(Long id, String name, TrainingStatus status, Date scheduledOn) {
+		this(id, name, status);
+		this.scheduledOn = scheduledOn;
+	}
+
 	public void setName(String name) {
 		this.name = name;
 	}
@@ -36,10 +44,18 @@ public class MiniTrainingDetail {
 		return status;
 	}
 
-	public void setScheduledOn(TrainingStatus status) {
+	public void setStatus(TrainingStatus status) {
 		this.status = status;
 	}
 
+	public Date getScheduledOn() {
+		return scheduledOn;
+	}
+
+	public void setScheduledOn(Date scheduledOn) {
+		this.scheduledOn = scheduledOn;
+	}
+
 	public Long getId() {
 		return id;
 	}
@@ -54,6 +70,7 @@ public class MiniTrainingDetail {
 				"id=" + id +
 				", name='" + name + '\'' +
 				", status=" + status +
+				", scheduledOn=" + scheduledOn +
 				'}';
 	}
 
@@ -66,7 +83,8 @@ public class MiniTrainingDetail {
 
 		if (id != null ? !id.equals(that.id) : that.id != null) return false;
 		if (name != null ? !name.equals(that.name) : that.name != null) return false;
-		return status != null ? status.equals(that.status) : that.status == null;
+		if (status != null ? !status.equals(that.status) : that.status != null) return false;
+		return scheduledOn != null ? scheduledOn.equals(that.scheduledOn) : that.scheduledOn == null;
 
 	}
 
@@ -75,6 +93,7 @@ public class MiniTrainingDetail {
 		int result = id != null ? id.hashCode() : 0;
 		result = 31 * result + (name != null ? name.hashCode() : 0);
 		result = 31 * result + (status != null ? status.hashCode() : 0);
+		result = 31 * result + (scheduledOn != null ? scheduledOn.hashCode() : 0);
 		return result;
 	}
 }
@@ -0,0 +1,148 @@
+package com.pb.lunchandlearn.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One cell of the participation cube, the completed trainings of a month (like 2016-07) about a topic at a location.
+ * The id is month:topicId:location, blank for a training without topics or location. A training with several topics
+ * is in a cell per topic, rollups count it once.
+ */
+@Document(collection = "participationCube")
+public final class ParticipationCell {
+	@Id
+	private String id;
+	@Indexed
+	private String month;
+	private Long topicId;
+	private String location;
+	@Indexed
+	private List<Long> trainingIds;
+	private Map<String, TrainingFacts> trainings;//trainingId, facts
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private Date updatedOn;
+
+	public static String getId(String month, Long topicId, String location) {
+		return month + ":" + (topicId == null ? "" : topicId) + ":" + (location == null ? "" : location);
+	}
+
+	@Override
+	public String toString() {
+		return "ParticipationCell{" +
+				"id='" + id + '\'' +
+				", trainings=" + trainings +
+				", updatedOn=" + updatedOn +
+				'}';
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getMonth() {
+		return month;
+	}
+
+	public void setMonth(String month) {
+		this.month = month;
+	}
+
+	public Long getTopicId() {
+		return topicId;
+	}
+
+	public void setTopicId(Long topicId) {
+		this.topicId = topicId;
+	}
+
+	public String getLocation() {
+		return location;
+	}
+
+	public void setLocation(String location) {
+		this.location = location;
+	}
+
+	public List<Long> getTrainingIds() {
+		return trainingIds;
+	}
+
+	public void setTrainingIds(List<Long> trainingIds) {
+		this.trainingIds = trainingIds;
+	}
+
+	public Map<String, TrainingFacts> getTrainings() {
+		return trainings;
+	}
+
+	public void setTrainings(Map<String, TrainingFacts> trainings) {
+		this.trainings = trainings;
+	}
+
+	public Date getUpdatedOn() {
+		return updatedOn;
+	}
+
+	public void setUpdatedOn(Date updatedOn) {
+		this.updatedOn = updatedOn;
+	}
+
+	public static final class TrainingFacts {
+		private int attendees;
+		private List<String> trainers;
+		private long ratingSum;
+		private long ratingCount;
+
+		@Override
+		public String toString() {
+			return "TrainingFacts{" +
+					"attendees=" + attendees +
+					", trainers=" + trainers +
+					", ratingSum=" + ratingSum +
+					", ratingCount=" + ratingCount +
+					'}';
+		}
+
+		public int getAttendees() {
+			return attendees;
+		}
+
+		public void setAttendees(int attendees) {
+			this.attendees = attendees;
+		}
+
+		public List<String> getTrainers() {
+			return trainers;
+		}
+
+		public void setTrainers(List<String> trainers) {
+			this.trainers = trainers;
+		}
+
+		public long getRatingSum() {
+			return ratingSum;
+		}
+
+		public void setRatingSum(long ratingSum) {
+			this.ratingSum = ratingSum;
+		}
+
+		public long getRatingCount() {
+			return ratingCount;
+		}
+
+		public void setRatingCount(long ratingCount) {
+			this.ratingCount = ratingCount;
+		}
+	}
+}
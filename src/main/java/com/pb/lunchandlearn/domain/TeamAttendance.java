@@ -0,0 +1,129 @@
+package com.pb.lunchandlearn.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trainings attended by the org of a manager in a quarter, with the number of org members attending each. The id
+ * is managerGuid:quarter, a quarter is like 2016Q3.
+ */
+@Document(collection = "teamAttendance")
+public final class TeamAttendance {
+	@Id
+	private String id;
+	@Indexed
+	private String managerGuid;
+	private String quarter;
+	private Map<String, TrainingAttendance> trainings;//trainingId, attendance
+	@Indexed
+	private List<Long> trainingIds;//keys of trainings, indexed to find the attendances of a training
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private Date updatedOn;
+
+	public static String getId(String managerGuid, String quarter) {
+		return managerGuid + ":" + quarter;
+	}
+
+	@Override
+	public String toString() {
+		return "TeamAttendance{" +
+				"id='" + id + '\'' +
+				", trainings=" + trainings +
+				", updatedOn=" + updatedOn +
+				'}';
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getManagerGuid() {
+		return managerGuid;
+	}
+
+	public void setManagerGuid(String managerGuid) {
+		this.managerGuid = managerGuid;
+	}
+
+	public String getQuarter() {
+		return quarter;
+	}
+
+	public void setQuarter(String quarter) {
+		this.quarter = quarter;
+	}
+
+	public Map<String, TrainingAttendance> getTrainings() {
+		return trainings;
+	}
+
+	public void setTrainings(Map<String, TrainingAttendance> trainings) {
+		this.trainings = trainings;
+	}
+
+	public List<Long> getTrainingIds() {
+		return trainingIds;
+	}
+
+	public void setTrainingIds(List<Long> trainingIds) {
+		this.trainingIds = trainingIds;
+	}
+
+	public Date getUpdatedOn() {
+		return updatedOn;
+	}
+
+	public void setUpdatedOn(Date updatedOn) {
+		this.updatedOn = updatedOn;
+	}
+
+	public static final class TrainingAttendance {
+		private String name;
+		@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+		private Date scheduledOn;
+		private int attendees;
+
+		@Override
+		public String toString() {
+			return "TrainingAttendance{" +
+					"name='" + name + '\'' +
+					", scheduledOn=" + scheduledOn +
+					", attendees=" + attendees +
+					'}';
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Date getScheduledOn() {
+			return scheduledOn;
+		}
+
+		public void setScheduledOn(Date scheduledOn) {
+			this.scheduledOn = scheduledOn;
+		}
+
+		public int getAttendees() {
+			return attendees;
+		}
+
+		public void setAttendees(int attendees) {
+			this.attendees = attendees;
+		}
+	}
+}
@@ -43,6 +43,7 @@ public final class Topic {
 	private Date createDateTime;
 	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
 	private Date lastModifiedOn;
+	private Long version;
 
 	@Override
 	public String toString() {
@@ -60,6 +61,7 @@ public final class Topic {
 				", lastModifiedByName='" + lastModifiedByName + '\'' +
 				", createDateTime=" + createDateTime +
 				", lastModifiedOn=" + lastModifiedOn +
+				", version=" + version +
 				'}';
 	}
 
@@ -89,6 +91,7 @@ public final class Topic {
 			return false;
 		if (createDateTime != null ? !createDateTime.equals(topic.createDateTime) : topic.createDateTime != null)
 			return false;
+		if (version != null ? !version.equals(topic.version) : topic.version != null) return false;
 		return lastModifiedOn != null ? lastModifiedOn.equals(topic.lastModifiedOn) : topic.lastModifiedOn == null;
 
 	}
@@ -108,6 +111,7 @@ public final class Topic {
 		result = 31 * result + (lastModifiedByName != null ? lastModifiedByName.hashCode() : 0);
 		result = 31 * result + (createDateTime != null ? createDateTime.hashCode() : 0);
 		result = 31 * result + (lastModifiedOn != null ? lastModifiedOn.hashCode() : 0);
+		result = 31 * result + (version != null ? version.hashCode() : 0);
 		return result;
 	}
 
@@ -220,4 +224,12 @@ public final class Topic {
 	public void setDesc(String desc) {
 		this.desc = desc;
 	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
 }
@@ -0,0 +1,132 @@
+package com.pb.lunchandlearn.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Training counts by status and attendees of a topic. The entry of each training is what it added to the counts,
+ * a change of the training swaps its entry and applies the difference in one write guarded by the version.
+ */
+@Document(collection = "topicStats")
+public final class TopicStats {
+	@Id
+	private Long topicId;
+	private Map<String, Long> statusCounts;//TrainingStatus, trainings
+	private long attendees;
+	private Map<String, TrainingEntry> trainings;//trainingId, entry
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private Date updatedOn;
+	private Long version;
+
+	@Override
+	public String toString() {
+		return "TopicStats{" +
+				"topicId=" + topicId +
+				", statusCounts=" + statusCounts +
+				", attendees=" + attendees +
+				", trainings=" + trainings +
+				'}';
+	}
+
+	public Long getTopicId() {
+		return topicId;
+	}
+
+	public void setTopicId(Long topicId) {
+		this.topicId = topicId;
+	}
+
+	public Map<String, Long> getStatusCounts() {
+		return statusCounts;
+	}
+
+	public void setStatusCounts(Map<String, Long> statusCounts) {
+		this.statusCounts = statusCounts;
+	}
+
+	public long getAttendees() {
+		return attendees;
+	}
+
+	public void setAttendees(long attendees) {
+		this.attendees = attendees;
+	}
+
+	public Map<String, TrainingEntry> getTrainings() {
+		return trainings;
+	}
+
+	public void setTrainings(Map<String, TrainingEntry> trainings) {
+		this.trainings = trainings;
+	}
+
+	public Date getUpdatedOn() {
+		return updatedOn;
+	}
+
+	public void setUpdatedOn(Date updatedOn) {
+		this.updatedOn = updatedOn;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public static final class TrainingEntry {
+		private String name;
+		private TrainingStatus status;
+		@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+		private Date scheduledOn;
+		private int attendees;//trainees of a completed training
+
+		@Override
+		public String toString() {
+			return "TrainingEntry{" +
+					"name='" + name + '\'' +
+					", status=" + status +
+					", scheduledOn=" + scheduledOn +
+					", attendees=" + attendees +
+					'}';
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public TrainingStatus getStatus() {
+			return status;
+		}
+
+		public void setStatus(TrainingStatus status) {
+			this.status = status;
+		}
+
+		public Date getScheduledOn() {
+			return scheduledOn;
+		}
+
+		public void setScheduledOn(Date scheduledOn) {
+			this.scheduledOn = scheduledOn;
+		}
+
+		public int getAttendees() {
+			return attendees;
+		}
+
+		public void setAttendees(int attendees) {
+			this.attendees = attendees;
+		}
+	}
+}
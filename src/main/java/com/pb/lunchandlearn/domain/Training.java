@@ -63,7 +63,7 @@ public final class Training {
 	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
 	private Date lastModifiedOn;
 
-	private List<Comment> comments;
+	private Integer commentsCount;
 
 	private List<FileAttachmentInfo> attachmentInfos;
 
@@ -80,6 +80,8 @@ public final class Training {
 	private String location;
 	@Indexed
 	private Integer likesCount;
+	private Long version;
+	private boolean archived;//only the listing fields are left, the full document is in the archive
 
 	@Override
 	public String toString() {
@@ -100,7 +102,7 @@ public final class Training {
 				", lastModifiedByGuid='" + lastModifiedByGuid + '\'' +
 				", lastModifiedByName='" + lastModifiedByName + '\'' +
 				", lastModifiedOn=" + lastModifiedOn +
-				", comments=" + comments +
+				", commentsCount=" + commentsCount +
 				", attachmentInfos=" + attachmentInfos +
 				", agenda='" + agenda + '\'' +
 				", status=" + status +
@@ -108,6 +110,8 @@ public final class Training {
 				", duration=" + duration +
 				", location='" + location + '\'' +
 				", likesCount=" + likesCount +
+				", version=" + version +
+				", archived=" + archived +
 				'}';
 	}
 
@@ -142,7 +146,8 @@ public final class Training {
 			return false;
 		if (lastModifiedOn != null ? !lastModifiedOn.equals(training.lastModifiedOn) : training.lastModifiedOn != null)
 			return false;
-		if (comments != null ? !comments.equals(training.comments) : training.comments != null) return false;
+		if (commentsCount != null ? !commentsCount.equals(training.commentsCount) : training.commentsCount != null)
+			return false;
 		if (attachmentInfos != null ? !attachmentInfos.equals(training.attachmentInfos) : training.attachmentInfos != null)
 			return false;
 		if (agenda != null ? !agenda.equals(training.agenda) : training.agenda != null) return false;
@@ -151,6 +156,8 @@ public final class Training {
 			return false;
 		if (duration != null ? !duration.equals(training.duration) : training.duration != null) return false;
 		if (location != null ? !location.equals(training.location) : training.location != null) return false;
+		if (archived != training.archived) return false;
+		if (version != null ? !version.equals(training.version) : training.version != null) return false;
 		return likesCount != null ? likesCount.equals(training.likesCount) : training.likesCount == null;
 
 	}
@@ -173,7 +180,7 @@ public final class Training {
 		result = 31 * result + (lastModifiedByGuid != null ? lastModifiedByGuid.hashCode() : 0);
 		result = 31 * result + (lastModifiedByName != null ? lastModifiedByName.hashCode() : 0);
 		result = 31 * result + (lastModifiedOn != null ? lastModifiedOn.hashCode() : 0);
-		result = 31 * result + (comments != null ? comments.hashCode() : 0);
+		result = 31 * result + (commentsCount != null ? commentsCount.hashCode() : 0);
 		result = 31 * result + (attachmentInfos != null ? attachmentInfos.hashCode() : 0);
 		result = 31 * result + (agenda != null ? agenda.hashCode() : 0);
 		result = 31 * result + (status != null ? status.hashCode() : 0);
@@ -181,6 +188,8 @@ public final class Training {
 		result = 31 * result + (duration != null ? duration.hashCode() : 0);
 		result = 31 * result + (location != null ? location.hashCode() : 0);
 		result = 31 * result + (likesCount != null ? likesCount.hashCode() : 0);
+		result = 31 * result + (version != null ? version.hashCode() : 0);
+		result = 31 * result + (archived ? 1 : 0);
 		return result;
 	}
 
@@ -241,12 +250,12 @@ public final class Training {
 		this.attachmentInfos = attachmentInfos;
 	}
 
-	public List<Comment> getComments() {
-		return comments;
+	public Integer getCommentsCount() {
+		return commentsCount;
 	}
 
-	public void setComments(List<Comment> comments) {
-		this.comments = comments;
+	public void setCommentsCount(Integer commentsCount) {
+		this.commentsCount = commentsCount;
 	}
 
 	public Training() {
@@ -385,4 +394,20 @@ public final class Training {
 	public void setTrainees(Map<String, String> trainees) {
 		this.trainees = trainees;
 	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public boolean isArchived() {
+		return archived;
+	}
+
+	public void setArchived(boolean archived) {
+		this.archived = archived;
+	}
 }
\ No newline at end of file
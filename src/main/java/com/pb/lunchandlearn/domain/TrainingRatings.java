@@ -0,0 +1,137 @@
+package com.pb.lunchandlearn.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Running totals of the feedback ratings of a training, kept per rating name so averages and spread are served
+ * without reading the feedbacks.
+ */
+@Document(collection = "trainingRatings")
+public final class TrainingRatings {
+	public static final int MIN_POINT = 1;
+	public static final int MAX_POINT = 5;
+	//rating names become field names of the summary
+	public static final Pattern RATING_NAME = Pattern.compile("[A-Za-z][A-Za-z0-9]*");
+
+	@Id
+	private Long trainingId;
+	private long count;
+	private Map<String, RatingStats> ratings;
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private Date updatedOn;
+
+	public static boolean isValidRating(String name, Integer point) {
+		return name != null && RATING_NAME.matcher(name).matches() && point != null && point >= MIN_POINT &&
+				point <= MAX_POINT;
+	}
+
+	@Override
+	public String toString() {
+		return "TrainingRatings{" +
+				"trainingId=" + trainingId +
+				", count=" + count +
+				", ratings=" + ratings +
+				", updatedOn=" + updatedOn +
+				'}';
+	}
+
+	public Long getTrainingId() {
+		return trainingId;
+	}
+
+	public void setTrainingId(Long trainingId) {
+		this.trainingId = trainingId;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public Map<String, RatingStats> getRatings() {
+		return ratings;
+	}
+
+	public void setRatings(Map<String, RatingStats> ratings) {
+		this.ratings = ratings;
+	}
+
+	public Date getUpdatedOn() {
+		return updatedOn;
+	}
+
+	public void setUpdatedOn(Date updatedOn) {
+		this.updatedOn = updatedOn;
+	}
+
+	public static final class RatingStats {
+		private long count;
+		private long sum;
+		private long sumOfSquares;
+		//point to number of feedbacks
+		private Map<String, Long> histogram;
+
+		public double getAverage() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		public double getStandardDeviation() {
+			if (count == 0) {
+				return 0;
+			}
+			double average = getAverage();
+			return Math.sqrt(Math.max(0, (double) sumOfSquares / count - average * average));
+		}
+
+		@Override
+		public String toString() {
+			return "RatingStats{" +
+					"count=" + count +
+					", sum=" + sum +
+					", sumOfSquares=" + sumOfSquares +
+					", histogram=" + histogram +
+					'}';
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public void setCount(long count) {
+			this.count = count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public void setSum(long sum) {
+			this.sum = sum;
+		}
+
+		public long getSumOfSquares() {
+			return sumOfSquares;
+		}
+
+		public void setSumOfSquares(long sumOfSquares) {
+			this.sumOfSquares = sumOfSquares;
+		}
+
+		public Map<String, Long> getHistogram() {
+			return histogram;
+		}
+
+		public void setHistogram(Map<String, Long> histogram) {
+			this.histogram = histogram;
+		}
+	}
+}
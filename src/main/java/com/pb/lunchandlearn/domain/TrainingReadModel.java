@@ -0,0 +1,36 @@
+package com.pb.lunchandlearn.domain;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Named partial reads of a training, a training read through one of them has only these fields (and the id) set.
+ */
+public enum TrainingReadModel {
+	//who is mailed about a training and how it is named in the mail
+	RECIPIENTS("name", "trainers", "trainees", "createdByGuid", "createdByName"),
+	//schedule and denormalized copies, for calendar requests and the updates of topics and trainers
+	HEADER("name", "status", "scheduledOn", "duration", "location", "topics", "trainers", "createdByGuid",
+			"createdByName"),
+	//what a completed training adds to the standings of its trainers
+	LEADERBOARD("status", "trainers", "trainees", "topics"),
+	//who registered for a training, what it is about and whether it took place, for cohort queries
+	COHORT("status", "trainees", "topics"),
+	//who attended a training and when, for the team attendance of their managers
+	ATTENDANCE("name", "status", "scheduledOn", "trainees"),
+	//what a training adds to the stats of its topics
+	TOPIC_STATS("name", "status", "scheduledOn", "trainees", "topics"),
+	//where and when a completed training was held and who took part, for the participation cube
+	PARTICIPATION("status", "scheduledOn", "location", "trainers", "trainees", "topics");
+
+	private final List<String> fields;
+
+	TrainingReadModel(String... fields) {
+		this.fields = Collections.unmodifiableList(Arrays.asList(fields));
+	}
+
+	public List<String> getFields() {
+		return fields;
+	}
+}
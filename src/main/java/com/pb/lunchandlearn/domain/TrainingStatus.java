@@ -2,6 +2,8 @@ package com.pb.lunchandlearn.domain;
 
 import org.springframework.util.StringUtils;
 
+import java.util.*;
+
 /**
  * Created by de007ra on 5/2/2016.
  */
@@ -11,10 +13,37 @@ public enum TrainingStatus {
 	CANCELLED,
 	COMPLETED,
 	POSTPONED;
+	private static final Map<TrainingStatus, List<TrainingStatus>> ALLOWED_PREVIOUS = new EnumMap<>(TrainingStatus.class);
+
+	static {
+		for (TrainingStatus status : values()) {
+			List<TrainingStatus> previous = new ArrayList<>();
+			for (TrainingStatus from : values()) {
+				//a completed training stays completed
+				if (from == status || from == COMPLETED) {
+					continue;
+				}
+				if (status == SCHEDULED && from != NOMINATED && from != CANCELLED && from != POSTPONED) {
+					continue;
+				}
+				previous.add(from);
+			}
+			ALLOWED_PREVIOUS.put(status, Collections.unmodifiableList(previous));
+		}
+	}
+
 	private String name;
 	private TrainingStatus() {
 		this.name = StringUtils.capitalize(name().toLowerCase());
 	}
+
+	/**
+	 * @return statuses a training can be moved from to this status
+	 */
+	public List<TrainingStatus> getAllowedPrevious() {
+		return ALLOWED_PREVIOUS.get(this);
+	}
+
 	@Override
 	public String toString() {
 		return name;
@@ -0,0 +1,19 @@
+package com.pb.lunchandlearn.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when request parameters fail validation.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public final class BadRequestException extends RuntimeException {
+	private static final long serialVersionUID = 5l;
+
+	public BadRequestException(String message) {
+		super(message);
+	}
+	public BadRequestException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
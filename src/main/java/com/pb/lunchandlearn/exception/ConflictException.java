@@ -0,0 +1,19 @@
+package com.pb.lunchandlearn.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a write is based on a version of the resource that is no longer current.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public final class ConflictException extends RuntimeException {
+	private static final long serialVersionUID = 6l;
+
+	public ConflictException(String message) {
+		super(message);
+	}
+	public ConflictException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,14 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.Comment;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Training comments and their replies, one document per comment.
+ */
+@Repository
+public interface CommentRepository extends MongoRepository<Comment, Long>, CustomCommentRepository {
+
+	Comment findByIdAndTrainingIdAndParentIdIsNull(Long id, Long trainingId);
+}
@@ -0,0 +1,54 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.Comment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Queries of the comments collection follow its (trainingId, parentId, dateTime) index.
+ */
+public class CommentRepositoryImpl implements CustomCommentRepository {
+	private static final Sort SORT_BY_THREAD = new Sort(Sort.Direction.ASC, "dateTime", "id");
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Override
+	public List<Comment> findThread(Long trainingId, Long parentId, Date afterDateTime, Long afterId, int limit) {
+		Criteria criteria = where("trainingId").is(trainingId).and("parentId").is(parentId);
+		if (afterDateTime != null) {
+			criteria.orOperator(where("dateTime").gt(afterDateTime),
+					where("dateTime").is(afterDateTime).and("id").gt(afterId));
+		}
+		Query query = new Query(criteria).with(SORT_BY_THREAD).limit(limit);
+		return mongoTemplate.find(query, Comment.class);
+	}
+
+	@Override
+	public boolean updateRepliesCount(Long commentId, int delta) {
+		return mongoTemplate.updateFirst(new Query(where("id").is(commentId)),
+				new Update().inc("repliesCount", delta), Comment.class).getN() == 1;
+	}
+
+	@Override
+	public int removeComment(Long trainingId, Long commentId) {
+		Query query = new Query(where("trainingId").is(trainingId).orOperator(where("id").is(commentId),
+				where("parentId").is(commentId)));
+		return mongoTemplate.remove(query, Comment.class).getN();
+	}
+
+	@Override
+	public int removeCommentReply(Long trainingId, Long commentId, Long replyCommentId) {
+		Query query = new Query(where("id").is(replyCommentId).and("trainingId").is(trainingId).and("parentId").is(commentId));
+		return mongoTemplate.remove(query, Comment.class).getN();
+	}
+}
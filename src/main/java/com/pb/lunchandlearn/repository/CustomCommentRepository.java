@@ -0,0 +1,19 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.Comment;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Thread reads page on (dateTime, id), the position of the last comment a client has seen.
+ */
+public interface CustomCommentRepository {
+	List<Comment> findThread(Long trainingId, Long parentId, Date afterDateTime, Long afterId, int limit);
+
+	boolean updateRepliesCount(Long commentId, int delta);
+
+	int removeComment(Long trainingId, Long commentId);
+
+	int removeCommentReply(Long trainingId, Long commentId, Long replyCommentId);
+}
@@ -1,12 +1,19 @@
 package com.pb.lunchandlearn.repository;
 
+import com.mongodb.DBObject;
 import com.pb.lunchandlearn.config.LikeType;
 import com.pb.lunchandlearn.domain.*;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by DE007RA on 6/6/2016.
@@ -33,10 +40,43 @@ public interface CustomEmployeeRepository {
 	void addTrainingsImparted(String empGuid, Long trainingId, String trainingName);
 
 	boolean updateByFieldName(String empGuid, SimpleFieldEntry simpleFieldEntry);
+	boolean updateByFieldNames(String empGuid, List<SimpleFieldEntry> simpleFieldEntries);
+
+	Set<String> updateChangedFields(Employee employee);
 
 	void updateTopics(Long topicId, String topicName, String topicStr);
 
 	void updateTrainings(Long trainingId, String trainingName, String trainingStr);
 
 	List<Employee> findAllByRoles(List<String> roles);
+
+	DBObject findFieldsByGuid(String empGuid, Set<String> fields);
+
+	Page<DBObject> findAllFields(TextCriteria textCriteria, Set<String> fields, Pageable pageable);
+
+	Employee findProfileByGuid(String empGuid, List<String> trainingsStrs, int limit);
+
+	List<Employee> findAllTopicInterests();
+
+	Employee loadTopicInterests(String empGuid);
+
+	List<Employee> findHierarchyByGuids(Collection<String> guids);
+
+	List<Employee> findAllHierarchy();
+
+	List<Employee> findOrgMembers(String managerGuid);
+
+	void updateAncestors(Map<String, List<String>> ancestors);
+
+	Map<String, Boolean> upsertDirectoryEntries(List<Employee> employees);
+
+	List<Employee> findSyncStates();
+
+	List<Employee> findDirectoryEntries(Collection<String> guids);
+
+	void updateSyncedFields(Map<String, List<SimpleFieldEntry>> fieldsByGuid);
+
+	void deactivate(Collection<String> guids);
+
+	List<MiniTrainingDetail> getTrainings(String empGuid, String trainingStr, TrainingStatus status, int offset, int limit);
 }
\ No newline at end of file
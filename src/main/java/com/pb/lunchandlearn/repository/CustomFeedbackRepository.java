@@ -0,0 +1,27 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.FeedBack;
+import org.springframework.data.mongodb.core.DocumentCallbackHandler;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A respondent has at most one feedback per training, kept by the unique (parentId, respondentGuid) index.
+ * Submitted feedbacks wait in an inbox, one entry per respondent and training, until they are inserted in batches.
+ */
+public interface CustomFeedbackRepository {
+	boolean appendToInbox(FeedBack feedBack);
+
+	List<FeedBack> findInbox(int limit);
+
+	void removeFromInbox(List<FeedBack> feedBacks);
+
+	List<FeedBack> insertNew(List<FeedBack> feedBacks);
+
+	List<Long> findParentIds();
+
+	long[] findExportIdBounds();
+
+	void exportRange(long fromId, long toId, Set<String> fields, DocumentCallbackHandler handler);
+}
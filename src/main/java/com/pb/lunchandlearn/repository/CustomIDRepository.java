@@ -0,0 +1,5 @@
+package com.pb.lunchandlearn.repository;
+
+public interface CustomIDRepository {
+	Long incrementLastId(String collectionName, long count);
+}
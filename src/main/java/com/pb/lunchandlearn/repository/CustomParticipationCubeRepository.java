@@ -0,0 +1,16 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.ParticipationCell;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CustomParticipationCubeRepository {
+	void setTrainingFacts(Long trainingId, String month, Collection<Long> topicIds, String location,
+						  ParticipationCell.TrainingFacts facts);
+
+	List<ParticipationCell> findCells(String fromMonth, String toMonth, Collection<Long> topicIds,
+									  Collection<String> locations);
+
+	List<Long> findTrainingIds();
+}
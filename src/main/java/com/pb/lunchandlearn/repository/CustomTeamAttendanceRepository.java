@@ -0,0 +1,11 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.Training;
+
+import java.util.Map;
+
+public interface CustomTeamAttendanceRepository {
+	void setTrainingAttendance(Training training, String quarter, Map<String, Integer> attendeesByManager);
+
+	int indexTrainingIds();
+}
@@ -1,14 +1,21 @@
 package com.pb.lunchandlearn.repository;
 
+import com.mongodb.DBObject;
 import com.pb.lunchandlearn.config.LikeType;
 import com.pb.lunchandlearn.config.SecuredUser;
 import com.pb.lunchandlearn.domain.Employee;
+import com.pb.lunchandlearn.domain.MiniTrainingDetail;
 import com.pb.lunchandlearn.domain.SimpleFieldEntry;
 import com.pb.lunchandlearn.domain.Topic;
 import com.pb.lunchandlearn.domain.Training;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by DE007RA on 6/6/2016.
@@ -16,11 +23,14 @@ import java.util.List;
 public interface CustomTopicRepository {
 	Topic updateLikes(Long topicId, LikeType type, String userName, String userId);
 	List<Topic> getAllByIds(List<Long> topicIds);
+	Set<String> updateChangedFields(Topic topic, SecuredUser user);
+
 	boolean updateByFieldName(Long topicId, SimpleFieldEntry simpleFieldEntry, SecuredUser user);
+	boolean updateByFieldNames(Long topicId, List<SimpleFieldEntry> simpleFieldEntries, SecuredUser user);
 
-	Topic findTrainingsByIdAndBeforeDate(Long id, Date date);
+	List<MiniTrainingDetail> findTrainingsByIdAndBeforeDate(Long id, Date date, int offset, int limit);
 
-	Topic findTrainingsByIdAndAfterDate(Long id, Date date);
+	List<MiniTrainingDetail> findTrainingsByIdAndAfterDate(Long id, Date date, int offset, int limit);
 
 	Topic findTrainingsById(Long id);
 
@@ -33,4 +43,8 @@ public interface CustomTopicRepository {
 	Topic getEmployees(Long topidId, String employeeStr);
 
 	void addEmployee(Long key, Employee emp, String employeesStr);
+
+	DBObject findFieldsById(Long topicId, Set<String> fields);
+
+	Page<DBObject> findAllFields(TextCriteria textCriteria, Set<String> fields, Pageable pageable);
 }
\ No newline at end of file
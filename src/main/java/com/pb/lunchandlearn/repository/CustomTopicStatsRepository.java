@@ -0,0 +1,13 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.TopicStats;
+
+import java.util.List;
+
+public interface CustomTopicStatsRepository {
+	void swapTraining(Long topicId, Long trainingId, TopicStats.TrainingEntry entry);
+
+	void recount(Long topicId);
+
+	List<Long> findTopicIdsByTraining(Long trainingId);
+}
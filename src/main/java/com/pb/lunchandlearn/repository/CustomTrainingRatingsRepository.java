@@ -0,0 +1,14 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.FeedBack;
+
+import java.util.List;
+import java.util.Set;
+
+public interface CustomTrainingRatingsRepository {
+	void addRatings(List<FeedBack> feedBacks);
+
+	void replaceRatings(Long trainingId, List<FeedBack> feedBacks);
+
+	Set<String> findRatingNames();
+}
@@ -1,33 +1,49 @@
 package com.pb.lunchandlearn.repository;
 
+import com.mongodb.DBObject;
 import com.pb.lunchandlearn.config.LikeType;
 import com.pb.lunchandlearn.config.SecuredUser;
 import com.pb.lunchandlearn.domain.*;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.DocumentCallbackHandler;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by DE007RA on 6/6/2016.
  */
 public interface CustomTrainingRepository {
 	Training updateLikes(Long trainingId, LikeType type, String userName, String userGuid);
+
+	boolean isArchived(Long trainingId);
 	List<Training> getAllByIds(List<Long> topicIds);
 	boolean updateByFieldName(Long trainingId, SimpleFieldEntry simpleFieldEntry, SecuredUser user);
+	boolean updateByFieldNames(Long trainingId, List<SimpleFieldEntry> simpleFieldEntries, SecuredUser user);
+
+	Set<String> updateChangedFields(Training training, SecuredUser user);
 
 	Training findTrainingById(Long id);
 
+	Training findReadModelById(Long trainingId, TrainingReadModel readModel);
+
+	List<Training> findAllReadModels(TrainingReadModel readModel);
+
 	Training getTopicsById(Long trainingId);
 
-	Training getCommentsById(Long trainingId);
+	boolean updateCommentsCount(Long trainingId, int delta);
 
-	Comment addComment(Long trainingId, Comment comment);
+	int moveEmbeddedComments();
 
-	Comment addCommentReply(Comment comment, Long trainingId, Long parentCommentId);
+	int backfillEmbeddedScheduledOn();
 
 	FileAttachmentInfo getAttachmentFileInfoWithFile(Long trainingId, String fileName) throws IOException;
 
@@ -41,15 +57,41 @@ public interface CustomTrainingRepository {
 
 	boolean removeAttachedFile(Long trainingId, String fileName);
 
-	public boolean removeCommentReply(Long trainingId, Long commentId, Long commentReplyId);
-
-	public boolean removeComment(Long trainingId, Long commentId);
-
 	FileAttachmentInfo getAttachedFileInfo(Long trainingId, String fileName);
 
 	Training getTrainersById(Long trainingId);
 
-	Training setTrainingStatus(Long trainingId, TrainingStatus trainingStatus);
+	Training updateStatus(Long trainingId, TrainingStatus status, List<SimpleFieldEntry> simpleFieldEntries,
+						  SecuredUser user);
+
+	Object findStatusFanoutToken(Long trainingId);
+
+	Training loadPendingStatusFanout(Long trainingId, Object token);
+
+	List<Long> findPendingStatusFanoutIds(Date modifiedBefore, int limit);
+
+	boolean clearStatusFanout(Long trainingId, Object token);
+
+	boolean addFeedBacks(Long trainingId, List<Long> feedbackIds);
+
+	DBObject findFieldsById(Long trainingId, Set<String> fields);
+
+	Page<DBObject> findAllFields(TextCriteria textCriteria, TrainingStatus status, Set<String> fields, Pageable pageable);
+
+	Training findPartsById(Long trainingId, Set<String> fields);
+
+	Training findArchivedById(Long trainingId);
+
+	List<Long> findArchivableIds(List<TrainingStatus> statuses, Date scheduledBefore, int limit);
+
+	List<Long> findIdsByStatus(TrainingStatus status);
+
+	List<Long> findIdsWithTopics();
+
+	boolean archiveTraining(Long trainingId);
+
+	long[] findExportIdBounds();
 
-	boolean addFeedBack(FeedBack feedBack);
+	void exportRange(long fromId, long toId, TrainingStatus status, Set<String> fields,
+					 DocumentCallbackHandler handler);
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Writes only the top level fields of an entity that differ from the stored document, guarded by its version.
+ * Server maintained fields (embedded collections, counters, audit fields) are never part of the diff. The converter
+ * skips null properties, so a field missing from the entity is left as stored rather than cleared.
+ */
+final class DiffUpdateSupport {
+
+	private DiffUpdateSupport() {
+	}
+
+	/**
+	 * @param expectedVersion version the client based its changes on, null to use the stored one
+	 * @param update          extra changes to write along with the diff
+	 * @return names of the changed fields, empty when nothing changed, null when the version did not match
+	 */
+	static Set<String> update(MongoTemplate mongoTemplate, String collectionName, DBObject stored, Object entity,
+							  Long expectedVersion, Set<String> serverFields, Update update) {
+		Object version = stored.get("version");
+		if (expectedVersion != null && !expectedVersion.equals(version)) {
+			return null;
+		}
+		DBObject incoming = new BasicDBObject();
+		mongoTemplate.getConverter().write(entity, incoming);
+		Set<String> changedFields = new LinkedHashSet<>();
+		for (String key : incoming.keySet()) {
+			if (!isServerField(key, serverFields) && !isSameValue(stored.get(key), incoming.get(key))) {
+				update.set(key, incoming.get(key));
+				changedFields.add(key);
+			}
+		}
+		if (changedFields.isEmpty()) {
+			return changedFields;
+		}
+		Query query = new Query(where("_id").is(stored.get("_id")).and("version").is(version));
+		if (mongoTemplate.updateFirst(query, update.inc("version", 1), collectionName).getN() == 0) {
+			return null;
+		}
+		return changedFields;
+	}
+
+	private static boolean isServerField(String key, Set<String> serverFields) {
+		return "_id".equals(key) || "_class".equals(key) || "version".equals(key) || serverFields.contains(key);
+	}
+
+	private static boolean isSameValue(Object stored, Object incoming) {
+		if (stored instanceof Number && incoming instanceof Number) {
+			//floats come back from the store as doubles
+			return ((Number) stored).doubleValue() == ((Number) incoming).doubleValue();
+		}
+		return stored == null ? incoming == null : stored.equals(incoming);
+	}
+}
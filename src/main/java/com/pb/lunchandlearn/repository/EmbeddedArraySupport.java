@@ -0,0 +1,80 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperationContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Reads one page of an embedded array with $filter, then orders the matching elements and pages them on the
+ * server, so only the elements of the page leave it. Stages are raw documents as the aggregation builder has no
+ * $filter, criteria use stored field names ("_id").
+ */
+final class EmbeddedArraySupport {
+	static final String ELEMENT = "$$element.";
+
+	private EmbeddedArraySupport() {
+	}
+
+	/**
+	 * @param condition aggregation expression over "$$element", null keeps every element
+	 * @param sortField element field the page is ordered by, ties broken by the element id
+	 * @return elements of the page, null when the document does not exist
+	 */
+	static List<DBObject> findElements(MongoTemplate mongoTemplate, String collectionName, Object id, String arrayField,
+									   DBObject condition, String sortField, Sort.Direction direction, int offset,
+									   int limit) {
+		Object elements = "$" + arrayField;
+		if (condition != null) {
+			elements = new BasicDBObject("$filter", new BasicDBObject("input", elements).append("as", "element")
+					.append("cond", condition));
+		}
+		int order = direction == Sort.Direction.ASC ? 1 : -1;
+		Aggregation aggregation = Aggregation.newAggregation(
+				stage(new BasicDBObject("$match", new BasicDBObject("_id", id))),
+				stage(new BasicDBObject("$project", new BasicDBObject("elements",
+						new BasicDBObject("$ifNull", Arrays.asList(elements, Collections.emptyList()))))),
+				stage(new BasicDBObject("$unwind", "$elements")),
+				stage(new BasicDBObject("$sort", new BasicDBObject("elements." + sortField, order)
+						.append("elements._id", order))),
+				stage(new BasicDBObject("$skip", offset)),
+				stage(new BasicDBObject("$limit", limit)));
+		List<DBObject> content = new ArrayList<>();
+		for (DBObject result : mongoTemplate.aggregate(aggregation, collectionName, DBObject.class)
+				.getMappedResults()) {
+			content.add((DBObject) result.get("elements"));
+		}
+		if (content.isEmpty() && !mongoTemplate.exists(new Query(where("_id").is(id)), collectionName)) {
+			return null;
+		}
+		return content;
+	}
+
+	static DBObject and(DBObject... conditions) {
+		return new BasicDBObject("$and", Arrays.asList(conditions));
+	}
+
+	static DBObject compare(String operator, String elementField, Object value) {
+		return new BasicDBObject(operator, Arrays.asList(ELEMENT + elementField, value));
+	}
+
+	private static AggregationOperation stage(final DBObject operation) {
+		return new AggregationOperation() {
+			@Override
+			public DBObject toDBObject(AggregationOperationContext context) {
+				return operation;
+			}
+		};
+	}
+}
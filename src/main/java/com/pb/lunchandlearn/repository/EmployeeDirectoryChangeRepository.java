@@ -0,0 +1,21 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.EmployeeDirectoryChange;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Change log of the employee directory, keyed by directory version.
+ */
+@Repository
+public interface EmployeeDirectoryChangeRepository extends MongoRepository<EmployeeDirectoryChange, Long> {
+
+	List<EmployeeDirectoryChange> findAllByVersionGreaterThan(Long version, Sort sort);
+
+	EmployeeDirectoryChange findFirstByOrderByVersionDesc();
+
+	EmployeeDirectoryChange findFirstByOrderByVersionAsc();
+}
@@ -0,0 +1,16 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.EmployeeImportJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Bulk employee imports, keyed by job id.
+ */
+@Repository
+public interface EmployeeImportJobRepository extends MongoRepository<EmployeeImportJob, Long> {
+
+	List<EmployeeImportJob> findAllByStatus(EmployeeImportJob.Status status);
+}
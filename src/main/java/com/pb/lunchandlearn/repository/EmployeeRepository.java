@@ -26,9 +26,9 @@ public interface EmployeeRepository extends MongoRepository<Employee, String>, C
 	List<Employee> findAllByNameNotNull();
 
 	@Query(fields = "{'name': 1, 'guid': 1, 'emailId': 1}")
-	List<Employee> findAllByEmailIdNotNull();
+	List<Employee> findAllByEmailIdNotNullAndActiveNot(Boolean active);
 
-	@Query(fields = "{'name': 1, 'guid': 1, 'emailId': 1, 'roles': 1}")
+	@Query(fields = "{'name': 1, 'guid': 1, 'emailId': 1, 'roles': 1, 'active': 1}")
 	Employee findByGuid(String guid);
 
 	Page<Training> findAllByStatusOrderByScore(TrainingStatus status, TextCriteria textCriteria, Pageable pageable);
@@ -43,4 +43,7 @@ public interface EmployeeRepository extends MongoRepository<Employee, String>, C
 
 	@Query(fields="{ 'guid' : 1, 'emailId': 1}")
 	List<Employee> findAllByGuidIn(List<String> guids);
+
+	@Query(value="{ 'guid' : ?0 }", fields="{ 'version' : 1}")
+	Employee findVersionByGuid(String empGuid);
 }
\ No newline at end of file
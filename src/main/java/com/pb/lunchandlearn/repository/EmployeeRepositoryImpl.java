@@ -1,13 +1,18 @@
 package com.pb.lunchandlearn.repository;
 
-import com.mongodb.BasicDBObject;
-import com.mongodb.WriteResult;
+import com.mongodb.*;
 import com.pb.lunchandlearn.domain.*;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
 import com.pb.lunchandlearn.service.EmployeeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.util.ObjectUtils;
 
 import java.util.*;
 
@@ -20,23 +25,32 @@ public class EmployeeRepositoryImpl implements CustomEmployeeRepository {
 	@Autowired
 	private MongoTemplate mongoTemplate;
 
+	private final String employeeCollectionName = "employees";
+
+	//maintained by the server through their own operations, a PUT of the employee never writes them. Roles are
+	//only changed by admins through the field PATCH
+	private static final Set<String> EMPLOYEE_SERVER_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"score", "ancestors", "trainingsInterestedIn", "trainingsAttended", "trainingsImparted", "syncHash",
+			"active", "roles")));
+
 	@Override
 	public void removeTraining(String empGuid, Long trainingId, String trainingStr) {
 		Query query = new Query(where("guid").is(empGuid));
-		mongoTemplate.updateFirst(query, new Update().pull(trainingStr + ".id", trainingId), Employee.class);
+		mongoTemplate.updateFirst(query, new Update().pull(trainingStr + ".id", trainingId).inc("version", 1), Employee.class);
 	}
 
 	@Override
 	public void addTraining(String empGuid, Training training, String trainingStr) {
 		Query query = new Query(where("guid").is(empGuid));
-		MiniTrainingDetail miniTrainingDetail = new MiniTrainingDetail(training.getId(), training.getName(), training.getStatus());
-		mongoTemplate.updateFirst(query, new Update().addToSet(trainingStr, miniTrainingDetail), Employee.class);
+		MiniTrainingDetail miniTrainingDetail = new MiniTrainingDetail(training.getId(), training.getName(), training.getStatus(),
+				training.getScheduledOn());
+		mongoTemplate.updateFirst(query, new Update().addToSet(trainingStr, miniTrainingDetail).inc("version", 1), Employee.class);
 	}
 
 	@Override
 	public void removeTopicKnown(String empGuid, Long topicId) {
 		Query query = new Query(where("guid").is(empGuid));
-		mongoTemplate.updateFirst(query, new Update().pull("topicsKnown." + topicId, new BasicDBObject("$exist", true)), Employee.class);
+		mongoTemplate.updateFirst(query, new Update().pull("topicsKnown." + topicId, new BasicDBObject("$exist", true)).inc("version", 1), Employee.class);
 	}
 
 	@Override
@@ -56,11 +70,219 @@ public class EmployeeRepositoryImpl implements CustomEmployeeRepository {
 		query.fields().exclude("guid").include(trainingStr);
 		Employee emp = mongoTemplate.findOne(query, Employee.class);
 		if(emp != null) {
-			return emp.getTrainingsAttended();
+			return getTrainings(emp, trainingStr);
 		}
 		return null;
 	}
 
+	@Override
+	public Employee findProfileByGuid(String empGuid, List<String> trainingsStrs, int limit) {
+		Query query = new Query(where("guid").is(empGuid));
+		query.fields().include("name").include("emailId").include("managers").include("topicsKnown").
+				include("topicsInterestedIn").include("version");
+		for (String trainingStr : trainingsStrs) {
+			query.fields().slice(trainingStr, limit);
+		}
+		return mongoTemplate.findOne(query, Employee.class);
+	}
+
+	@Override
+	public List<Employee> findAllTopicInterests() {
+		Query query = new Query();
+		query.fields().include("topicsKnown").include("topicsInterestedIn");
+		return mongoTemplate.find(query, Employee.class);
+	}
+
+	/**
+	 * @return topics known and interested in, null when the employee does not exist
+	 */
+	@Override
+	public Employee loadTopicInterests(String empGuid) {
+		Query query = new Query(where("guid").is(empGuid));
+		query.fields().include("topicsKnown").include("topicsInterestedIn");
+		return mongoTemplate.findOne(query, Employee.class);
+	}
+
+	/**
+	 * @return managers and ancestors of the employees
+	 */
+	@Override
+	public List<Employee> findHierarchyByGuids(Collection<String> guids) {
+		return findHierarchy(new Query(where("guid").in(guids)));
+	}
+
+	@Override
+	public List<Employee> findAllHierarchy() {
+		return findHierarchy(new Query());
+	}
+
+	/**
+	 * @return managers and ancestors of the employees the manager is an ancestor of
+	 */
+	@Override
+	public List<Employee> findOrgMembers(String managerGuid) {
+		return findHierarchy(new Query(where("ancestors").is(managerGuid)));
+	}
+
+	/**
+	 * Sets the ancestors of the employees with one unordered bulk write. Ancestors aren't served with the employee,
+	 * so the version is left alone: the version a manager change returned stays current, and the members of the
+	 * org keep theirs.
+	 */
+	@Override
+	public void updateAncestors(Map<String, List<String>> ancestors) {
+		if (ancestors.isEmpty()) {
+			return;
+		}
+		BulkWriteOperation bulkWrite = mongoTemplate.getCollection(employeeCollectionName)
+				.initializeUnorderedBulkOperation();
+		for (Map.Entry<String, List<String>> entry : ancestors.entrySet()) {
+			bulkWrite.find(new BasicDBObject("_id", entry.getKey()))
+					.updateOne(new BasicDBObject("$set", new BasicDBObject("ancestors", entry.getValue())));
+		}
+		bulkWrite.execute();
+	}
+
+	/**
+	 * Upserts the directory fields of the employees with one unordered bulk write, roles and managers only when
+	 * given. The stored entries are compared first, an employee whose fields are all unchanged isn't written and
+	 * keeps its version.
+	 * @return guids of the written employees, true for the inserted ones
+	 */
+	@Override
+	public Map<String, Boolean> upsertDirectoryEntries(List<Employee> employees) {
+		Set<String> guids = new HashSet<>(employees.size());
+		for (Employee employee : employees) {
+			guids.add(employee.getGuid());
+		}
+		Map<String, Employee> stored = new HashMap<>(guids.size());
+		for (Employee employee : findDirectoryEntries(guids)) {
+			stored.put(employee.getGuid(), employee);
+		}
+		BulkWriteOperation bulkWrite = mongoTemplate.getCollection(employeeCollectionName)
+				.initializeUnorderedBulkOperation();
+		List<String> writtenGuids = new ArrayList<>(employees.size());
+		for (Employee employee : employees) {
+			if (!isDirectoryEntryChanged(employee, stored.get(employee.getGuid()))) {
+				continue;
+			}
+			BasicDBObject fields = new BasicDBObject("name", employee.getName()).append("emailId", employee.getEmailId());
+			if (employee.getRoles() != null) {
+				fields.append("roles", employee.getRoles());
+			}
+			if (employee.getManagers() != null) {
+				fields.append("managers", new BasicDBObject(employee.getManagers()));
+			}
+			bulkWrite.find(new BasicDBObject("_id", employee.getGuid())).upsert()
+					.updateOne(new BasicDBObject("$set", fields).append("$inc", new BasicDBObject("version", 1)));
+			writtenGuids.add(employee.getGuid());
+		}
+		Map<String, Boolean> written = new LinkedHashMap<>();
+		if (writtenGuids.isEmpty()) {
+			return written;
+		}
+		Set<Integer> inserted = new HashSet<>();
+		for (BulkWriteUpsert upsert : bulkWrite.execute().getUpserts()) {
+			inserted.add(upsert.getIndex());
+		}
+		for (int index = 0; index < writtenGuids.size(); ++index) {
+			written.put(writtenGuids.get(index), inserted.contains(index));
+		}
+		return written;
+	}
+
+	/**
+	 * Managers are compared as maps, so a manager map stored in another key order is still unchanged.
+	 */
+	private static boolean isDirectoryEntryChanged(Employee employee, Employee stored) {
+		return stored == null || !ObjectUtils.nullSafeEquals(employee.getName(), stored.getName()) ||
+				!ObjectUtils.nullSafeEquals(employee.getEmailId(), stored.getEmailId()) ||
+				(employee.getRoles() != null && !employee.getRoles().equals(stored.getRoles())) ||
+				(employee.getManagers() != null && !employee.getManagers().equals(stored.getManagers()));
+	}
+
+	@Override
+	public List<Employee> findSyncStates() {
+		Query query = new Query();
+		query.fields().include("syncHash").include("active");
+		return mongoTemplate.find(query, Employee.class);
+	}
+
+	@Override
+	public List<Employee> findDirectoryEntries(Collection<String> guids) {
+		Query query = new Query(where("_id").in(guids));
+		query.fields().include("name").include("emailId").include("roles").include("managers").include("active");
+		return mongoTemplate.find(query, Employee.class);
+	}
+
+	/**
+	 * Sets only the given fields of each employee with one unordered bulk write, upserting the employees that
+	 * don't exist yet.
+	 */
+	@Override
+	public void updateSyncedFields(Map<String, List<SimpleFieldEntry>> fieldsByGuid) {
+		if (fieldsByGuid.isEmpty()) {
+			return;
+		}
+		BulkWriteOperation bulkWrite = mongoTemplate.getCollection(employeeCollectionName)
+				.initializeUnorderedBulkOperation();
+		for (Map.Entry<String, List<SimpleFieldEntry>> entry : fieldsByGuid.entrySet()) {
+			BasicDBObject fields = new BasicDBObject();
+			for (SimpleFieldEntry field : entry.getValue()) {
+				fields.append(field.getName(), field.getValue() instanceof Map ?
+						new BasicDBObject((Map) field.getValue()) : field.getValue());
+			}
+			bulkWrite.find(new BasicDBObject("_id", entry.getKey())).upsert()
+					.updateOne(new BasicDBObject("$set", fields).append("$inc", new BasicDBObject("version", 1)));
+		}
+		bulkWrite.execute();
+	}
+
+	/**
+	 * Deactivates the employees with one update. Unlike the synced fields it never upserts, an employee removed
+	 * meanwhile stays removed.
+	 */
+	@Override
+	public void deactivate(Collection<String> guids) {
+		if (guids.isEmpty()) {
+			return;
+		}
+		mongoTemplate.updateMulti(new Query(where("guid").in(guids)), new Update().set("active", false)
+				.inc("version", 1), Employee.class);
+	}
+
+	private List<Employee> findHierarchy(Query query) {
+		query.fields().include("managers").include("ancestors");
+		return mongoTemplate.find(query, Employee.class);
+	}
+
+	@Override
+	public List<MiniTrainingDetail> getTrainings(String empGuid, String trainingStr, TrainingStatus status, int offset,
+												 int limit) {
+		List<DBObject> elements = EmbeddedArraySupport.findElements(mongoTemplate, employeeCollectionName, empGuid,
+				trainingStr, status == null ? null : EmbeddedArraySupport.compare("$eq", "status", status.name()),
+				"scheduledOn", Sort.Direction.DESC, offset, limit);
+		if(elements == null) {
+			return null;
+		}
+		List<MiniTrainingDetail> trainings = new ArrayList<>(elements.size());
+		for (DBObject element : elements) {
+			trainings.add(mongoTemplate.getConverter().read(MiniTrainingDetail.class, element));
+		}
+		return trainings;
+	}
+
+	private static List<MiniTrainingDetail> getTrainings(Employee emp, String trainingStr) {
+		switch (trainingStr) {
+			case "trainingsInterestedIn":
+				return emp.getTrainingsInterestedIn();
+			case "trainingsImparted":
+				return emp.getTrainingsImparted();
+			default:
+				return emp.getTrainingsAttended();
+		}
+	}
+
 	@Override
 	public void addTopicKnown(String empGuid, Long topicId, String topicName) {
 		addTopic(empGuid, topicId, topicName, "topicsKnown");
@@ -88,22 +310,42 @@ public class EmployeeRepositoryImpl implements CustomEmployeeRepository {
 
 	@Override
 	public boolean updateByFieldName(String empGuid, SimpleFieldEntry simpleFieldEntry) {
+		return updateByFieldNames(empGuid, Collections.singletonList(simpleFieldEntry));
+	}
+
+	@Override
+	public boolean updateByFieldNames(String empGuid, List<SimpleFieldEntry> simpleFieldEntries) {
+		Update update = new Update();
+		for (SimpleFieldEntry simpleFieldEntry : simpleFieldEntries) {
+			update.set(simpleFieldEntry.getName(), simpleFieldEntry.getValue());
+		}
 		WriteResult result = mongoTemplate.updateFirst(new Query(where("guid").is(empGuid)),
-				Update.update(simpleFieldEntry.getName(), simpleFieldEntry.getValue()), Employee.class);
+				update.inc("version", 1), Employee.class);
 		return result.getN() == 1;
 	}
 
+	@Override
+	public Set<String> updateChangedFields(Employee employee) {
+		DBObject stored = mongoTemplate.findOne(new Query(where("_id").is(employee.getGuid())), DBObject.class,
+				employeeCollectionName);
+		if(stored == null) {
+			throw new ResourceNotFoundException("Employee does not exist");
+		}
+		return DiffUpdateSupport.update(mongoTemplate, employeeCollectionName, stored, employee, employee.getVersion(),
+				EMPLOYEE_SERVER_FIELDS, new Update());
+	}
+
 	@Override
 	public void updateTopics(Long topicId, String topicName, String topicStr) {
 		String topicKey = topicStr + "." + topicId;
 		Query query = new Query(where(topicKey).exists(true));
-		mongoTemplate.updateMulti(query, Update.update(topicKey, topicName), Employee.class);
+		mongoTemplate.updateMulti(query, Update.update(topicKey, topicName).inc("version", 1), Employee.class);
 	}
 
 	@Override
 	public void updateTrainings(Long trainingId, String trainingName, String trainingStr) {
 		Query query = new Query(where(trainingStr + ".id").is(trainingId));
-		mongoTemplate.updateMulti(query, Update.update(trainingStr + ".$.name", trainingName), Employee.class);
+		mongoTemplate.updateMulti(query, Update.update(trainingStr + ".$.name", trainingName).inc("version", 1), Employee.class);
 	}
 
 	@Override
@@ -113,6 +355,16 @@ public class EmployeeRepositoryImpl implements CustomEmployeeRepository {
 		return mongoTemplate.find(query, Employee.class);
 	}
 
+	@Override
+	public DBObject findFieldsByGuid(String empGuid, Set<String> fields) {
+		return FieldProjectionSupport.findOne(mongoTemplate, employeeCollectionName, empGuid, fields);
+	}
+
+	@Override
+	public Page<DBObject> findAllFields(TextCriteria textCriteria, Set<String> fields, Pageable pageable) {
+		return FieldProjectionSupport.findPage(mongoTemplate, employeeCollectionName, null, textCriteria, fields, pageable);
+	}
+
 	private void addTopic(String empGuid, Long topicId, String topicName, String topicStr) {
 		Query query = new Query(where("guid").is(empGuid));
 		Map<Long, String> topics = getTopics(empGuid, topicStr);
@@ -120,6 +372,6 @@ public class EmployeeRepositoryImpl implements CustomEmployeeRepository {
 			topics = new HashMap<Long, String>(1);
 		}
 		topics.put(topicId, topicName);
-		mongoTemplate.updateFirst(query, new Update().set(topicStr, topics), Employee.class);
+		mongoTemplate.updateFirst(query, new Update().set(topicStr, topics).inc("version", 1), Employee.class);
 	}
 }
\ No newline at end of file
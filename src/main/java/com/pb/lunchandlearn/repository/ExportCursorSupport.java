@@ -0,0 +1,116 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.DocumentCallbackHandler;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Streams raw documents of a collection through a cursor, one _id range at a time, so an export can read the ranges
+ * of a collection in parallel without holding them in memory. Ids are the numeric ids of the id provider.
+ */
+final class ExportCursorSupport {
+
+	private ExportCursorSupport() {
+	}
+
+	/**
+	 * Lowest and highest _id of the documents matching the criteria, null when there are none.
+	 */
+	static long[] findIdBounds(MongoTemplate mongoTemplate, String collectionName, Criteria criteria) {
+		DBObject lowest = mongoTemplate.findOne(getIdQuery(criteria).with(new Sort(Sort.Direction.ASC, "_id")),
+				DBObject.class, collectionName);
+		if (lowest == null) {
+			return null;
+		}
+		DBObject highest = mongoTemplate.findOne(getIdQuery(criteria).with(new Sort(Sort.Direction.DESC, "_id")),
+				DBObject.class, collectionName);
+		return new long[]{((Number) lowest.get("_id")).longValue(), ((Number) highest.get("_id")).longValue()};
+	}
+
+	/**
+	 * Hands the documents matching the criteria with fromId <= _id <= toId to the handler in _id order, only the
+	 * fields (and _id) are read.
+	 */
+	static void forEachInRange(MongoTemplate mongoTemplate, String collectionName, Criteria criteria,
+							   Set<String> fields, long fromId, long toId, DocumentCallbackHandler handler) {
+		mongoTemplate.executeQuery(getRangeQuery(criteria, fields, fromId, toId), collectionName, handler);
+	}
+
+	/**
+	 * Like forEachInRange over two collections, their documents are merged into one _id order. A document in both,
+	 * like a training being archived, is handed over once from the first collection.
+	 */
+	static void forEachInRange(MongoTemplate mongoTemplate, String collectionName, Criteria criteria,
+							   String otherCollectionName, Criteria otherCriteria, Set<String> fields, long fromId,
+							   long toId, DocumentCallbackHandler handler) {
+		DBCursor cursor = openRange(mongoTemplate, collectionName, criteria, fields, fromId, toId);
+		try {
+			DBCursor otherCursor = openRange(mongoTemplate, otherCollectionName, otherCriteria, fields, fromId, toId);
+			try {
+				DBObject document = cursor.hasNext() ? cursor.next() : null;
+				DBObject otherDocument = otherCursor.hasNext() ? otherCursor.next() : null;
+				while (document != null || otherDocument != null) {
+					long compared = document == null ? 1 : otherDocument == null ? -1 :
+							Long.compare(getId(document), getId(otherDocument));
+					if (compared <= 0) {
+						handler.processDocument(document);
+						document = cursor.hasNext() ? cursor.next() : null;
+					}
+					if (compared >= 0) {
+						if (compared > 0) {
+							handler.processDocument(otherDocument);
+						}
+						otherDocument = otherCursor.hasNext() ? otherCursor.next() : null;
+					}
+				}
+			} finally {
+				otherCursor.close();
+			}
+		} finally {
+			cursor.close();
+		}
+	}
+
+	static long[] merge(long[] bounds, long[] otherBounds) {
+		if (bounds == null || otherBounds == null) {
+			return bounds == null ? otherBounds : bounds;
+		}
+		return new long[]{Math.min(bounds[0], otherBounds[0]), Math.max(bounds[1], otherBounds[1])};
+	}
+
+	private static DBCursor openRange(MongoTemplate mongoTemplate, String collectionName, Criteria criteria,
+									  Set<String> fields, long fromId, long toId) {
+		Query query = getRangeQuery(criteria, fields, fromId, toId);
+		return mongoTemplate.getCollection(collectionName).find(query.getQueryObject(), query.getFieldsObject())
+				.sort(query.getSortObject());
+	}
+
+	private static Query getRangeQuery(Criteria criteria, Set<String> fields, long fromId, long toId) {
+		Query query = new Query(where("_id").gte(fromId).lte(toId));
+		if (criteria != null) {
+			query.addCriteria(criteria);
+		}
+		for (String field : fields) {
+			query.fields().include(field);
+		}
+		return query.with(new Sort(Sort.Direction.ASC, "_id"));
+	}
+
+	private static long getId(DBObject document) {
+		return ((Number) document.get("_id")).longValue();
+	}
+
+	private static Query getIdQuery(Criteria criteria) {
+		Query query = criteria == null ? new Query() : new Query(criteria);
+		query.fields().include("_id");
+		return query.limit(1);
+	}
+}
@@ -0,0 +1,121 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.*;
+import com.pb.lunchandlearn.domain.FeedBack;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.DocumentCallbackHandler;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class FeedbackRepositoryImpl implements CustomFeedbackRepository {
+	private static final int DUPLICATE_KEY_ERROR = 11000;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final String feedbackInboxCollectionName = "feedbackInbox";
+
+	/**
+	 * Appends the feedback to the inbox, acknowledged once the write is in the journal.
+	 * @return false when the respondent has already submitted feedback for the training
+	 */
+	@Override
+	public boolean appendToInbox(FeedBack feedBack) {
+		DBObject dbObject = new BasicDBObject();
+		mongoTemplate.getConverter().write(feedBack, dbObject);
+		DBObject entry = new BasicDBObject("_id", getInboxId(feedBack)).append("feedback", dbObject)
+				.append("receivedOn", new Date());
+		try {
+			mongoTemplate.getCollection(feedbackInboxCollectionName).insert(entry, WriteConcern.JOURNALED);
+			return true;
+		} catch (DuplicateKeyException exp) {
+			return false;
+		}
+	}
+
+	@Override
+	public List<FeedBack> findInbox(int limit) {
+		Query query = new Query().with(new Sort(Sort.Direction.ASC, "receivedOn")).limit(limit);
+		List<FeedBack> feedBacks = new ArrayList<>(limit);
+		for (DBObject entry : mongoTemplate.find(query, DBObject.class, feedbackInboxCollectionName)) {
+			feedBacks.add(mongoTemplate.getConverter().read(FeedBack.class, (DBObject) entry.get("feedback")));
+		}
+		return feedBacks;
+	}
+
+	@Override
+	public void removeFromInbox(List<FeedBack> feedBacks) {
+		List<String> inboxIds = new ArrayList<>(feedBacks.size());
+		for (FeedBack feedBack : feedBacks) {
+			inboxIds.add(getInboxId(feedBack));
+		}
+		mongoTemplate.remove(new Query(where("_id").in(inboxIds)), feedbackInboxCollectionName);
+	}
+
+	/**
+	 * Inserts the feedbacks with one unordered bulk write, a feedback of a respondent who already gave one fails
+	 * alone on the unique index.
+	 * @return feedbacks inserted
+	 */
+	@Override
+	public List<FeedBack> insertNew(List<FeedBack> feedBacks) {
+		BulkWriteOperation bulkWrite = mongoTemplate.getCollection(mongoTemplate.getCollectionName(FeedBack.class))
+				.initializeUnorderedBulkOperation();
+		for (FeedBack feedBack : feedBacks) {
+			DBObject dbObject = new BasicDBObject();
+			mongoTemplate.getConverter().write(feedBack, dbObject);
+			bulkWrite.insert(dbObject);
+		}
+		Set<Integer> duplicates = new HashSet<>();
+		try {
+			bulkWrite.execute();
+		} catch (BulkWriteException exp) {
+			for (BulkWriteError error : exp.getWriteErrors()) {
+				if (error.getCode() != DUPLICATE_KEY_ERROR) {
+					throw exp;
+				}
+				duplicates.add(error.getIndex());
+			}
+		}
+		List<FeedBack> inserted = new ArrayList<>(feedBacks.size() - duplicates.size());
+		for (int index = 0; index < feedBacks.size(); ++index) {
+			if (!duplicates.contains(index)) {
+				inserted.add(feedBacks.get(index));
+			}
+		}
+		return inserted;
+	}
+
+	/**
+	 * @return ids of the trainings having feedbacks
+	 */
+	@Override
+	public List<Long> findParentIds() {
+		List<Long> trainingIds = new ArrayList<>();
+		for (Object trainingId : mongoTemplate.getCollection(mongoTemplate.getCollectionName(FeedBack.class))
+				.distinct("parentId")) {
+			trainingIds.add(((Number) trainingId).longValue());
+		}
+		return trainingIds;
+	}
+
+	@Override
+	public long[] findExportIdBounds() {
+		return ExportCursorSupport.findIdBounds(mongoTemplate, mongoTemplate.getCollectionName(FeedBack.class), null);
+	}
+
+	@Override
+	public void exportRange(long fromId, long toId, Set<String> fields, DocumentCallbackHandler handler) {
+		ExportCursorSupport.forEachInRange(mongoTemplate, mongoTemplate.getCollectionName(FeedBack.class), null,
+				fields, fromId, toId, handler);
+	}
+
+	private static String getInboxId(FeedBack feedBack) {
+		return feedBack.getParentId() + ":" + feedBack.getRespondentGuid();
+	}
+}
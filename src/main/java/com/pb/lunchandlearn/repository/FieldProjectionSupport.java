@@ -0,0 +1,59 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.DBObject;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Reads raw documents restricted to a set of fields, used for the fields= query parameter.
+ * Queries run against the collection without entity mapping, so criteria use stored field names ("_id").
+ */
+final class FieldProjectionSupport {
+
+	private FieldProjectionSupport() {
+	}
+
+	static DBObject findOne(MongoTemplate mongoTemplate, String collectionName, Object id, Set<String> fields) {
+		Query query = new Query(where("_id").is(id));
+		includeFields(query, fields);
+		return mongoTemplate.findOne(query, DBObject.class, collectionName);
+	}
+
+	static Page<DBObject> findPage(MongoTemplate mongoTemplate, String collectionName, Criteria criteria,
+								   TextCriteria textCriteria, Set<String> fields, Pageable pageable) {
+		Query query;
+		if (textCriteria != null) {
+			query = TextQuery.queryText(textCriteria).sortByScore();
+			pageable = new PageRequest(pageable.getPageNumber(), pageable.getPageSize());
+		} else {
+			query = new Query();
+		}
+		if (criteria != null) {
+			query.addCriteria(criteria);
+		}
+		long total = mongoTemplate.count(query, collectionName);
+		includeFields(query.with(pageable), fields);
+		List<DBObject> content = total > pageable.getOffset() ?
+				mongoTemplate.find(query, DBObject.class, collectionName) : Collections.<DBObject>emptyList();
+		return new PageImpl<>(content, pageable, total);
+	}
+
+	private static void includeFields(Query query, Set<String> fields) {
+		for (String field : fields) {
+			query.fields().include(field);
+		}
+	}
+}
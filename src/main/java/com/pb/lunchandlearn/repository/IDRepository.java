@@ -8,6 +8,6 @@ import org.springframework.stereotype.Repository;
  * Created by de007ra on 5/3/2016.
  */
 @Repository
-public interface IDRepository extends MongoRepository<CollectionId, String>{
+public interface IDRepository extends MongoRepository<CollectionId, String>, CustomIDRepository {
 	public CollectionId findByCollectionName(String collectionName);
 }
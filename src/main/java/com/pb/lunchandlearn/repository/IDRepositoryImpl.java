@@ -0,0 +1,25 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.CollectionId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class IDRepositoryImpl implements CustomIDRepository {
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	/**
+	 * @return last id after reserving count ids, null when the collection has no ids yet
+	 */
+	@Override
+	public Long incrementLastId(String collectionName, long count) {
+		CollectionId collectionId = mongoTemplate.findAndModify(new Query(where("collectionName").is(collectionName)),
+				new Update().inc("lastId", count), FindAndModifyOptions.options().returnNew(true), CollectionId.class);
+		return collectionId == null ? null : collectionId.getLastId();
+	}
+}
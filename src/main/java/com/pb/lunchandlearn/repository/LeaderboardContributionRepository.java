@@ -0,0 +1,12 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.LeaderboardContribution;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Leaderboard contributions, keyed by training id.
+ */
+@Repository
+public interface LeaderboardContributionRepository extends MongoRepository<LeaderboardContribution, Long> {
+}
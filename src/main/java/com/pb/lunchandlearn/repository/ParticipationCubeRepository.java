@@ -0,0 +1,13 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.ParticipationCell;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Cells of the participation cube, keyed by month:topicId:location.
+ */
+@Repository
+public interface ParticipationCubeRepository extends MongoRepository<ParticipationCell, String>,
+		CustomParticipationCubeRepository {
+}
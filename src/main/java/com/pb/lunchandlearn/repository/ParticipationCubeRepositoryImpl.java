@@ -0,0 +1,91 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.pb.lunchandlearn.domain.ParticipationCell;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.CollectionUtils;
+
+import java.util.*;
+
+public class ParticipationCubeRepositoryImpl implements CustomParticipationCubeRepository {
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	/**
+	 * Replaces the facts of the training in the cube, the training is dropped from the cells it left and cells left
+	 * without trainings are removed. Null facts only drop it.
+	 */
+	@Override
+	public void setTrainingFacts(Long trainingId, String month, Collection<Long> topicIds, String location,
+								 ParticipationCell.TrainingFacts facts) {
+		String field = "trainings." + trainingId;
+		DBCollection collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(ParticipationCell.class));
+		List<Object> cellIds = new ArrayList<>();
+		for (DBObject cell : collection.find(new BasicDBObject("trainingIds", trainingId), new BasicDBObject("_id", 1))) {
+			cellIds.add(cell.get("_id"));
+		}
+		if (!cellIds.isEmpty()) {
+			BasicDBObject inCells = new BasicDBObject("_id", new BasicDBObject("$in", cellIds));
+			collection.updateMulti(inCells, new BasicDBObject("$unset", new BasicDBObject(field, ""))
+					.append("$pull", new BasicDBObject("trainingIds", trainingId)));
+			collection.remove(inCells.append("trainingIds", new BasicDBObject("$size", 0)));
+		}
+		if (facts == null) {
+			return;
+		}
+		BasicDBObject objFacts = new BasicDBObject("attendees", facts.getAttendees())
+				.append("trainers", facts.getTrainers()).append("ratingSum", facts.getRatingSum())
+				.append("ratingCount", facts.getRatingCount());
+		Collection<Long> cellTopicIds = CollectionUtils.isEmpty(topicIds) ?
+				Collections.<Long>singleton(null) : topicIds;
+		BulkWriteOperation bulkWrite = collection.initializeUnorderedBulkOperation();
+		Date updatedOn = new Date();
+		for (Long topicId : cellTopicIds) {
+			bulkWrite.find(new BasicDBObject("_id", ParticipationCell.getId(month, topicId, location))).upsert()
+					.updateOne(new BasicDBObject("$set", new BasicDBObject(field, objFacts)
+							.append("month", month).append("topicId", topicId).append("location", location)
+							.append("updatedOn", updatedOn))
+							.append("$addToSet", new BasicDBObject("trainingIds", trainingId)));
+		}
+		bulkWrite.execute();
+	}
+
+	@Override
+	public List<ParticipationCell> findCells(String fromMonth, String toMonth, Collection<Long> topicIds,
+											 Collection<String> locations) {
+		Query query = new Query();
+		if (fromMonth != null || toMonth != null) {
+			Criteria month = Criteria.where("month");
+			if (fromMonth != null) {
+				month.gte(fromMonth);
+			}
+			if (toMonth != null) {
+				month.lte(toMonth);
+			}
+			query.addCriteria(month);
+		}
+		if (!CollectionUtils.isEmpty(topicIds)) {
+			query.addCriteria(Criteria.where("topicId").in(topicIds));
+		}
+		if (!CollectionUtils.isEmpty(locations)) {
+			query.addCriteria(Criteria.where("location").in(locations));
+		}
+		return mongoTemplate.find(query, ParticipationCell.class);
+	}
+
+	@Override
+	public List<Long> findTrainingIds() {
+		List<Long> trainingIds = new ArrayList<>();
+		for (Object trainingId : mongoTemplate.getCollection(mongoTemplate.getCollectionName(ParticipationCell.class))
+				.distinct("trainingIds")) {
+			trainingIds.add(((Number) trainingId).longValue());
+		}
+		return trainingIds;
+	}
+}
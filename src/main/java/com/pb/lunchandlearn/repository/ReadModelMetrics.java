@@ -0,0 +1,51 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.DBObject;
+import org.bson.BasicBSONEncoder;
+import org.json.simple.JSONObject;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the reads of each read model and the BSON size of the documents they returned.
+ */
+@Component
+public class ReadModelMetrics {
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+	void record(String readModel, DBObject document) {
+		Counter counter = counters.get(readModel);
+		if (counter == null) {
+			Counter created = new Counter();
+			counter = counters.putIfAbsent(readModel, created);
+			if (counter == null) {
+				counter = created;
+			}
+		}
+		counter.reads.incrementAndGet();
+		counter.bytes.addAndGet(new BasicBSONEncoder().encode(document).length);
+	}
+
+	public JSONObject getStats() {
+		JSONObject stats = new JSONObject();
+		for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+			long reads = entry.getValue().reads.get();
+			long bytes = entry.getValue().bytes.get();
+			JSONObject stat = new JSONObject();
+			stat.put("reads", reads);
+			stat.put("bytes", bytes);
+			stat.put("avgBytes", reads == 0 ? 0 : bytes / reads);
+			stats.put(entry.getKey(), stat);
+		}
+		return stats;
+	}
+
+	private static final class Counter {
+		private final AtomicLong reads = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+	}
+}
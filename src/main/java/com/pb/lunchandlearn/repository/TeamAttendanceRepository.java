@@ -0,0 +1,13 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.TeamAttendance;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Team attendance of managers, keyed by managerGuid:quarter.
+ */
+@Repository
+public interface TeamAttendanceRepository extends MongoRepository<TeamAttendance, String>,
+		CustomTeamAttendanceRepository {
+}
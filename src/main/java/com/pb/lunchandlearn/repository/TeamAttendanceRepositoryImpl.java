@@ -0,0 +1,77 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.pb.lunchandlearn.domain.TeamAttendance;
+import com.pb.lunchandlearn.domain.Training;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class TeamAttendanceRepositoryImpl implements CustomTeamAttendanceRepository {
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	/**
+	 * Replaces the attendance of the training in the team attendance of all managers, the training is dropped from
+	 * managers no longer having attendees of it. The attendances of the training are found by the indexed
+	 * trainingIds.
+	 */
+	@Override
+	public void setTrainingAttendance(Training training, String quarter, Map<String, Integer> attendeesByManager) {
+		String field = "trainings." + training.getId();
+		DBCollection collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(TeamAttendance.class));
+		collection.updateMulti(new BasicDBObject("trainingIds", training.getId()),
+				new BasicDBObject("$unset", new BasicDBObject(field, ""))
+						.append("$pull", new BasicDBObject("trainingIds", training.getId())));
+		if (attendeesByManager.isEmpty()) {
+			return;
+		}
+		BulkWriteOperation bulkWrite = collection.initializeUnorderedBulkOperation();
+		Date updatedOn = new Date();
+		for (Map.Entry<String, Integer> entry : attendeesByManager.entrySet()) {
+			BasicDBObject attendance = new BasicDBObject("name", training.getName())
+					.append("scheduledOn", training.getScheduledOn()).append("attendees", entry.getValue());
+			bulkWrite.find(new BasicDBObject("_id", TeamAttendance.getId(entry.getKey(), quarter))).upsert()
+					.updateOne(new BasicDBObject("$set", new BasicDBObject(field, attendance)
+							.append("managerGuid", entry.getKey()).append("quarter", quarter)
+							.append("updatedOn", updatedOn))
+							.append("$addToSet", new BasicDBObject("trainingIds", training.getId())));
+		}
+		bulkWrite.execute();
+	}
+
+	/**
+	 * Sets the trainingIds of team attendances written before they had them, from the keys of their trainings.
+	 * @return team attendances updated
+	 */
+	@Override
+	public int indexTrainingIds() {
+		DBCollection collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(TeamAttendance.class));
+		BulkWriteOperation bulkWrite = collection.initializeUnorderedBulkOperation();
+		int count = 0;
+		for (DBObject teamAttendance : collection.find(new BasicDBObject("trainingIds",
+				new BasicDBObject("$exists", false)), new BasicDBObject("trainings", 1))) {
+			List<Long> trainingIds = new ArrayList<>();
+			DBObject trainings = (DBObject) teamAttendance.get("trainings");
+			if (trainings != null) {
+				for (String trainingId : trainings.keySet()) {
+					trainingIds.add(Long.valueOf(trainingId));
+				}
+			}
+			bulkWrite.find(new BasicDBObject("_id", teamAttendance.get("_id")))
+					.updateOne(new BasicDBObject("$set", new BasicDBObject("trainingIds", trainingIds)));
+			++count;
+		}
+		if (count > 0) {
+			bulkWrite.execute();
+		}
+		return count;
+	}
+}
@@ -26,4 +26,7 @@ public interface TopicRepository extends MongoRepository<Topic, String>, CustomT
 
 	@Query(fields = "{'name': 1, 'id': 0}")
 	Topic findNameById(Long topicId);
+
+	@Query(value="{ 'id' : ?0 }", fields="{ 'version' : 1, 'lastModifiedOn' : 1}")
+	Topic findVersionById(Long topicId);
 }
\ No newline at end of file
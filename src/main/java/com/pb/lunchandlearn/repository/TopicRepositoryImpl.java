@@ -1,21 +1,25 @@
 package com.pb.lunchandlearn.repository;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import com.pb.lunchandlearn.config.LikeType;
 import com.pb.lunchandlearn.config.SecuredUser;
 import com.pb.lunchandlearn.domain.*;
 import com.pb.lunchandlearn.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.core.query.Update;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
+import static com.pb.lunchandlearn.repository.EmbeddedArraySupport.and;
+import static com.pb.lunchandlearn.repository.EmbeddedArraySupport.compare;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 /**
@@ -27,6 +31,11 @@ public class TopicRepositoryImpl implements CustomTopicRepository {
 
 	private final String topicCollectionName = "topics";
 
+	//maintained by the server through their own operations, a PUT of the topic never writes them
+	private static final Set<String> TOPIC_SERVER_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"score", "likesCount", "interestedEmployees", "trainings", "createDateTime", "createdByGuid",
+			"createdByName", "lastModifiedByGuid", "lastModifiedByName", "lastModifiedOn")));
+
 	@Override
 	public Topic updateLikes(Long topicId, LikeType type, String userName, String userId) {
 		Query query = new Query(where("id").is(topicId));
@@ -44,7 +53,7 @@ public class TopicRepositoryImpl implements CustomTopicRepository {
 		}
 		topic.setLikesCount(topic.getInterestedEmployees().size());
 		mongoTemplate.updateFirst(query, Update.update("interestedEmployees", topic.getInterestedEmployees()).
-				set("likesCount", topic.getLikesCount()), Topic.class);
+				set("likesCount", topic.getLikesCount()).inc("version", 1), Topic.class);
 		return topic;
 	}
 
@@ -53,31 +62,61 @@ public class TopicRepositoryImpl implements CustomTopicRepository {
 		return mongoTemplate.find(new Query(where("id").in(topicIds)), Topic.class);
 	}
 
+	@Override
+	public Set<String> updateChangedFields(Topic topic, SecuredUser user) {
+		DBObject stored = mongoTemplate.findOne(new Query(where("_id").is(topic.getId())), DBObject.class,
+				topicCollectionName);
+		if (stored == null) {
+			throw new ResourceNotFoundException("Topic does not exist");
+		}
+		Update update = new Update().set("lastModifiedByGuid", user.getGuid()).set("lastModifiedByName", user.getUsername())
+				.set("lastModifiedOn", new Date());
+		return DiffUpdateSupport.update(mongoTemplate, topicCollectionName, stored, topic, topic.getVersion(),
+				TOPIC_SERVER_FIELDS, update);
+	}
+
 	@Override
 	public boolean updateByFieldName(Long topicId, SimpleFieldEntry simpleFieldEntry, SecuredUser user) {
+		return updateByFieldNames(topicId, Collections.singletonList(simpleFieldEntry), user);
+	}
+
+	@Override
+	public boolean updateByFieldNames(Long topicId, List<SimpleFieldEntry> simpleFieldEntries, SecuredUser user) {
+		Update update = new Update();
+		for (SimpleFieldEntry simpleFieldEntry : simpleFieldEntries) {
+			update.set(simpleFieldEntry.getName(), simpleFieldEntry.getValue());
+		}
 		WriteResult result = mongoTemplate.updateFirst(new Query(where("id").is(topicId)),
-				Update.update(simpleFieldEntry.getName(), simpleFieldEntry.getValue()).
-						set("lastModifiedByGuid", user.getGuid()).set("lastModifiedByName",
-						user.getUsername()).set("lastModifiedOn", new Date()), Topic.class);
+				update.set("lastModifiedByGuid", user.getGuid()).set("lastModifiedByName",
+						user.getUsername()).set("lastModifiedOn", new Date()).inc("version", 1), Topic.class);
 		return result.getN() == 1;
 	}
 
 	@Override
-	public Topic findTrainingsByIdAndBeforeDate(Long id, Date date) {
-		Query query = new Query(where("id").is(id).
-				and("trainings.scheduledOn").lt(date));
-		query.fields().include("trainings");
-		query.fields().exclude("id");
-		return mongoTemplate.findOne(query, Topic.class, topicCollectionName);
+	public List<MiniTrainingDetail> findTrainingsByIdAndBeforeDate(Long id, Date date, int offset, int limit) {
+		//most recent first
+		return findTrainings(id, and(compare("$gt", "scheduledOn", null), compare("$lt", "scheduledOn", date)),
+				Sort.Direction.DESC, offset, limit);
 	}
 
 	@Override
-	public Topic findTrainingsByIdAndAfterDate(Long id, Date date) {
-		Query query = new Query(where("id").is(id).
-				and("trainings.scheduledOn").gt(date));
-		query.fields().include("trainings");
-		query.fields().exclude("id");
-		return mongoTemplate.findOne(query, Topic.class, topicCollectionName);
+	public List<MiniTrainingDetail> findTrainingsByIdAndAfterDate(Long id, Date date, int offset, int limit) {
+		//soonest first
+		return findTrainings(id, compare("$gt", "scheduledOn", date), Sort.Direction.ASC, offset, limit);
+	}
+
+	private List<MiniTrainingDetail> findTrainings(Long id, DBObject condition, Sort.Direction direction, int offset,
+												   int limit) {
+		List<DBObject> elements = EmbeddedArraySupport.findElements(mongoTemplate, topicCollectionName, id, "trainings",
+				condition, "scheduledOn", direction, offset, limit);
+		if (elements == null) {
+			return null;
+		}
+		List<MiniTrainingDetail> trainings = new ArrayList<>(elements.size());
+		for (DBObject element : elements) {
+			trainings.add(mongoTemplate.getConverter().read(MiniTrainingDetail.class, element));
+		}
+		return trainings;
 	}
 
 	@Override
@@ -91,7 +130,7 @@ public class TopicRepositoryImpl implements CustomTopicRepository {
 	@Override
 	public void removeTraining(Long topicId, Long trainingId) {
 		Query query = new Query(where("id").is(topicId));
-		mongoTemplate.updateFirst(query, new Update().pull("trainings", new BasicDBObject("id", trainingId)), Topic.class);
+		mongoTemplate.updateFirst(query, new Update().pull("trainings", new BasicDBObject("id", trainingId)).inc("version", 1), Topic.class);
 	}
 
 	@Override
@@ -100,18 +139,20 @@ public class TopicRepositoryImpl implements CustomTopicRepository {
 		Topic topic = mongoTemplate.findOne(query, Topic.class);
 		if(topic == null) {
 			query = new Query(where("id").is(topicId));
-			MiniTrainingDetail miniTrainingDetail = new MiniTrainingDetail(training.getId(), training.getName(), training.getStatus());
-			mongoTemplate.updateFirst(query, new Update().addToSet("trainings", miniTrainingDetail), Topic.class);
+			MiniTrainingDetail miniTrainingDetail = new MiniTrainingDetail(training.getId(), training.getName(), training.getStatus(),
+					training.getScheduledOn());
+			mongoTemplate.updateFirst(query, new Update().addToSet("trainings", miniTrainingDetail).inc("version", 1), Topic.class);
 			return;
 		}
 		mongoTemplate.updateFirst(query, new Update().set("trainings.$.name", training.getName())
-				.set("trainings.$.status", training.getStatus()), Topic.class);
+				.set("trainings.$.status", training.getStatus()).set("trainings.$.scheduledOn", training.getScheduledOn())
+				.inc("version", 1), Topic.class);
 	}
 
 	@Override
 	public void removeEmployee(Long topicId, String empGuid, String employeesStr) {
 		Query query = new Query(where("id").is(topicId));
-		mongoTemplate.updateFirst(query, new Update().unset(employeesStr + "." + empGuid), Topic.class);
+		mongoTemplate.updateFirst(query, new Update().unset(employeesStr + "." + empGuid).inc("version", 1), Topic.class);
 	}
 
 	@Override
@@ -121,6 +162,16 @@ public class TopicRepositoryImpl implements CustomTopicRepository {
 		return mongoTemplate.findOne(query, Topic.class);
 	}
 
+	@Override
+	public DBObject findFieldsById(Long topicId, Set<String> fields) {
+		return FieldProjectionSupport.findOne(mongoTemplate, topicCollectionName, topicId, fields);
+	}
+
+	@Override
+	public Page<DBObject> findAllFields(TextCriteria textCriteria, Set<String> fields, Pageable pageable) {
+		return FieldProjectionSupport.findPage(mongoTemplate, topicCollectionName, null, textCriteria, fields, pageable);
+	}
+
 	@Override
 	public void addEmployee(Long topicId, Employee emp, String employeesStr) {
 		Query query = new Query(where("id").is(topicId));
@@ -141,7 +192,7 @@ public class TopicRepositoryImpl implements CustomTopicRepository {
 			employees = new HashMap<>(1);
 		}
 		employees.put(emp.getGuid(), emp.getName());
-		mongoTemplate.updateFirst(query, new Update().set(employeesStr, employees),
+		mongoTemplate.updateFirst(query, new Update().set(employeesStr, employees).inc("version", 1),
 				Topic.class);
 	}
 }
\ No newline at end of file
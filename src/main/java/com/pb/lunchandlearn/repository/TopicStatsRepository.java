@@ -0,0 +1,12 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.TopicStats;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Topic statistics, keyed by topic id.
+ */
+@Repository
+public interface TopicStatsRepository extends MongoRepository<TopicStats, Long>, CustomTopicStatsRepository {
+}
@@ -0,0 +1,130 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.TopicStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class TopicStatsRepositoryImpl implements CustomTopicStatsRepository {
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	/**
+	 * Sets the entry of the training, or removes it when entry is null, and moves the counts from what the entry
+	 * replaced added to what the entry adds in the same write. The write is guarded by the version of the stats and
+	 * retried when another training of the topic changed them in between, so entries and counts always agree and
+	 * rerunning it for the same entry changes nothing.
+	 */
+	@Override
+	public void swapTraining(Long topicId, Long trainingId, TopicStats.TrainingEntry entry) {
+		String field = "trainings." + trainingId;
+		Query query = new Query(where("topicId").is(topicId));
+		query.fields().include(field).include("version");
+		while (true) {
+			TopicStats current = mongoTemplate.findOne(query, TopicStats.class);
+			TopicStats.TrainingEntry previous = current == null || current.getTrainings() == null ? null :
+					current.getTrainings().get(trainingId.toString());
+			if (entry == null && previous == null) {
+				return;
+			}
+			if (current == null) {
+				if (insert(topicId, trainingId, entry)) {
+					return;
+				}
+				continue;
+			}
+			Update update = entry == null ? new Update().unset(field) : new Update().set(field, entry);
+			Map<String, Integer> differences = new HashMap<>();
+			if (previous != null) {
+				addDifference(differences, "statusCounts." + previous.getStatus(), -1);
+				addDifference(differences, "attendees", -previous.getAttendees());
+			}
+			if (entry != null) {
+				addDifference(differences, "statusCounts." + entry.getStatus(), 1);
+				addDifference(differences, "attendees", entry.getAttendees());
+			}
+			for (Map.Entry<String, Integer> difference : differences.entrySet()) {
+				if (difference.getValue() != 0) {
+					update.inc(difference.getKey(), difference.getValue());
+				}
+			}
+			if (updateVersioned(current, update)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Recounts the stats from the entries of their trainings, repairing counts written apart from the entries.
+	 */
+	@Override
+	public void recount(Long topicId) {
+		Query query = new Query(where("topicId").is(topicId));
+		query.fields().include("trainings").include("version");
+		while (true) {
+			TopicStats current = mongoTemplate.findOne(query, TopicStats.class);
+			if (current == null) {
+				return;
+			}
+			Map<String, Long> statusCounts = new HashMap<>();
+			long attendees = 0;
+			if (current.getTrainings() != null) {
+				for (TopicStats.TrainingEntry entry : current.getTrainings().values()) {
+					Long count = statusCounts.get(entry.getStatus().name());
+					statusCounts.put(entry.getStatus().name(), count == null ? 1 : count + 1);
+					attendees += entry.getAttendees();
+				}
+			}
+			if (updateVersioned(current, new Update().set("statusCounts", statusCounts).set("attendees", attendees))) {
+				return;
+			}
+		}
+	}
+
+	private boolean insert(Long topicId, Long trainingId, TopicStats.TrainingEntry entry) {
+		TopicStats topicStats = new TopicStats();
+		topicStats.setTopicId(topicId);
+		topicStats.setStatusCounts(Collections.singletonMap(entry.getStatus().name(), 1L));
+		topicStats.setAttendees(entry.getAttendees());
+		topicStats.setTrainings(Collections.singletonMap(trainingId.toString(), entry));
+		topicStats.setVersion(1L);
+		topicStats.setUpdatedOn(new Date());
+		try {
+			mongoTemplate.insert(topicStats);
+			return true;
+		} catch (DuplicateKeyException exp) {
+			//created by a refresh of another training in between
+			return false;
+		}
+	}
+
+	//stats written before they were versioned have no version yet
+	private boolean updateVersioned(TopicStats current, Update update) {
+		Query query = new Query(where("topicId").is(current.getTopicId()).and("version")
+				.is(current.getVersion()));
+		update.inc("version", 1).set("updatedOn", new Date());
+		return mongoTemplate.updateFirst(query, update, TopicStats.class).getN() == 1;
+	}
+
+	private static void addDifference(Map<String, Integer> differences, String field, int difference) {
+		Integer current = differences.get(field);
+		differences.put(field, current == null ? difference : current + difference);
+	}
+
+	@Override
+	public List<Long> findTopicIdsByTraining(Long trainingId) {
+		Query query = new Query(where("trainings." + trainingId).exists(true));
+		query.fields().include("topicId");
+		List<Long> topicIds = new ArrayList<>();
+		for (TopicStats topicStats : mongoTemplate.find(query, TopicStats.class)) {
+			topicIds.add(topicStats.getTopicId());
+		}
+		return topicIds;
+	}
+}
@@ -0,0 +1,13 @@
+package com.pb.lunchandlearn.repository;
+
+import com.pb.lunchandlearn.domain.TrainingRatings;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Rating summaries, keyed by training id.
+ */
+@Repository
+public interface TrainingRatingsRepository extends MongoRepository<TrainingRatings, Long>,
+		CustomTrainingRatingsRepository {
+}
@@ -0,0 +1,117 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBObject;
+import com.pb.lunchandlearn.domain.FeedBack;
+import com.pb.lunchandlearn.domain.TrainingRatings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.*;
+
+public class TrainingRatingsRepositoryImpl implements CustomTrainingRatingsRepository {
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	/**
+	 * Adds the feedbacks to the summaries of their trainings, one $inc upsert per training.
+	 */
+	@Override
+	public void addRatings(List<FeedBack> feedBacks) {
+		Map<Long, Map<String, Long>> increments = new LinkedHashMap<>();
+		for (FeedBack feedBack : feedBacks) {
+			Map<String, Long> trainingIncrements = increments.get(feedBack.getParentId());
+			if (trainingIncrements == null) {
+				trainingIncrements = new HashMap<>();
+				increments.put(feedBack.getParentId(), trainingIncrements);
+			}
+			addIncrements(feedBack, trainingIncrements);
+		}
+		if (increments.isEmpty()) {
+			return;
+		}
+		BulkWriteOperation bulkWrite = mongoTemplate.getCollection(
+				mongoTemplate.getCollectionName(TrainingRatings.class)).initializeUnorderedBulkOperation();
+		Date updatedOn = new Date();
+		for (Map.Entry<Long, Map<String, Long>> entry : increments.entrySet()) {
+			DBObject update = new BasicDBObject("$inc", new BasicDBObject(entry.getValue()))
+					.append("$set", new BasicDBObject("updatedOn", updatedOn));
+			bulkWrite.find(new BasicDBObject("_id", entry.getKey())).upsert().updateOne(update);
+		}
+		bulkWrite.execute();
+	}
+
+	/**
+	 * Replaces the summary of the training with one computed from all its feedbacks.
+	 */
+	@Override
+	public void replaceRatings(Long trainingId, List<FeedBack> feedBacks) {
+		Map<String, Long> totals = new HashMap<>();
+		for (FeedBack feedBack : feedBacks) {
+			addIncrements(feedBack, totals);
+		}
+		DBObject document = new BasicDBObject("_id", trainingId);
+		for (Map.Entry<String, Long> entry : totals.entrySet()) {
+			put(document, entry.getKey().split("\\."), entry.getValue());
+		}
+		document.put("updatedOn", new Date());
+		mongoTemplate.getCollection(mongoTemplate.getCollectionName(TrainingRatings.class))
+				.update(new BasicDBObject("_id", trainingId), document, true, false);
+	}
+
+	//dotted field paths of the summary with the amounts the feedback adds to them
+	private static void addIncrements(FeedBack feedBack, Map<String, Long> increments) {
+		add(increments, "count", 1);
+		if (feedBack.getRatings() == null) {
+			return;
+		}
+		for (Map.Entry<String, Integer> rating : feedBack.getRatings().entrySet()) {
+			if (!TrainingRatings.isValidRating(rating.getKey(), rating.getValue())) {
+				continue;
+			}
+			String path = "ratings." + rating.getKey() + ".";
+			long point = rating.getValue();
+			add(increments, path + "count", 1);
+			add(increments, path + "sum", point);
+			add(increments, path + "sumOfSquares", point * point);
+			add(increments, path + "histogram." + point, 1);
+		}
+	}
+
+	/**
+	 * Names of the ratings given in any feedback, read from the summaries.
+	 */
+	@Override
+	public Set<String> findRatingNames() {
+		Query query = new Query();
+		query.fields().include("ratings");
+		Set<String> ratingNames = new TreeSet<>();
+		for (DBObject summary : mongoTemplate.find(query, DBObject.class,
+				mongoTemplate.getCollectionName(TrainingRatings.class))) {
+			DBObject ratings = (DBObject) summary.get("ratings");
+			if (ratings != null) {
+				ratingNames.addAll(ratings.keySet());
+			}
+		}
+		return ratingNames;
+	}
+
+	private static void add(Map<String, Long> increments, String path, long amount) {
+		Long current = increments.get(path);
+		increments.put(path, current == null ? amount : current + amount);
+	}
+
+	private static void put(DBObject document, String[] path, Long value) {
+		for (int index = 0; index < path.length - 1; ++index) {
+			DBObject child = (DBObject) document.get(path[index]);
+			if (child == null) {
+				child = new BasicDBObject();
+				document.put(path[index], child);
+			}
+			document = child;
+		}
+		document.put(path[path.length - 1], value);
+	}
+}
@@ -33,8 +33,11 @@ public interface TrainingRepository extends MongoRepository<Training, String>, C
 	@Query(value="{ 'id' : ?0 }", fields="{ 'name' : 1, likesCount: 1, 'status': 1}")
 	Training findByTheTrainingsId(Long trainingId);
 
-	@Query(fields = "{'trainees': 1}")
+	@Query(fields = "{'trainees': 1, 'archived': 1}")
 	Training findTraineesById(Long trainingId);
 
 	Training getStatusById(Long trainingId);
+
+	@Query(value="{ 'id' : ?0 }", fields="{ 'version' : 1, 'lastModifiedOn' : 1, 'archived' : 1}")
+	Training findVersionById(Long trainingId);
 }
\ No newline at end of file
@@ -8,20 +8,23 @@ import com.mongodb.gridfs.GridFSFile;
 import com.pb.lunchandlearn.config.LikeType;
 import com.pb.lunchandlearn.config.SecuredUser;
 import com.pb.lunchandlearn.domain.*;
+import com.pb.lunchandlearn.exception.InvalidOperationException;
 import com.pb.lunchandlearn.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.DocumentCallbackHandler;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.mongodb.gridfs.GridFsOperations;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereMetaData;
@@ -34,30 +37,63 @@ public class TrainingRepositoryImpl implements CustomTrainingRepository {
 	private MongoTemplate mongoTemplate;
 	@Autowired
 	private GridFsOperations gridFsOperations;
+	@Autowired
+	private ReadModelMetrics readModelMetrics;
 
 	private final String trainingCollectionName = "trainings";
+	private final String trainingArchiveCollectionName = "trainingsArchive";
+	//token set with a status change, cleared once topics, trainers and mails have been updated for that change
+	private static final String STATUS_FANOUT_PENDING = "statusFanoutPending";
+
+	//maintained by the server through their own operations, a PUT of the training never writes them
+	private static final Set<String> TRAINING_SERVER_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"score", "likedBy", "likesCount", "commentsCount", "attachmentInfos", "feedBackList", "status", "archived",
+			"createDateTime", "createdByGuid", "createdByName", "lastModifiedByGuid", "lastModifiedByName",
+			"lastModifiedOn", STATUS_FANOUT_PENDING)));
 
+	//fields an archived training keeps in the hot collection, enough for listings and searches
+	private static final Set<String> ARCHIVE_STUB_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"_id", "_class", "name", "status", "scheduledOn", "createDateTime", "topics", "trainers", "likesCount",
+			"commentsCount", "duration", "location", "createdByGuid", "createdByName", "lastModifiedOn", "version")));
+
+	/**
+	 * Adds or removes the like of the user in one write, a like already there or a dislike of a training not liked
+	 * leaves it alone. Archived trainings keep no likedBy, so they can't be liked.
+	 */
 	@Override
 	public Training updateLikes(Long trainingId, LikeType type, String userName, String userGuid) {
-		Query query = new Query(where("id").is(trainingId));
-		Training training = mongoTemplate.findOne(query, Training.class);
+		String likedByKey = "likedBy." + userGuid;
+		Query query = new Query(where("id").is(trainingId).and("archived").ne(true));
+		Update update = new Update().inc("version", 1);
 		switch (type) {
 			case LIKE:
-				if (training.getLikedBy() == null) {
-					training.setLikedBy(new HashMap<>(1));
-				}
-				training.getLikedBy().put(userGuid, userName);
+				query.addCriteria(where(likedByKey).exists(false));
+				update.set(likedByKey, userName).inc("likesCount", 1);
 				break;
 			case DISLIKE:
-				training.getLikedBy().remove(userGuid);
+				query.addCriteria(where(likedByKey).exists(true));
+				update.unset(likedByKey).inc("likesCount", -1);
 				break;
 		}
-		training.setLikesCount(training.getLikedBy().size());
-		mongoTemplate.updateFirst(query, Update.update("likedBy", training.getLikedBy()).
-				set("likesCount", training.getLikesCount()), Training.class);
+		Training training = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+				Training.class);
+		if (training == null) {
+			training = mongoTemplate.findOne(new Query(where("id").is(trainingId)), Training.class);
+			if (training == null) {
+				throw new ResourceNotFoundException("Training does not exist");
+			}
+			if (training.isArchived()) {
+				throw new InvalidOperationException("Archived training can't be modified");
+			}
+		}
 		return training;
 	}
 
+	@Override
+	public boolean isArchived(Long trainingId) {
+		return mongoTemplate.exists(new Query(where("id").is(trainingId).and("archived").is(true)), Training.class);
+	}
+
 	@Override
 	public List<Training> getAllByIds(List<Long> trainingIds) {
 		return mongoTemplate.find(new Query(where("id").in(trainingIds)), Training.class);
@@ -65,13 +101,37 @@ public class TrainingRepositoryImpl implements CustomTrainingRepository {
 
 	@Override
 	public boolean updateByFieldName(Long trainingId, SimpleFieldEntry simpleFieldEntry, SecuredUser user) {
-		WriteResult result = mongoTemplate.updateFirst(new Query(where("id").is(trainingId)),
-				Update.update(simpleFieldEntry.getName(), simpleFieldEntry.getValue()).
-						set("lastModifiedByGuid", user.getGuid()).set("lastModifiedByName", user.getUsername())
-						.set("lastModifiedOn", new Date()), Training.class);
+		return updateByFieldNames(trainingId, Collections.singletonList(simpleFieldEntry), user);
+	}
+
+	@Override
+	public boolean updateByFieldNames(Long trainingId, List<SimpleFieldEntry> simpleFieldEntries, SecuredUser user) {
+		Update update = new Update();
+		for (SimpleFieldEntry simpleFieldEntry : simpleFieldEntries) {
+			update.set(simpleFieldEntry.getName(), simpleFieldEntry.getValue());
+		}
+		WriteResult result = mongoTemplate.updateFirst(new Query(where("id").is(trainingId).and("archived").ne(true)),
+				update.set("lastModifiedByGuid", user.getGuid()).set("lastModifiedByName", user.getUsername())
+						.set("lastModifiedOn", new Date()).inc("version", 1), Training.class);
 		return result.getN() == 1;
 	}
 
+	@Override
+	public Set<String> updateChangedFields(Training training, SecuredUser user) {
+		DBObject stored = mongoTemplate.findOne(new Query(where("_id").is(training.getId())), DBObject.class,
+				trainingCollectionName);
+		if (stored == null) {
+			throw new ResourceNotFoundException("Training does not exist");
+		}
+		if (Boolean.TRUE.equals(stored.get("archived"))) {
+			throw new InvalidOperationException("Archived training can't be modified");
+		}
+		Update update = new Update().set("lastModifiedByGuid", user.getGuid()).set("lastModifiedByName", user.getUsername())
+				.set("lastModifiedOn", new Date());
+		return DiffUpdateSupport.update(mongoTemplate, trainingCollectionName, stored, training, training.getVersion(),
+				TRAINING_SERVER_FIELDS, update);
+	}
+
 	@Override
 	public Training findTrainingById(Long id) {
 		Query query = new Query(where("id").is(id));
@@ -87,55 +147,98 @@ public class TrainingRepositoryImpl implements CustomTrainingRepository {
 	}
 
 	@Override
-	public Training getCommentsById(Long trainingId) {
-		Query query = Query.query(where("id").is(trainingId));
-		query.fields().include("comments").exclude("id");
-		return mongoTemplate.findOne(query, Training.class);
+	public boolean updateCommentsCount(Long trainingId, int delta) {
+		Query query = Query.query(where("id").is(trainingId).and("archived").ne(true));
+		Update update = new Update().inc("commentsCount", delta).inc("version", 1);
+		return mongoTemplate.updateFirst(query, update, Training.class).getN() == 1;
 	}
 
+	/**
+	 * Moves comments embedded in trainings to the comments collection, keeping their ids. Comments are saved
+	 * before they are unset from the training, so an interrupted run is completed by the next one.
+	 */
 	@Override
-	public Comment addComment(Long trainingId, Comment comment) {
-		Query query = Query.query(where("id").is(trainingId));
-		Update update = new Update().push("comments", comment);
-		WriteResult result = mongoTemplate.updateFirst(query, update, Training.class);
-		if (result.getN() == 1) {
-			return comment;
+	public int moveEmbeddedComments() {
+		Query query = new Query(where("comments").exists(true));
+		query.fields().include("comments");
+		int moved = 0;
+		for (DBObject training : mongoTemplate.find(query, DBObject.class, trainingCollectionName)) {
+			Long trainingId = (Long) training.get("_id");
+			int count = 0;
+			Object comments = training.get("comments");
+			if (comments instanceof List) {
+				for (Object comment : (List) comments) {
+					count += saveEmbeddedComment((DBObject) comment, trainingId, null);
+				}
+			}
+			mongoTemplate.updateFirst(new Query(where("_id").is(trainingId)), new Update().unset("comments")
+					.set("commentsCount", count).inc("version", 1), trainingCollectionName);
+			moved += count;
 		}
-		return null;
+		return moved;
 	}
 
+	/**
+	 * Copies the schedule of the trainings into the training entries embedded in topics and employees before entries
+	 * had one. Entries of trainings without a schedule get a null one, so they are not looked at again.
+	 */
 	@Override
-	public Comment addCommentReply(Comment comment, Long trainingId, Long parentCommentId) {
-		Query query = Query.query(where("id").is(trainingId).and("comments.id").is(parentCommentId));
-		Update update = new Update().push("comments.$.replies", comment);
-		WriteResult result = mongoTemplate.updateFirst(query, update, Training.class);
-		if (result.getN() == 1) {
-			return comment;
+	public int backfillEmbeddedScheduledOn() {
+		int filled = backfillScheduledOn("topics", "trainings");
+		for (String arrayField : Arrays.asList("trainingsInterestedIn", "trainingsAttended", "trainingsImparted")) {
+			filled += backfillScheduledOn("employees", arrayField);
 		}
-		return null;
+		return filled;
 	}
 
-	@Override
-	public boolean removeCommentReply(Long trainingId, Long commentId, Long replyCommentId) {
-		Query query = Query.query(where("id").is(trainingId).and("comments.id").is(commentId));
-		Training trn = mongoTemplate.findOne(query, Training.class);
-		Update update = new Update().pull("comments.$.replies", new BasicDBObject("id", replyCommentId));
-		WriteResult result = mongoTemplate.updateFirst(query, update, Training.class);
-		if (result.getN() == 0) {
-			return false;
+	private int backfillScheduledOn(String collectionName, String arrayField) {
+		Query query = new Query(where(arrayField).elemMatch(where("scheduledOn").exists(false)));
+		query.fields().include(arrayField);
+		Set<Long> trainingIds = new HashSet<>();
+		for (DBObject document : mongoTemplate.find(query, DBObject.class, collectionName)) {
+			Object entries = document.get(arrayField);
+			if (entries instanceof List) {
+				for (Object entry : (List) entries) {
+					if (!((DBObject) entry).containsField("scheduledOn")) {
+						trainingIds.add(((Number) ((DBObject) entry).get("_id")).longValue());
+					}
+				}
+			}
 		}
-		return true;
+		if (trainingIds.isEmpty()) {
+			return 0;
+		}
+		//archived trainings keep their schedule in the hot collection
+		Query trainingsQuery = new Query(where("_id").in(trainingIds));
+		trainingsQuery.fields().include("scheduledOn");
+		Map<Long, Date> schedules = new HashMap<>();
+		for (DBObject training : mongoTemplate.find(trainingsQuery, DBObject.class, trainingCollectionName)) {
+			schedules.put(((Number) training.get("_id")).longValue(), (Date) training.get("scheduledOn"));
+		}
+		int filled = 0;
+		for (Long trainingId : trainingIds) {
+			Query entryQuery = new Query(where(arrayField).elemMatch(where("_id").is(trainingId)
+					.and("scheduledOn").exists(false)));
+			filled += mongoTemplate.updateMulti(entryQuery, new Update().set(arrayField + ".$.scheduledOn",
+					schedules.get(trainingId)).inc("version", 1), collectionName).getN();
+		}
+		return filled;
 	}
 
-	@Override
-	public boolean removeComment(Long trainingId, Long commentId) {
-		Query query = Query.query(where("id").is(trainingId));
-		Update update = new Update().pull("comments", new BasicDBObject("id", commentId));
-		int result = mongoTemplate.updateFirst(query, update, Training.class).getN();
-		if (result == 0) {
-			return false;
+	private int saveEmbeddedComment(DBObject embedded, Long trainingId, Long parentId) {
+		Object replies = embedded.removeField("replies");
+		Comment comment = mongoTemplate.getConverter().read(Comment.class, embedded);
+		comment.setTrainingId(trainingId);
+		comment.setParentId(parentId);
+		int count = 1;
+		if (replies instanceof List) {
+			comment.setRepliesCount(((List) replies).size());
+			for (Object reply : (List) replies) {
+				count += saveEmbeddedComment((DBObject) reply, trainingId, comment.getId());
+			}
 		}
-		return true;
+		mongoTemplate.save(comment);
+		return count;
 	}
 
 	@Override
@@ -155,20 +258,83 @@ public class TrainingRepositoryImpl implements CustomTrainingRepository {
 		return mongoTemplate.findOne(query, Training.class);
 	}
 
+	/**
+	 * Moves the training to the status only from the statuses allowed before it, together with the other entries,
+	 * and marks the status fan-out pending with a new token in the same write.
+	 * @return header of the updated training, null when the training does not exist or can't move to the status
+	 */
 	@Override
-	public Training setTrainingStatus(Long trainingId, TrainingStatus trainingStatus) {
-		Query query = Query.query(where("id").is(trainingId));
-		query.fields().include("status");
-		if(mongoTemplate.updateFirst(query, new Update().set("status", trainingStatus), Training.class).getN() == 0) {
-			return  null;
+	public Training updateStatus(Long trainingId, TrainingStatus status, List<SimpleFieldEntry> simpleFieldEntries,
+								 SecuredUser user) {
+		Query query = Query.query(where("id").is(trainingId).and("status").in(status.getAllowedPrevious())
+				.and("archived").ne(true));
+		includeHeader(query);
+		Update update = new Update();
+		for (SimpleFieldEntry simpleFieldEntry : simpleFieldEntries) {
+			if (!"status".equals(simpleFieldEntry.getName())) {
+				update.set(simpleFieldEntry.getName(), simpleFieldEntry.getValue());
+			}
 		}
+		update.set("status", status).set(STATUS_FANOUT_PENDING, UUID.randomUUID().toString()).set("lastModifiedByGuid", user.getGuid())
+				.set("lastModifiedByName", user.getUsername()).set("lastModifiedOn", new Date()).inc("version", 1);
+		return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+				Training.class);
+	}
+
+	/**
+	 * @return token of the pending fan-out, true for changes marked before tokens, null when nothing is pending
+	 */
+	@Override
+	public Object findStatusFanoutToken(Long trainingId) {
+		Query query = Query.query(where("id").is(trainingId).and(STATUS_FANOUT_PENDING).exists(true));
+		query.fields().include(STATUS_FANOUT_PENDING);
+		DBObject training = mongoTemplate.findOne(query, DBObject.class, trainingCollectionName);
+		return training == null ? null : training.get(STATUS_FANOUT_PENDING);
+	}
+
+	/**
+	 * @return header of the training while the fan-out of the token is still pending, null after a later change
+	 */
+	@Override
+	public Training loadPendingStatusFanout(Long trainingId, Object token) {
+		Query query = Query.query(where("id").is(trainingId).and(STATUS_FANOUT_PENDING).is(token));
+		includeHeader(query);
 		return mongoTemplate.findOne(query, Training.class);
 	}
 
 	@Override
-	public boolean addFeedBack(FeedBack feedBack) {
-		Query query = Query.query(where("id").is(feedBack.getParentId()));
-		Update update = new Update().addToSet("feedbackList", feedBack.getId());
+	public List<Long> findPendingStatusFanoutIds(Date modifiedBefore, int limit) {
+		Query query = Query.query(where(STATUS_FANOUT_PENDING).exists(true).and("lastModifiedOn").lt(modifiedBefore))
+				.limit(limit);
+		query.fields().include("id");
+		List<Long> ids = new ArrayList<>(limit);
+		for (Training training : mongoTemplate.find(query, Training.class)) {
+			ids.add(training.getId());
+		}
+		return ids;
+	}
+
+	/**
+	 * Clears the pending fan-out only if it is still the one of the token, a later status change keeps it pending
+	 * for its own fan-out while other writes to the training don't matter.
+	 */
+	@Override
+	public boolean clearStatusFanout(Long trainingId, Object token) {
+		Query query = Query.query(where("id").is(trainingId).and(STATUS_FANOUT_PENDING).is(token));
+		return mongoTemplate.updateFirst(query, new Update().unset(STATUS_FANOUT_PENDING), Training.class).getN() == 1;
+	}
+
+	private static void includeHeader(Query query) {
+		for (String field : TrainingReadModel.HEADER.getFields()) {
+			query.fields().include(field);
+		}
+		query.fields().include("version");
+	}
+
+	@Override
+	public boolean addFeedBacks(Long trainingId, List<Long> feedbackIds) {
+		Query query = Query.query(where("id").is(trainingId));
+		Update update = new Update().addToSet("feedBackList").each(feedbackIds.toArray()).inc("version", 1);
 		int updateCount = mongoTemplate.updateFirst(query, update, Training.class).getN();
 		if (updateCount == 1) {
 			return true;
@@ -176,6 +342,206 @@ public class TrainingRepositoryImpl implements CustomTrainingRepository {
 		return false;
 	}
 
+	@Override
+	public DBObject findFieldsById(Long trainingId, Set<String> fields) {
+		Set<String> hotFields = new HashSet<>(fields);
+		hotFields.add("archived");
+		DBObject training = FieldProjectionSupport.findOne(mongoTemplate, trainingCollectionName, trainingId, hotFields);
+		if (training != null && Boolean.TRUE.equals(training.get("archived"))) {
+			training = FieldProjectionSupport.findOne(mongoTemplate, trainingArchiveCollectionName, trainingId, fields);
+		}
+		if (training != null && !fields.contains("archived")) {
+			training.removeField("archived");
+		}
+		return training;
+	}
+
+	@Override
+	public Training findPartsById(Long trainingId, Set<String> fields) {
+		Query query = Query.query(where("id").is(trainingId));
+		for (String field : fields) {
+			query.fields().include(field);
+		}
+		if (!fields.isEmpty()) {
+			query.fields().include("archived");
+		}
+		return fromArchive(query, mongoTemplate.findOne(query, Training.class));
+	}
+
+	@Override
+	public Training findReadModelById(Long trainingId, TrainingReadModel readModel) {
+		Query query = Query.query(where("_id").is(trainingId));
+		for (String field : readModel.getFields()) {
+			query.fields().include(field);
+		}
+		query.fields().include("archived");
+		DBObject training = mongoTemplate.findOne(query, DBObject.class, trainingCollectionName);
+		if (training != null && Boolean.TRUE.equals(training.get("archived"))) {
+			training = mongoTemplate.findOne(query, DBObject.class, trainingArchiveCollectionName);
+			if (training != null) {
+				training.put("archived", true);
+			}
+		}
+		if (training == null) {
+			return null;
+		}
+		readModelMetrics.record("Training" + readModel.name(), training);
+		return mongoTemplate.getConverter().read(Training.class, training);
+	}
+
+	/**
+	 * Reads every training through the read model, archived ones from the archive.
+	 */
+	@Override
+	public List<Training> findAllReadModels(TrainingReadModel readModel) {
+		Query query = new Query(where("archived").ne(true));
+		Query archiveQuery = new Query();
+		for (String field : readModel.getFields()) {
+			query.fields().include(field);
+			archiveQuery.fields().include(field);
+		}
+		List<Training> trainings = new ArrayList<>();
+		for (DBObject training : mongoTemplate.find(query, DBObject.class, trainingCollectionName)) {
+			trainings.add(mongoTemplate.getConverter().read(Training.class, training));
+		}
+		for (DBObject training : mongoTemplate.find(archiveQuery, DBObject.class, trainingArchiveCollectionName)) {
+			training.put("archived", true);
+			trainings.add(mongoTemplate.getConverter().read(Training.class, training));
+		}
+		return trainings;
+	}
+
+	@Override
+	public Training findArchivedById(Long trainingId) {
+		//same exclusions as TrainingRepository.findById, the archived copy is served in its place
+		Query query = Query.query(where("id").is(trainingId));
+		query.fields().exclude("comments").exclude("attachmentInfos").exclude("feedBackList").exclude("score");
+		Training archived = mongoTemplate.findOne(query, Training.class, trainingArchiveCollectionName);
+		if (archived != null) {
+			archived.setArchived(true);
+		}
+		return archived;
+	}
+
+	@Override
+	public List<Long> findArchivableIds(List<TrainingStatus> statuses, Date scheduledBefore, int limit) {
+		Query query = Query.query(where("status").in(statuses).and("scheduledOn").lt(scheduledBefore)
+				.and("archived").ne(true)).limit(limit);
+		query.fields().include("id");
+		List<Long> ids = new ArrayList<>(limit);
+		for (Training training : mongoTemplate.find(query, Training.class)) {
+			ids.add(training.getId());
+		}
+		return ids;
+	}
+
+	@Override
+	public List<Long> findIdsByStatus(TrainingStatus status) {
+		Query query = Query.query(where("status").is(status));
+		query.fields().include("id");
+		List<Long> ids = new ArrayList<>();
+		for (Training training : mongoTemplate.find(query, Training.class)) {
+			ids.add(training.getId());
+		}
+		return ids;
+	}
+
+	@Override
+	public List<Long> findIdsWithTopics() {
+		Query query = Query.query(where("topics").exists(true));
+		query.fields().include("id");
+		List<Long> ids = new ArrayList<>();
+		for (Training training : mongoTemplate.find(query, Training.class)) {
+			ids.add(training.getId());
+		}
+		return ids;
+	}
+
+	/**
+	 * Copies the training without empty fields to the archive, then strips it down to a stub. The stub is written
+	 * only if the training was not modified in between, otherwise the copy is removed again and a later run archives
+	 * the training. The copy goes first so a failure in between never leaves a stub without it.
+	 */
+	@Override
+	public boolean archiveTraining(Long trainingId) {
+		DBObject training = mongoTemplate.findOne(new Query(where("_id").is(trainingId).and("archived").ne(true)),
+				DBObject.class, trainingCollectionName);
+		if (training == null) {
+			return false;
+		}
+		DBObject archive = new BasicDBObject();
+		Update update = new Update().set("archived", true).inc("version", 1);
+		for (String key : training.keySet()) {
+			Object value = training.get(key);
+			if (!"score".equals(key) && !isEmptyValue(value)) {
+				archive.put(key, value);
+			}
+			if (!ARCHIVE_STUB_FIELDS.contains(key)) {
+				update.unset(key);
+			}
+		}
+		Date archivedOn = new Date();
+		archive.put("archivedOn", archivedOn);
+		mongoTemplate.save(archive, trainingArchiveCollectionName);
+		Query query = new Query(where("_id").is(trainingId).and("version").is(training.get("version")));
+		if (mongoTemplate.updateFirst(query, update, trainingCollectionName).getN() == 1) {
+			return true;
+		}
+		//modified in between, a stale copy would be exported next to the training, unless another run archived it
+		if (!mongoTemplate.exists(new Query(where("_id").is(trainingId).and("archived").is(true)),
+				trainingCollectionName)) {
+			mongoTemplate.remove(new Query(where("_id").is(trainingId).and("archivedOn").is(archivedOn)),
+					trainingArchiveCollectionName);
+		}
+		return false;
+	}
+
+	/**
+	 * Lowest and highest id of the trainings, archived ones included, null when there are none.
+	 */
+	@Override
+	public long[] findExportIdBounds() {
+		return ExportCursorSupport.merge(
+				ExportCursorSupport.findIdBounds(mongoTemplate, trainingCollectionName, where("archived").ne(true)),
+				ExportCursorSupport.findIdBounds(mongoTemplate, trainingArchiveCollectionName, null));
+	}
+
+	/**
+	 * Streams the trainings in the id range, of the status when given, the hot and the archived ones merged in id
+	 * order.
+	 */
+	@Override
+	public void exportRange(long fromId, long toId, TrainingStatus status, Set<String> fields,
+							DocumentCallbackHandler handler) {
+		ExportCursorSupport.forEachInRange(mongoTemplate, trainingCollectionName, status == null ?
+						where("archived").ne(true) : where("archived").ne(true).and("status").is(status.name()),
+				trainingArchiveCollectionName, status == null ? null : where("status").is(status.name()), fields,
+				fromId, toId, handler);
+	}
+
+	private static boolean isEmptyValue(Object value) {
+		return value == null || (value instanceof Map && ((Map) value).isEmpty()) ||
+				(value instanceof Collection && ((Collection) value).isEmpty()) ||
+				(value instanceof String && ((String) value).isEmpty());
+	}
+
+	private Training fromArchive(Query query, Training training) {
+		if (training == null || !training.isArchived()) {
+			return training;
+		}
+		Training archived = mongoTemplate.findOne(query, Training.class, trainingArchiveCollectionName);
+		if (archived != null) {
+			archived.setArchived(true);
+		}
+		return archived;
+	}
+
+	@Override
+	public Page<DBObject> findAllFields(TextCriteria textCriteria, TrainingStatus status, Set<String> fields, Pageable pageable) {
+		return FieldProjectionSupport.findPage(mongoTemplate, trainingCollectionName,
+				status == null ? null : where("status").is(status.name()), textCriteria, fields, pageable);
+	}
+
 	@Override
 	public FileAttachmentInfo getAttachmentFileInfoWithFile(Long trainingId, String fileName) throws IOException {
 		Query query = Query.query(whereMetaData().is(new BasicDBObject("trainingId", trainingId)).
@@ -199,8 +565,8 @@ public class TrainingRepositoryImpl implements CustomTrainingRepository {
 
 	@Override
 	public boolean addFileAttachmentInfo(Long trainingId, FileAttachmentInfo fileInfo) {
-		Query query = Query.query(where("id").is(trainingId));
-		Update update = new Update().addToSet("attachmentInfos", fileInfo);
+		Query query = Query.query(where("id").is(trainingId).and("archived").ne(true));
+		Update update = new Update().addToSet("attachmentInfos", fileInfo).inc("version", 1);
 		int updateCount = mongoTemplate.updateFirst(query, update, Training.class).getN();
 		if (updateCount == 1) {
 			return true;
@@ -218,8 +584,9 @@ public class TrainingRepositoryImpl implements CustomTrainingRepository {
 	@Override
 	public List<FileAttachmentInfo> getAttachedFiles(Long trainingId) {
 		Query query = Query.query(where("id").is(trainingId));
-		query.fields().exclude("id").include("attachmentInfos.fileName").include("attachmentInfos.size");
-		Training training = mongoTemplate.findOne(query, Training.class);
+		query.fields().exclude("id").include("attachmentInfos.fileName").include("attachmentInfos.size")
+				.include("archived");
+		Training training = fromArchive(query, mongoTemplate.findOne(query, Training.class));
 		if (training != null) {
 			return training.getAttachmentInfos();
 		}
@@ -231,8 +598,9 @@ public class TrainingRepositoryImpl implements CustomTrainingRepository {
 		Query query = Query.query(whereMetaData().is(new BasicDBObject("trainingId", trainingId)).
 				and("filename").is(fileName));
 		gridFsOperations.delete(query);
-		Update update = new Update().pull("attachmentInfos", new BasicDBObject("fileName", fileName));
-		int result = mongoTemplate.updateFirst(Query.query(where("id").is(trainingId)), update, Training.class).getN();
+		Update update = new Update().pull("attachmentInfos", new BasicDBObject("fileName", fileName)).inc("version", 1);
+		int result = mongoTemplate.updateFirst(Query.query(where("id").is(trainingId).and("archived").ne(true)),
+				update, Training.class).getN();
 		if (result == 0) {
 			return false;
 		}
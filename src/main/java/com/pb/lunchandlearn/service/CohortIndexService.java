@@ -0,0 +1,330 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.domain.Employee;
+import com.pb.lunchandlearn.domain.Training;
+import com.pb.lunchandlearn.domain.TrainingReadModel;
+import com.pb.lunchandlearn.domain.TrainingStatus;
+import com.pb.lunchandlearn.exception.BadRequestException;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
+import com.pb.lunchandlearn.repository.EmployeeRepository;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import com.pb.lunchandlearn.utils.CommonUtil;
+import org.json.simple.JSONObject;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import javax.annotation.PostConstruct;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers cohort questions like "registered for training A but not B" or "interested in topic X but never attended
+ * it" from compressed bitmaps held in memory. Employees get a dense index on first sight, and there is a bitmap of
+ * the trainees of each training and of the employees knowing or interested in each topic. Trainings and employees
+ * are refreshed when they change, and the whole index is rebuilt nightly.
+ */
+@Service
+public class CohortIndexService {
+	//set references of a cohort query, kind:id
+	public static final String TRAINEES = "training";
+	public static final String TOPIC_ATTENDED = "topicAttended";
+	public static final String TOPIC_INTERESTED = "topicInterested";
+	public static final String TOPIC_KNOWN = "topicKnown";
+
+	private Logger logger = LoggerFactory.getLogger(CohortIndexService.class);
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Index index = new Index();
+	//refreshed while a rebuild runs, null otherwise
+	private Set<Long> pendingTrainingIds;
+	private Set<String> pendingGuids;
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@PostConstruct
+	public void init() {
+		rebuild();
+	}
+
+	/**
+	 * Builds a new index without holding the lock. Trainings and employees refreshed meanwhile are recorded and
+	 * replayed on the new index, the last of them under the lock swapping it in, so no refresh is lost.
+	 */
+	@Scheduled(cron = "${cohort.rebuildCron:0 15 3 * * *}")
+	public synchronized void rebuild() {
+		lock.writeLock().lock();
+		try {
+			pendingTrainingIds = new HashSet<>();
+			pendingGuids = new HashSet<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		try {
+			Index rebuilt = new Index();
+			for (Employee employee : employeeRepository.findAllTopicInterests()) {
+				rebuilt.setEmployee(employee.getGuid().toUpperCase(), employee);
+			}
+			for (Training training : trainingRepository.findAllReadModels(TrainingReadModel.COHORT)) {
+				rebuilt.setTraining(training.getId(), training);
+			}
+			rebuilt.optimize();
+			Set<Long> trainingIds;
+			Set<String> guids;
+			do {
+				lock.writeLock().lock();
+				try {
+					trainingIds = pendingTrainingIds;
+					guids = pendingGuids;
+					pendingTrainingIds = new HashSet<>();
+					pendingGuids = new HashSet<>();
+					if (trainingIds.isEmpty() && guids.isEmpty()) {
+						index = rebuilt;
+					}
+				} finally {
+					lock.writeLock().unlock();
+				}
+				for (Long trainingId : trainingIds) {
+					rebuilt.setTraining(trainingId, loadTraining(trainingId));
+				}
+				for (String guid : guids) {
+					rebuilt.setEmployee(guid, employeeRepository.loadTopicInterests(guid));
+				}
+			} while (!trainingIds.isEmpty() || !guids.isEmpty());
+			logger.info("Rebuilt cohort index of {} employees and {} trainings", rebuilt.employees.getCardinality(),
+					rebuilt.trainees.size());
+		} finally {
+			lock.writeLock().lock();
+			try {
+				pendingTrainingIds = null;
+				pendingGuids = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	public void refreshTraining(Long trainingId) {
+		Training training = loadTraining(trainingId);
+		lock.writeLock().lock();
+		try {
+			index.setTraining(trainingId, training);
+			if (pendingTrainingIds != null) {
+				pendingTrainingIds.add(trainingId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void refreshEmployee(String empGuid) {
+		String guid = empGuid.toUpperCase();
+		Employee employee = employeeRepository.loadTopicInterests(guid);
+		lock.writeLock().lock();
+		try {
+			index.setEmployee(guid, employee);
+			if (pendingGuids != null) {
+				pendingGuids.add(guid);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private Training loadTraining(Long trainingId) {
+		try {
+			return trainingRepository.findReadModelById(trainingId, TrainingReadModel.COHORT);
+		} catch (ResourceNotFoundException exp) {
+			//the training has been removed
+			return null;
+		}
+	}
+
+	/**
+	 * Employees in all the sets of allRefs and in any of anyRefs, but in none of noneRefs. Without allRefs and
+	 * anyRefs it starts from all employees.
+	 */
+	public JSONObject getCohort(List<String> allRefs, List<String> anyRefs, List<String> noneRefs,
+								Pageable pageable) {
+		List<String> guids = new ArrayList<>(pageable.getPageSize());
+		int count;
+		lock.readLock().lock();
+		try {
+			RoaringBitmap cohort = null;
+			if (allRefs != null) {
+				for (String ref : allRefs) {
+					cohort = cohort == null ? index.getSet(ref).clone() : RoaringBitmap.and(cohort, index.getSet(ref));
+				}
+			}
+			if (!CollectionUtils.isEmpty(anyRefs)) {
+				RoaringBitmap union = new RoaringBitmap();
+				for (String ref : anyRefs) {
+					union.or(index.getSet(ref));
+				}
+				cohort = cohort == null ? union : RoaringBitmap.and(cohort, union);
+			}
+			if (cohort == null) {
+				cohort = index.employees.clone();
+			} else {
+				//trainees removed from the employees since their training was indexed
+				cohort.and(index.employees);
+			}
+			if (noneRefs != null) {
+				for (String ref : noneRefs) {
+					cohort.andNot(index.getSet(ref));
+				}
+			}
+			count = cohort.getCardinality();
+			IntIterator iterator = cohort.getIntIterator();
+			for (int position = 0; iterator.hasNext() && guids.size() < pageable.getPageSize(); ++position) {
+				int employeeIndex = iterator.next();
+				if (position >= pageable.getOffset()) {
+					guids.add(index.guids.get(employeeIndex));
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		JSONObject objCohort = new JSONObject();
+		objCohort.put("count", count);
+		objCohort.put("employees", guids.isEmpty() ? CommonUtil.getEmployeesGuidName(null) :
+				CommonUtil.getEmployeesGuidName(employeeRepository.findAllByGuidIn(guids)));
+		return objCohort;
+	}
+
+	//not thread safe, guarded by the lock of the service
+	private static final class Index {
+		private final Map<String, Integer> employeeIndexes = new HashMap<>();
+		private final List<String> guids = new ArrayList<>();
+		private final RoaringBitmap employees = new RoaringBitmap();
+		private final Map<Long, RoaringBitmap> trainees = new HashMap<>();
+		//topics of the completed trainings, attended by their trainees
+		private final Map<Long, Set<Long>> trainingTopics = new HashMap<>();
+		private final Map<Long, RoaringBitmap> topicsInterested = new HashMap<>();
+		private final Map<Long, RoaringBitmap> topicsKnown = new HashMap<>();
+
+		private int getEmployeeIndex(String guid) {
+			Integer employeeIndex = employeeIndexes.get(guid);
+			if (employeeIndex == null) {
+				employeeIndex = guids.size();
+				guids.add(guid);
+				employeeIndexes.put(guid, employeeIndex);
+			}
+			return employeeIndex;
+		}
+
+		private void setTraining(Long trainingId, Training training) {
+			if (training == null) {
+				trainees.remove(trainingId);
+				trainingTopics.remove(trainingId);
+				return;
+			}
+			RoaringBitmap bitmap = new RoaringBitmap();
+			if (training.getTrainees() != null) {
+				for (String guid : training.getTrainees().keySet()) {
+					bitmap.add(getEmployeeIndex(guid.toUpperCase()));
+				}
+			}
+			trainees.put(trainingId, bitmap);
+			if (TrainingStatus.COMPLETED == training.getStatus() && training.getTopics() != null) {
+				trainingTopics.put(trainingId, new HashSet<>(training.getTopics().keySet()));
+			} else {
+				trainingTopics.remove(trainingId);
+			}
+		}
+
+		private void setEmployee(String guid, Employee employee) {
+			boolean indexed = employeeIndexes.containsKey(guid);
+			int employeeIndex = getEmployeeIndex(guid);
+			if (indexed) {
+				for (RoaringBitmap bitmap : topicsInterested.values()) {
+					bitmap.remove(employeeIndex);
+				}
+				for (RoaringBitmap bitmap : topicsKnown.values()) {
+					bitmap.remove(employeeIndex);
+				}
+			}
+			if (employee == null) {
+				employees.remove(employeeIndex);
+				return;
+			}
+			employees.add(employeeIndex);
+			addTopics(employeeIndex, employee.getTopicsInterestedIn(), topicsInterested);
+			addTopics(employeeIndex, employee.getTopicsKnown(), topicsKnown);
+		}
+
+		private static void addTopics(int employeeIndex, Map<Long, String> topics,
+									  Map<Long, RoaringBitmap> topicBitmaps) {
+			if (topics == null) {
+				return;
+			}
+			for (Long topicId : topics.keySet()) {
+				RoaringBitmap bitmap = topicBitmaps.get(topicId);
+				if (bitmap == null) {
+					bitmap = new RoaringBitmap();
+					topicBitmaps.put(topicId, bitmap);
+				}
+				bitmap.add(employeeIndex);
+			}
+		}
+
+		private RoaringBitmap getSet(String ref) {
+			int separator = ref == null ? -1 : ref.indexOf(':');
+			Long id;
+			try {
+				id = separator < 0 ? null : Long.valueOf(ref.substring(separator + 1));
+			} catch (NumberFormatException exp) {
+				id = null;
+			}
+			if (id == null) {
+				throw new BadRequestException(MessageFormat.format("Invalid cohort set {0}", ref));
+			}
+			RoaringBitmap bitmap;
+			switch (ref.substring(0, separator)) {
+				case TRAINEES:
+					bitmap = trainees.get(id);
+					break;
+				case TOPIC_INTERESTED:
+					bitmap = topicsInterested.get(id);
+					break;
+				case TOPIC_KNOWN:
+					bitmap = topicsKnown.get(id);
+					break;
+				case TOPIC_ATTENDED:
+					bitmap = new RoaringBitmap();
+					for (Map.Entry<Long, Set<Long>> entry : trainingTopics.entrySet()) {
+						if (entry.getValue().contains(id)) {
+							bitmap.or(trainees.get(entry.getKey()));
+						}
+					}
+					break;
+				default:
+					throw new BadRequestException(MessageFormat.format("Invalid cohort set {0}", ref));
+			}
+			return bitmap == null ? new RoaringBitmap() : bitmap;
+		}
+
+		private void optimize() {
+			for (RoaringBitmap bitmap : trainees.values()) {
+				bitmap.runOptimize();
+			}
+			for (RoaringBitmap bitmap : topicsInterested.values()) {
+				bitmap.runOptimize();
+			}
+			for (RoaringBitmap bitmap : topicsKnown.values()) {
+				bitmap.runOptimize();
+			}
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.pb.lunchandlearn.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.lunchandlearn.domain.TrainingStatus;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Assembles the home page sections in parallel. Concurrent requests for the same dashboard share one
+ * computation, and the serialized payload is kept for a few seconds so the morning rush reads it from memory.
+ */
+@Service
+public class DashboardService {
+	private static final String HOME_DASHBOARD = "home";
+	private static final short THREAD_POOL_SIZE = 8;
+	private static final long ASSEMBLE_TIMEOUT_SECONDS = 30;
+
+	private Logger logger = LoggerFactory.getLogger(DashboardService.class);
+	private ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+	private final ConcurrentMap<String, FutureTask<byte[]>> inFlight = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, CachedPayload> payloads = new ConcurrentHashMap<>();
+
+	@Value("${dashboard.cacheTtlSeconds:30}")
+	private long cacheTtlSeconds;
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@Autowired
+	private TopicService topicService;
+
+	@Autowired
+	private EmployeeService employeeService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@PreDestroy
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	public byte[] getHomeDashboard() throws Exception {
+		return getPayload(HOME_DASHBOARD);
+	}
+
+	private byte[] getPayload(final String key) throws Exception {
+		CachedPayload cached = payloads.get(key);
+		if (cached != null && cached.isFresh()) {
+			return cached.bytes;
+		}
+		FutureTask<byte[]> task = new FutureTask<>(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws Exception {
+				try {
+					byte[] bytes = objectMapper.writeValueAsBytes(assemble());
+					payloads.put(key, new CachedPayload(bytes,
+							System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(cacheTtlSeconds)));
+					return bytes;
+				} finally {
+					inFlight.remove(key);
+				}
+			}
+		});
+		FutureTask<byte[]> running = inFlight.putIfAbsent(key, task);
+		if (running == null) {
+			running = task;
+			task.run();
+		}
+		try {
+			return running.get();
+		} catch (ExecutionException exp) {
+			if (exp.getCause() instanceof Exception) {
+				throw (Exception) exp.getCause();
+			}
+			throw exp;
+		}
+	}
+
+	private Map<String, Object> assemble() throws Exception {
+		Map<String, Future<?>> sections = new LinkedHashMap<>();
+		sections.put("count", executor.submit(new Callable<Map<String, Long>>() {
+			@Override
+			public Map<String, Long> call() throws Exception {
+				Map<String, Long> sectionsCount = new HashMap<>(3);
+				sectionsCount.put("employees", employeeService.getCount());
+				sectionsCount.put("topics", topicService.getCount());
+				sectionsCount.put("trainings", trainingService.getCount());
+				return sectionsCount;
+			}
+		}));
+		sections.put("recentTopics", executor.submit(new Callable<JSONObject>() {
+			@Override
+			public JSONObject call() throws Exception {
+				return topicService.getAll(TopicService.getRecentPageable(), true);
+			}
+		}));
+		sections.put("topTopics", executor.submit(new Callable<JSONObject>() {
+			@Override
+			public JSONObject call() throws Exception {
+				return topicService.getAll(TopicService.getTopByLikesPageable(), true);
+			}
+		}));
+		sections.put("topTrainings", executor.submit(new Callable<JSONObject>() {
+			@Override
+			public JSONObject call() throws Exception {
+				return trainingService.getAll(TrainingService.getTopByLikesPageable(), true, null);
+			}
+		}));
+		for (final TrainingStatus status : TrainingStatus.values()) {
+			sections.put(status.name().toLowerCase() + "Trainings", executor.submit(new Callable<JSONObject>() {
+				@Override
+				public JSONObject call() throws Exception {
+					return trainingService.getAll(TrainingService.getRecentPageable(), true, status.name());
+				}
+			}));
+		}
+
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ASSEMBLE_TIMEOUT_SECONDS);
+		Map<String, Object> dashboard = new LinkedHashMap<>(sections.size());
+		try {
+			for (Map.Entry<String, Future<?>> section : sections.entrySet()) {
+				dashboard.put(section.getKey(), section.getValue().get(
+						Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+			}
+		} catch (ExecutionException | TimeoutException exp) {
+			logger.error("Dashboard could not be assembled", exp);
+			for (Future<?> section : sections.values()) {
+				section.cancel(true);
+			}
+			throw exp;
+		}
+		return dashboard;
+	}
+
+	private static final class CachedPayload {
+		private final byte[] bytes;
+		private final long expiresAt;
+
+		private CachedPayload(byte[] bytes, long expiresAt) {
+			this.bytes = bytes;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isFresh() {
+			return System.currentTimeMillis() < expiresAt;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.domain.Employee;
+import com.pb.lunchandlearn.domain.EmployeeDirectoryChange;
+import com.pb.lunchandlearn.repository.EmployeeDirectoryChangeRepository;
+import com.pb.lunchandlearn.repository.EmployeeRepository;
+import com.pb.lunchandlearn.utils.CommonUtil;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a versioned change log of the employee directory (guid, name, emailId) so pickers can sync deltas
+ * instead of downloading the whole list.
+ */
+@Service
+public class EmployeeDirectoryService {
+	private static final String DIRECTORY_CHANGES = "employeeDirectoryChanges";
+	private static final Sort SORT_BY_VERSION = new Sort(Sort.Direction.ASC, "version");
+
+	//longest time between handing out a version and inserting its entry
+	@Value("${employee.directory.gapTimeoutMillis:30000}")
+	private long gapTimeoutMillis;
+
+	@Autowired
+	private EmployeeDirectoryChangeRepository directoryChangeRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private IDProviderService idProviderService;
+
+	public void recordChange(Employee employee) {
+		directoryChangeRepository.insert(new EmployeeDirectoryChange(idProviderService.getNextId(DIRECTORY_CHANGES),
+				employee.getGuid(), employee.getName(), employee.getEmailId(), false));
+	}
+
+	/**
+	 * Records the changes of the employees with consecutive versions and one insert.
+	 */
+	public void recordChanges(List<Employee> employees) {
+		if (employees.isEmpty()) {
+			return;
+		}
+		long version = idProviderService.getNextIds(DIRECTORY_CHANGES, employees.size());
+		List<EmployeeDirectoryChange> changes = new ArrayList<>(employees.size());
+		for (Employee employee : employees) {
+			changes.add(new EmployeeDirectoryChange(version++, employee.getGuid(), employee.getName(),
+					employee.getEmailId(), false));
+		}
+		directoryChangeRepository.insert(changes);
+	}
+
+	public void recordChange(String empGuid) {
+		Employee employee = employeeRepository.findByGuid(empGuid.toUpperCase());
+		recordChange(employee);
+	}
+
+	public void recordRemoval(String empGuid) {
+		directoryChangeRepository.insert(new EmployeeDirectoryChange(idProviderService.getNextId(DIRECTORY_CHANGES),
+				empGuid.toUpperCase(), null, null, true));
+	}
+
+	public Long getVersion() {
+		EmployeeDirectoryChange latest = directoryChangeRepository.findFirstByOrderByVersionDesc();
+		return latest == null ? 0l : latest.getVersion();
+	}
+
+	/**
+	 * Entries changed after the given version, or the full directory when the client has no usable version. The
+	 * full directory is read after its version, so it covers every change up to that version even if in flight.
+	 * A version below the first logged one predates the log, the employees added before it aren't in any entry.
+	 */
+	public JSONObject getChangesSince(Long sinceVersion) {
+		Long version = getVersion();
+		JSONObject obj = new JSONObject();
+		obj.put("version", version);
+		EmployeeDirectoryChange first = directoryChangeRepository.findFirstByOrderByVersionAsc();
+		if (sinceVersion == null || sinceVersion > version || first == null || sinceVersion < first.getVersion() - 1) {
+			obj.put("full", true);
+			obj.put("content", CommonUtil.getEmployeesMinimal(employeeRepository.findAllByEmailIdNotNullAndActiveNot(false)));
+			obj.put("removed", new JSONArray());
+			return obj;
+		}
+		List<EmployeeDirectoryChange> changes = directoryChangeRepository.findAllByVersionGreaterThan(sinceVersion,
+				SORT_BY_VERSION);
+		Map<String, EmployeeDirectoryChange> latestChanges = new LinkedHashMap<>(changes.size());
+		//versions are handed out before their entries are inserted, so an entry may show up before a lower one.
+		//Changes are served up to the first gap, a gap older than the timeout is a version whose insert failed.
+		version = sinceVersion;
+		long settledBefore = System.currentTimeMillis() - gapTimeoutMillis;
+		for (EmployeeDirectoryChange change : changes) {
+			if (change.getVersion() != version + 1 && change.getChangedOn() != null &&
+					change.getChangedOn().getTime() > settledBefore) {
+				break;
+			}
+			latestChanges.remove(change.getGuid());
+			latestChanges.put(change.getGuid(), change);
+			version = change.getVersion();
+		}
+		JSONArray content = new JSONArray();
+		JSONArray removed = new JSONArray();
+		for (EmployeeDirectoryChange change : latestChanges.values()) {
+			if (change.isRemoved()) {
+				removed.add(change.getGuid());
+			} else {
+				content.add(CommonUtil.getEmployeeDirectoryChange(change));
+			}
+		}
+		obj.put("version", version);
+		obj.put("full", false);
+		obj.put("content", content);
+		obj.put("removed", removed);
+		return obj;
+	}
+}
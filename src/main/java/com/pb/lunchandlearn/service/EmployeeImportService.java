@@ -0,0 +1,207 @@
+package com.pb.lunchandlearn.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.lunchandlearn.config.SecuredUser;
+import com.pb.lunchandlearn.domain.Employee;
+import com.pb.lunchandlearn.domain.EmployeeImportJob;
+import com.pb.lunchandlearn.domain.ExportFormat;
+import com.pb.lunchandlearn.exception.BadRequestException;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
+import com.pb.lunchandlearn.repository.EmployeeImportJobRepository;
+import com.pb.lunchandlearn.repository.EmployeeRepository;
+import com.pb.lunchandlearn.service.mail.MailService;
+import com.pb.lunchandlearn.utils.EmployeeFileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.pb.lunchandlearn.config.SecurityConfig.getLoggedInUser;
+
+/**
+ * Imports employees in bulk from a CSV or NDJSON upload. The upload is parked in a temp file and read in the
+ * background a row at a time, valid rows are upserted in batches with one unordered bulk write each and the job is
+ * saved after every batch for progress. Instead of a mail per employee one summary is mailed, and the directory
+ * log, ancestors and cohort index are updated per batch or once at the end rather than per row.
+ */
+@Service
+public class EmployeeImportService {
+	private static final String IMPORT_JOBS = "employeeImportJobs";
+	private static final short THREAD_POOL_SIZE = 2;
+
+	private Logger logger = LoggerFactory.getLogger(EmployeeImportService.class);
+	private ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+
+	@Value("${employee.import.batchSize:1000}")
+	private int batchSize;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private EmployeeImportJobRepository employeeImportJobRepository;
+
+	@Autowired
+	private EmployeeDirectoryService employeeDirectoryService;
+
+	@Autowired
+	private OrgHierarchyService orgHierarchyService;
+
+	@Autowired
+	private CohortIndexService cohortIndexService;
+
+	@Autowired
+	private IDProviderService idProviderService;
+
+	@Autowired
+	private MailService mailService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@PostConstruct
+	public void init() {
+		//jobs cut short by a restart, their temp files are gone
+		for (EmployeeImportJob job : employeeImportJobRepository.findAllByStatus(EmployeeImportJob.Status.RUNNING)) {
+			job.setStatus(EmployeeImportJob.Status.FAILED);
+			job.getErrors().add("Interrupted by a restart, import the file again");
+			job.setFinishedOn(new Date());
+			employeeImportJobRepository.save(job);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	public EmployeeImportJob submit(MultipartFile file, ExportFormat format) throws IOException {
+		if (file.isEmpty()) {
+			throw new BadRequestException("Import file is empty");
+		}
+		if (format == null) {
+			String fileName = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+			format = fileName.endsWith(".ndjson") || fileName.endsWith(".json") ? ExportFormat.NDJSON :
+					ExportFormat.CSV;
+		}
+		final File tempFile = File.createTempFile("employee-import", "." + format.getExtension());
+		file.transferTo(tempFile);
+		SecuredUser user = getLoggedInUser();
+		final EmployeeImportJob job = new EmployeeImportJob();
+		job.setId(idProviderService.getNextId(IMPORT_JOBS));
+		job.setFileName(file.getOriginalFilename());
+		job.setFormat(format);
+		job.setStatus(EmployeeImportJob.Status.RUNNING);
+		job.setStartedByGuid(user.getGuid());
+		job.setStartedByName(user.getUsername());
+		job.setStartedOn(new Date());
+		employeeImportJobRepository.insert(job);
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					runImport(job, tempFile);
+				} finally {
+					if (!tempFile.delete()) {
+						logger.warn("Import file {} could not be deleted", tempFile);
+					}
+				}
+			}
+		});
+		return job;
+	}
+
+	public EmployeeImportJob getJob(Long jobId) {
+		EmployeeImportJob job = employeeImportJobRepository.findOne(jobId);
+		if (job == null) {
+			throw new ResourceNotFoundException("Import job does not exist");
+		}
+		return job;
+	}
+
+	private void runImport(EmployeeImportJob job, File file) {
+		boolean managersChanged = false;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+				StandardCharsets.UTF_8))) {
+			EmployeeFileReader fileReader = new EmployeeFileReader(reader, job.getFormat(), objectMapper);
+			Set<String> guids = new HashSet<>();
+			List<Employee> batch = new ArrayList<>(batchSize);
+			while (true) {
+				Employee employee;
+				String error;
+				try {
+					employee = fileReader.next();
+					if (employee == null) {
+						break;
+					}
+					error = EmployeeFileReader.validate(employee);
+				} catch (EmployeeFileReader.InvalidRowException exp) {
+					employee = null;
+					error = exp.getMessage();
+				}
+				job.setRowsRead(fileReader.getRowsRead());
+				if (error == null && !guids.add(employee.getGuid())) {
+					error = "Duplicate guid " + employee.getGuid();
+				}
+				if (error != null) {
+					job.reject(job.getRowsRead(), error);
+					continue;
+				}
+				managersChanged |= employee.getManagers() != null;
+				batch.add(employee);
+				if (batch.size() == batchSize) {
+					write(job, batch);
+					batch.clear();
+				}
+			}
+			write(job, batch);
+			job.setStatus(EmployeeImportJob.Status.COMPLETED);
+		} catch (Exception exp) {
+			logger.error("Employee import " + job.getId() + " failed", exp);
+			job.setStatus(EmployeeImportJob.Status.FAILED);
+			job.getErrors().add("Import stopped at row " + job.getRowsRead() + ": " + exp.getMessage());
+		}
+		job.setFinishedOn(new Date());
+		employeeImportJobRepository.save(job);
+		if (job.getInserted() + job.getUpdated() > 0) {
+			if (managersChanged) {
+				orgHierarchyService.rebuildAncestors();
+			}
+			cohortIndexService.rebuild();
+		}
+		mailService.sendMail(MailService.MailType.EMPLOYEES_IMPORTED, job);
+		logger.info("Employee import {} done: {}", job.getId(), job);
+	}
+
+	private void write(EmployeeImportJob job, List<Employee> batch) {
+		if (!batch.isEmpty()) {
+			Map<String, Boolean> written = employeeRepository.upsertDirectoryEntries(batch);
+			List<Employee> changed = new ArrayList<>(written.size());
+			for (Employee employee : batch) {
+				Boolean inserted = written.get(employee.getGuid());
+				if (inserted == null) {
+					job.setUnchanged(job.getUnchanged() + 1);
+					continue;
+				}
+				if (inserted) {
+					job.setInserted(job.getInserted() + 1);
+				} else {
+					job.setUpdated(job.getUpdated() + 1);
+				}
+				changed.add(employee);
+			}
+			employeeDirectoryService.recordChanges(changed);
+		}
+		employeeImportJobRepository.save(job);
+	}
+}
@@ -1,7 +1,11 @@
 package com.pb.lunchandlearn.service;
 
+import com.mongodb.DBObject;
+import com.pb.lunchandlearn.config.SecuredUser;
 import com.pb.lunchandlearn.config.ServiceAccountSettings;
 import com.pb.lunchandlearn.domain.*;
+import com.pb.lunchandlearn.exception.BadRequestException;
+import com.pb.lunchandlearn.exception.ConflictException;
 import com.pb.lunchandlearn.exception.InvalidOperationException;
 import com.pb.lunchandlearn.exception.ResourceNotFoundException;
 import com.pb.lunchandlearn.repository.EmployeeRepository;
@@ -15,12 +19,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
 import java.text.MessageFormat;
 import java.text.ParseException;
 import java.util.*;
 
+import static com.pb.lunchandlearn.config.SecurityConfig.getLoggedInUser;
 import static com.pb.lunchandlearn.utils.CommonUtil.updateOldNewMapValues;
 
 /**
@@ -33,8 +39,26 @@ public class EmployeeService {
 
 	public static final List<String> MANAGER_ROLE_LIST = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(UserRole.MANAGER.name())));
 
+	public static final Set<String> SELECTABLE_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"name", "emailId", "roles", "managers", "trainingsInterestedIn", "trainingsAttended", "trainingsImparted",
+			"topicsKnown", "topicsInterestedIn", "version")));
+
+	//fields a PATCH may write, everything else is maintained by the server
+	public static final Set<String> EDITABLE_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"name", "emailId", "managers", "topicsKnown", "topicsInterestedIn")));
+
+	//only admins may change roles
+	public static final Set<String> ADMIN_EDITABLE_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"name", "emailId", "managers", "topicsKnown", "topicsInterestedIn", "roles")));
+
 	public static final List<String> ADMIN_ROLE_LIST = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(UserRole.ADMIN.name())));
 
+	public static final List<String> PROFILE_TRAININGS = Collections.unmodifiableList(Arrays.asList(
+			"trainingsInterestedIn", "trainingsAttended", "trainingsImparted"));
+
+	private static final int DEFAULT_PROFILE_LIMIT = 10;
+	private static final int MAX_PROFILE_LIMIT = 100;
+
 	@Autowired
 	private TopicService topicService;
 
@@ -44,6 +68,15 @@ public class EmployeeService {
 	@Autowired
 	private MailService mailService;
 
+	@Autowired
+	private EmployeeDirectoryService employeeDirectoryService;
+
+	@Autowired
+	private CohortIndexService cohortIndexService;
+
+	@Autowired
+	private OrgHierarchyService orgHierarchyService;
+
 	public EmployeeService() {
 	}
 
@@ -79,6 +112,22 @@ public class EmployeeService {
 		return employeeRepository.findAllBy(textCriteria, pageable);
 	}
 
+	public JSONObject getAllFields(Pageable pageable, String searchTerm, String fields) {
+		TextCriteria textCriteria = StringUtils.isEmpty(searchTerm) ? null :
+				TextCriteria.forDefaultLanguage().matching(searchTerm);
+		return CommonUtil.getFieldsJson(employeeRepository.findAllFields(textCriteria,
+				CommonUtil.parseFields(fields, SELECTABLE_FIELDS), CommonUtil.getSortedPageable(pageable)), "guid");
+	}
+
+	public JSONObject getEmployeeFields(String empGuid, String fields) {
+		DBObject employee = employeeRepository.findFieldsByGuid(empGuid.toUpperCase(),
+				CommonUtil.parseFields(fields, SELECTABLE_FIELDS));
+		if (employee == null) {
+			throw new ResourceNotFoundException("Employee does not exist");
+		}
+		return CommonUtil.getFieldsJson(employee, "guid");
+	}
+
 	public List<Employee> getAllNames() {
 		return employeeRepository.findAllByNameNotNull();
 	}
@@ -92,16 +141,95 @@ public class EmployeeService {
 	}
 
 	public void deleteEmployee(String empId) {
+		//only an employee the directory has can be removed from it
+		if (!employeeRepository.exists(empId.toUpperCase())) {
+			throw new ResourceNotFoundException("Employee does not exist");
+		}
 		employeeRepository.delete(empId.toUpperCase());
+		employeeDirectoryService.recordRemoval(empId);
+		cohortIndexService.refreshEmployee(empId);
 	}
 
 	public Employee add(Employee employee) {
-		return employeeRepository.insert(employee);
+		Employee emp = employeeRepository.insert(employee);
+		employeeDirectoryService.recordChange(emp);
+		cohortIndexService.refreshEmployee(emp.getGuid());
+		if (!CollectionUtils.isEmpty(emp.getManagers())) {
+			orgHierarchyService.refreshAncestors(emp.getGuid());
+		}
+		return emp;
 	}
 
+	/**
+	 * Writes only the fields that changed since the version the client read, null when nothing changed.
+	 */
 	public Employee update(Employee employee) {
 		employee.setGuid(employee.getGuid().toUpperCase());
-		return employeeRepository.save(employee);
+		Set<String> changedFields = employeeRepository.updateChangedFields(employee);
+		if (changedFields == null) {
+			throw new ConflictException("Employee has been modified meanwhile, reload it and try again");
+		}
+		if (changedFields.isEmpty()) {
+			return null;
+		}
+		Employee emp = employeeRepository.findByGuid(employee.getGuid());
+		if (changedFields.contains("name") || changedFields.contains("emailId")) {
+			employeeDirectoryService.recordChange(emp);
+		}
+		if (changedFields.contains("topicsKnown") || changedFields.contains("topicsInterestedIn")) {
+			cohortIndexService.refreshEmployee(emp.getGuid());
+		}
+		if (changedFields.contains("managers")) {
+			orgHierarchyService.refreshAncestors(emp.getGuid());
+		}
+		return emp;
+	}
+
+	public JSONObject getDirectoryChanges(Long sinceVersion) {
+		return employeeDirectoryService.getChangesSince(sinceVersion);
+	}
+
+	public String getETag(String empGuid) {
+		Employee employee = employeeRepository.findVersionByGuid(empGuid.toUpperCase());
+		return CommonUtil.getETag("employee", employee.getGuid(), employee.getVersion(), null);
+	}
+
+	/**
+	 * Employee page in one read, each training list is cut to limit entries and carries the cursor of the rest.
+	 */
+	public JSONObject getProfile(String empGuid, Integer limit) {
+		int sectionLimit = CommonUtil.getPageLimit(limit, DEFAULT_PROFILE_LIMIT, MAX_PROFILE_LIMIT);
+		//one extra entry tells whether a section has more to load
+		Employee employee = employeeRepository.findProfileByGuid(empGuid.toUpperCase(), PROFILE_TRAININGS, sectionLimit + 1);
+		JSONObject obj = new JSONObject();
+		obj.put("guid", employee.getGuid());
+		obj.put("name", employee.getName());
+		obj.put("emailId", employee.getEmailId());
+		obj.put("managers", employee.getManagers());
+		obj.put("topicsKnown", employee.getTopicsKnown());
+		obj.put("topicsInterestedIn", employee.getTopicsInterestedIn());
+		obj.put("version", employee.getVersion());
+		obj.put("trainingsInterestedIn", CommonUtil.getProfileSection(employee.getTrainingsInterestedIn(), 0, sectionLimit));
+		obj.put("trainingsAttended", CommonUtil.getProfileSection(employee.getTrainingsAttended(), 0, sectionLimit));
+		obj.put("trainingsImparted", CommonUtil.getProfileSection(employee.getTrainingsImparted(), 0, sectionLimit));
+		return obj;
+	}
+
+	public JSONObject getProfileSection(String empGuid, String section, String trainingStatus, Integer cursor,
+										Integer limit) {
+		if (!PROFILE_TRAININGS.contains(section)) {
+			throw new BadRequestException(MessageFormat.format("Invalid profile section {0}", section));
+		}
+		int sectionLimit = CommonUtil.getPageLimit(limit, DEFAULT_PROFILE_LIMIT, MAX_PROFILE_LIMIT);
+		int offset = cursor == null ? 0 : Math.max(0, cursor);
+		TrainingStatus status = StringUtils.isEmpty(trainingStatus) ? null :
+				TrainingStatus.valueOf(trainingStatus.toUpperCase());
+		List<MiniTrainingDetail> trainings = employeeRepository.getTrainings(empGuid.toUpperCase(), section, status,
+				offset, sectionLimit + 1);
+		if (trainings == null) {
+			throw new ResourceNotFoundException("Employee does not exist");
+		}
+		return CommonUtil.getProfileSection(trainings, offset, sectionLimit);
 	}
 
 	public List<Employee> getEmployeesByTopicKnown(String topicName) {
@@ -129,18 +257,47 @@ public class EmployeeService {
 	}
 
 	public boolean updateField(String empGuid, SimpleFieldEntry simpleFieldEntry) throws ParseException {
+		return applyFields(empGuid, Collections.singletonList(simpleFieldEntry));
+	}
+
+	public boolean updateFields(String empGuid, List<SimpleFieldEntry> simpleFieldEntries) throws ParseException {
+		return applyFields(empGuid, simpleFieldEntries);
+	}
+
+	private boolean applyFields(String empGuid, List<SimpleFieldEntry> simpleFieldEntries) throws ParseException {
+		Map<String, SimpleFieldEntry> entries = CommonUtil.getFieldEntries(simpleFieldEntries, getEditableFields());
 		Map<Object, Object> oldValues = null;
-		switch (simpleFieldEntry.getName()) {
-			case "topicsKnown":
-				oldValues = (Map) employeeRepository.getTopics(empGuid.toUpperCase(), "topicsKnown");
-				updateEntries(empGuid, simpleFieldEntry.getName(), oldValues, (Map) simpleFieldEntry.getValue());
-				break;
-			case "topicsInterestedIn":
-				oldValues = (Map) employeeRepository.getTopics(empGuid.toUpperCase(), "topicsInterestedIn");
-				updateEntries(empGuid, simpleFieldEntry.getName(), oldValues, (Map) simpleFieldEntry.getValue());
-				break;
+		for (SimpleFieldEntry simpleFieldEntry : entries.values()) {
+			switch (simpleFieldEntry.getName()) {
+				case "topicsKnown":
+					oldValues = (Map) employeeRepository.getTopics(empGuid.toUpperCase(), "topicsKnown");
+					updateEntries(empGuid, simpleFieldEntry.getName(), oldValues, (Map) simpleFieldEntry.getValue());
+					break;
+				case "topicsInterestedIn":
+					oldValues = (Map) employeeRepository.getTopics(empGuid.toUpperCase(), "topicsInterestedIn");
+					updateEntries(empGuid, simpleFieldEntry.getName(), oldValues, (Map) simpleFieldEntry.getValue());
+					break;
+			}
+		}
+		if (!employeeRepository.updateByFieldNames(empGuid.toUpperCase(), simpleFieldEntries)) {
+			return false;
 		}
-		return employeeRepository.updateByFieldName(empGuid.toUpperCase(), simpleFieldEntry);
+		if (entries.containsKey("name") || entries.containsKey("emailId")) {
+			employeeDirectoryService.recordChange(empGuid);
+		}
+		if (entries.containsKey("topicsKnown") || entries.containsKey("topicsInterestedIn")) {
+			cohortIndexService.refreshEmployee(empGuid);
+		}
+		if (entries.containsKey("managers")) {
+			orgHierarchyService.refreshAncestors(empGuid);
+		}
+		return true;
+	}
+
+	//without a logged in user the update is an internal one, e.g. the service account set up by init()
+	private static Set<String> getEditableFields() {
+		SecuredUser user = getLoggedInUser();
+		return user == null || user.isAdmin() ? ADMIN_EDITABLE_FIELDS : EDITABLE_FIELDS;
 	}
 
 	private void updateEntries(String empGuid, String fieldName, Map<Object, Object> oldEntries, Map<Object, Object> newEntries) {
@@ -185,7 +342,7 @@ public class EmployeeService {
 	}
 
 	public JSONObject getEmployeesMinimal() {
-		List<Employee> list = employeeRepository.findAllByEmailIdNotNull();
+		List<Employee> list = employeeRepository.findAllByEmailIdNotNullAndActiveNot(false);
 		JSONArray array = CommonUtil.getEmployeesMinimal(list);
 		JSONObject obj = new JSONObject();
 		obj.put("content", array);
@@ -205,6 +362,7 @@ public class EmployeeService {
 
 	public boolean updateTopicInterestedIn(String guid, Long topicId, String topicName) {
 		employeeRepository.addTopicInterested(guid.toUpperCase(), topicId, topicName);
+		cohortIndexService.refreshEmployee(guid);
 		return true;
 	}
 
@@ -0,0 +1,316 @@
+package com.pb.lunchandlearn.service;
+
+import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
+import com.mongodb.DBObject;
+import com.pb.lunchandlearn.domain.ExportFormat;
+import com.pb.lunchandlearn.domain.ExportType;
+import com.pb.lunchandlearn.domain.TrainingStatus;
+import com.pb.lunchandlearn.repository.FeedbackRepository;
+import com.pb.lunchandlearn.repository.TrainingRatingsRepository;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.DocumentCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams trainings, feedbacks and attendance as CSV or NDJSON. The id span of the collection is cut into ranges
+ * read in parallel from cursors, each range fills a bounded queue and the response drains the ranges in order, so
+ * rows come out in id order and memory stays at ranges * queueCapacity rows whatever the size of the export. The
+ * response is written on the async request thread, a client going away cancels the readers.
+ */
+@Service
+public class ExportService {
+	private static final short THREAD_POOL_SIZE = 8;
+	private static final long OFFER_TIMEOUT_SECONDS = 1;
+	//marks the end of a range
+	private static final Object[] END = new Object[0];
+	private static final List<String> TRAINING_COLUMNS = Collections.unmodifiableList(Arrays.asList("id", "name",
+			"status", "scheduledOn", "duration", "location", "topics", "trainers", "trainees", "createdByName"));
+	private static final List<String> FEEDBACK_COLUMNS = Collections.unmodifiableList(Arrays.asList("id",
+			"trainingId", "respondentGuid", "respondentName", "comment"));
+	private static final List<String> ATTENDANCE_COLUMNS = Collections.unmodifiableList(Arrays.asList("trainingId",
+			"trainingName", "scheduledOn", "location", "employeeGuid", "employeeName"));
+	private static final String RATING_COLUMN_PREFIX = "rating.";
+
+	private Logger logger = LoggerFactory.getLogger(ExportService.class);
+	private ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+
+	@Value("${export.ranges:4}")
+	private int ranges;
+
+	@Value("${export.queueCapacity:500}")
+	private int queueCapacity;
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Autowired
+	private FeedbackRepository feedbackRepository;
+
+	@Autowired
+	private TrainingRatingsRepository trainingRatingsRepository;
+
+	@PreDestroy
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	public StreamingResponseBody export(final ExportType type, final ExportFormat format, final boolean gzip) {
+		final List<String> columns = getColumns(type);
+		final long[] bounds = type == ExportType.FEEDBACKS ? feedbackRepository.findExportIdBounds() :
+				trainingRepository.findExportIdBounds();
+		return new StreamingResponseBody() {
+			@Override
+			public void writeTo(OutputStream outputStream) throws IOException {
+				if (gzip) {
+					GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+					write(type, format, columns, bounds, gzipOutputStream);
+					gzipOutputStream.finish();
+				} else {
+					write(type, format, columns, bounds, outputStream);
+				}
+			}
+		};
+	}
+
+	private void write(ExportType type, ExportFormat format, List<String> columns, long[] bounds,
+					   OutputStream outputStream) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		DateFormat dateFormat = new ISO8601DateFormat();
+		if (format == ExportFormat.CSV) {
+			writeCsvRow(writer, columns.toArray(), dateFormat);
+		}
+		AtomicBoolean cancelled = new AtomicBoolean();
+		List<RangeReader> readers = new ArrayList<>();
+		if (bounds != null) {
+			long span = (bounds[1] - bounds[0]) / Math.max(ranges, 1) + 1;
+			for (long fromId = bounds[0]; fromId <= bounds[1]; fromId += span) {
+				RangeReader reader = new RangeReader(type, columns, fromId, Math.min(bounds[1], fromId + span - 1),
+						cancelled);
+				readers.add(reader);
+				executor.execute(reader);
+			}
+		}
+		long count = 0;
+		try {
+			for (RangeReader reader : readers) {
+				for (Object[] row = reader.take(); row != END; row = reader.take()) {
+					if (format == ExportFormat.CSV) {
+						writeCsvRow(writer, row, dateFormat);
+					} else {
+						writeJsonRow(writer, columns, row, dateFormat);
+					}
+					++count;
+				}
+			}
+			writer.flush();
+		} finally {
+			cancelled.set(true);
+		}
+		logger.info("Exported {} {} rows", count, type);
+	}
+
+	private List<String> getColumns(ExportType type) {
+		switch (type) {
+			case TRAININGS:
+				return TRAINING_COLUMNS;
+			case FEEDBACKS:
+				//ratings are flattened into a column per rating name
+				List<String> columns = new ArrayList<>(FEEDBACK_COLUMNS);
+				for (String ratingName : trainingRatingsRepository.findRatingNames()) {
+					columns.add(RATING_COLUMN_PREFIX + ratingName);
+				}
+				return columns;
+			default:
+				return ATTENDANCE_COLUMNS;
+		}
+	}
+
+	private static Set<String> getFields(ExportType type) {
+		switch (type) {
+			case TRAININGS:
+				return new HashSet<>(TRAINING_COLUMNS.subList(1, TRAINING_COLUMNS.size()));
+			case FEEDBACKS:
+				return new HashSet<>(Arrays.asList("parentId", "respondentGuid", "respondentName", "comment",
+						"ratings"));
+			default:
+				return new HashSet<>(Arrays.asList("name", "scheduledOn", "location", "trainees"));
+		}
+	}
+
+	private static List<Object[]> getRows(ExportType type, List<String> columns, DBObject document) {
+		switch (type) {
+			case TRAININGS:
+				Object trainees = document.get("trainees");
+				return Collections.singletonList(new Object[]{document.get("_id"), document.get("name"),
+						document.get("status"), document.get("scheduledOn"), document.get("duration"),
+						document.get("location"), joinValues(document.get("topics")),
+						joinValues(document.get("trainers")),
+						trainees instanceof DBObject ? ((DBObject) trainees).keySet().size() : 0,
+						document.get("createdByName")});
+			case FEEDBACKS:
+				Object[] row = new Object[columns.size()];
+				row[0] = document.get("_id");
+				row[1] = document.get("parentId");
+				row[2] = document.get("respondentGuid");
+				row[3] = document.get("respondentName");
+				row[4] = document.get("comment");
+				DBObject ratings = (DBObject) document.get("ratings");
+				for (int index = FEEDBACK_COLUMNS.size(); ratings != null && index < row.length; ++index) {
+					row[index] = ratings.get(columns.get(index).substring(RATING_COLUMN_PREFIX.length()));
+				}
+				return Collections.singletonList(row);
+			default:
+				DBObject attendees = (DBObject) document.get("trainees");
+				if (attendees == null) {
+					return Collections.emptyList();
+				}
+				List<Object[]> rows = new ArrayList<>();
+				for (String guid : attendees.keySet()) {
+					rows.add(new Object[]{document.get("_id"), document.get("name"), document.get("scheduledOn"),
+							document.get("location"), guid, attendees.get(guid)});
+				}
+				return rows;
+		}
+	}
+
+	private static String joinValues(Object map) {
+		if (!(map instanceof DBObject)) {
+			return null;
+		}
+		StringBuilder joined = new StringBuilder();
+		for (String key : ((DBObject) map).keySet()) {
+			if (joined.length() > 0) {
+				joined.append("; ");
+			}
+			joined.append(((DBObject) map).get(key));
+		}
+		return joined.toString();
+	}
+
+	private static void writeCsvRow(Writer writer, Object[] row, DateFormat dateFormat) throws IOException {
+		for (int index = 0; index < row.length; ++index) {
+			if (index > 0) {
+				writer.write(',');
+			}
+			String value = format(row[index], dateFormat);
+			if (value == null) {
+				continue;
+			}
+			if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 ||
+					value.indexOf('\r') >= 0) {
+				writer.write('"');
+				writer.write(value.replace("\"", "\"\""));
+				writer.write('"');
+			} else {
+				writer.write(value);
+			}
+		}
+		writer.write("\r\n");
+	}
+
+	private static void writeJsonRow(Writer writer, List<String> columns, Object[] row, DateFormat dateFormat)
+			throws IOException {
+		Map<String, Object> objRow = new LinkedHashMap<>();
+		for (int index = 0; index < row.length; ++index) {
+			objRow.put(columns.get(index), row[index] instanceof Date ? format(row[index], dateFormat) : row[index]);
+		}
+		JSONObject.writeJSONString(objRow, writer);
+		writer.write('\n');
+	}
+
+	private static String format(Object value, DateFormat dateFormat) {
+		if (value == null) {
+			return null;
+		}
+		return value instanceof Date ? dateFormat.format((Date) value) : value.toString();
+	}
+
+	private final class RangeReader implements Runnable {
+		private final ExportType type;
+		private final List<String> columns;
+		private final long fromId;
+		private final long toId;
+		private final AtomicBoolean cancelled;
+		private final BlockingQueue<Object[]> rows = new ArrayBlockingQueue<>(queueCapacity);
+		private volatile Exception failure;
+
+		private RangeReader(ExportType type, List<String> columns, long fromId, long toId, AtomicBoolean cancelled) {
+			this.type = type;
+			this.columns = columns;
+			this.fromId = fromId;
+			this.toId = toId;
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		public void run() {
+			DocumentCallbackHandler handler = new DocumentCallbackHandler() {
+				@Override
+				public void processDocument(DBObject document) {
+					for (Object[] row : getRows(type, columns, document)) {
+						put(row);
+					}
+				}
+			};
+			try {
+				if (type == ExportType.FEEDBACKS) {
+					feedbackRepository.exportRange(fromId, toId, getFields(type), handler);
+				} else {
+					trainingRepository.exportRange(fromId, toId,
+							type == ExportType.ATTENDANCE ? TrainingStatus.COMPLETED : null, getFields(type), handler);
+				}
+			} catch (CancellationException exp) {
+				return;
+			} catch (Exception exp) {
+				failure = exp;
+			}
+			try {
+				put(END);
+			} catch (CancellationException exp) {
+				//nobody is reading any more
+			}
+		}
+
+		//waits for room in the queue until the export is cancelled
+		private void put(Object[] row) {
+			try {
+				while (!rows.offer(row, OFFER_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					if (cancelled.get()) {
+						throw new CancellationException();
+					}
+				}
+			} catch (InterruptedException exp) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException();
+			}
+		}
+
+		private Object[] take() throws IOException {
+			try {
+				Object[] row = rows.take();
+				if (row == END && failure != null) {
+					throw new IOException("Export of ids " + fromId + " to " + toId + " failed", failure);
+				}
+				return row;
+			} catch (InterruptedException exp) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Export interrupted");
+			}
+		}
+	}
+}
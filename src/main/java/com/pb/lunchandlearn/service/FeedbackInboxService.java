@@ -0,0 +1,165 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.config.ModalCollectionSettings;
+import com.pb.lunchandlearn.domain.FeedBack;
+import com.pb.lunchandlearn.repository.FeedbackRepository;
+import com.pb.lunchandlearn.repository.TrainingRatingsRepository;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import com.pb.lunchandlearn.service.mail.MailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Moves submitted feedbacks from the inbox to the feedback collection in batches. Each batch is one bulk insert,
+ * one feedback list update, one rating summary update and one mail per training. An entry leaves the inbox only
+ * after its insert, so a batch cut short by a restart is inserted again. Its feedbacks inserted already fail on the
+ * unique index and are recognized by the id given on submission, their feedback list update and mail are redone and
+ * the rating summaries of their trainings recounted. Summaries missed otherwise are repaired by the nightly rebuild.
+ */
+@Service
+public class FeedbackInboxService {
+	private Logger logger = LoggerFactory.getLogger(FeedbackInboxService.class);
+
+	@Value("${feedback.inbox.batchSize:200}")
+	private int batchSize;
+
+	@Autowired
+	private FeedbackRepository feedbackRepository;
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Autowired
+	private TrainingRatingsRepository trainingRatingsRepository;
+
+	@Autowired
+	private IDProviderService idProviderService;
+
+	@Autowired
+	private ModalCollectionSettings modalCollectionSettings;
+
+	@Autowired
+	private MailService mailService;
+
+	@Autowired
+	private TrainerLeaderboardService trainerLeaderboardService;
+
+	@Autowired
+	private ParticipationCubeService participationCubeService;
+
+	@Scheduled(fixedDelayString = "${feedback.inbox.drainMillis:1000}")
+	public synchronized void drain() {
+		try {
+			List<FeedBack> feedBacks = feedbackRepository.findInbox(batchSize);
+			while (!feedBacks.isEmpty()) {
+				insert(feedBacks);
+				if (feedBacks.size() < batchSize) {
+					break;
+				}
+				feedBacks = feedbackRepository.findInbox(batchSize);
+			}
+		} catch (Exception exp) {
+			logger.error("Feedback inbox drain failed, the next run retries it", exp);
+		}
+	}
+
+	/**
+	 * Recounts the rating summary of each training from its feedbacks. A training is recounted under the lock of
+	 * the drain, so no batch adds ratings between its read and its replace, while the drain goes on between them.
+	 */
+	@Scheduled(cron = "${feedback.ratings.rebuildCron:0 30 2 * * *}")
+	public void rebuildRatings() {
+		try {
+			List<Long> trainingIds = feedbackRepository.findParentIds();
+			for (Long trainingId : trainingIds) {
+				synchronized (this) {
+					trainingRatingsRepository.replaceRatings(trainingId,
+							feedbackRepository.findAllByParentId(trainingId));
+				}
+			}
+			logger.info("Rebuilt rating summaries of {} trainings", trainingIds.size());
+		} catch (Exception exp) {
+			logger.error("Rating summary rebuild failed", exp);
+		}
+	}
+
+	private void insert(List<FeedBack> feedBacks) {
+		for (FeedBack feedBack : feedBacks) {
+			//entries appended before feedbacks got their id on submission
+			if (feedBack.getId() == null) {
+				feedBack.setId(idProviderService.getNextBlockId(modalCollectionSettings.getFeedback()));
+			}
+		}
+		List<FeedBack> inserted = feedbackRepository.insertNew(feedBacks);
+		List<FeedBack> replayed = findReplayed(feedBacks, inserted);
+		if (inserted.size() + replayed.size() < feedBacks.size()) {
+			logger.info("Dropped {} feedbacks already inserted", feedBacks.size() - inserted.size() - replayed.size());
+		}
+		Map<Long, List<Long>> feedbackIds = new LinkedHashMap<>();
+		for (FeedBack feedBack : inserted) {
+			addFeedbackId(feedbackIds, feedBack);
+		}
+		for (FeedBack feedBack : replayed) {
+			addFeedbackId(feedbackIds, feedBack);
+		}
+		for (Map.Entry<Long, List<Long>> entry : feedbackIds.entrySet()) {
+			trainingRepository.addFeedBacks(entry.getKey(), entry.getValue());
+		}
+		trainingRatingsRepository.addRatings(inserted);
+		//the ratings of a replayed feedback may have been added already, so its summary is recounted instead
+		Set<Long> recountedIds = new HashSet<>();
+		for (FeedBack feedBack : replayed) {
+			if (recountedIds.add(feedBack.getParentId())) {
+				trainingRatingsRepository.replaceRatings(feedBack.getParentId(),
+						feedbackRepository.findAllByParentId(feedBack.getParentId()));
+			}
+		}
+		trainerLeaderboardService.refresh(feedbackIds.keySet());
+		participationCubeService.refresh(feedbackIds.keySet());
+		feedbackRepository.removeFromInbox(feedBacks);
+		for (Map.Entry<Long, List<Long>> entry : feedbackIds.entrySet()) {
+			mailService.sendMail(MailService.MailType.FEEDBACK_ADDED, entry.getKey(), entry.getValue().size());
+		}
+	}
+
+	/**
+	 * Feedbacks not inserted because a drain cut short had inserted them already, told apart from other feedbacks
+	 * of their respondents by the id given on submission.
+	 */
+	private List<FeedBack> findReplayed(List<FeedBack> feedBacks, List<FeedBack> inserted) {
+		Map<Long, FeedBack> notInserted = new HashMap<>();
+		for (FeedBack feedBack : feedBacks) {
+			notInserted.put(feedBack.getId(), feedBack);
+		}
+		for (FeedBack feedBack : inserted) {
+			notInserted.remove(feedBack.getId());
+		}
+		List<FeedBack> replayed = new ArrayList<>();
+		if (notInserted.isEmpty()) {
+			return replayed;
+		}
+		for (FeedBack stored : feedbackRepository.findAll(notInserted.keySet())) {
+			FeedBack feedBack = notInserted.get(stored.getId());
+			if (feedBack.getParentId().equals(stored.getParentId()) &&
+					feedBack.getRespondentGuid().equals(stored.getRespondentGuid())) {
+				replayed.add(feedBack);
+			}
+		}
+		return replayed;
+	}
+
+	private static void addFeedbackId(Map<Long, List<Long>> feedbackIds, FeedBack feedBack) {
+		List<Long> ids = feedbackIds.get(feedBack.getParentId());
+		if (ids == null) {
+			ids = new ArrayList<>();
+			feedbackIds.put(feedBack.getParentId(), ids);
+		}
+		ids.add(feedBack.getId());
+	}
+}
@@ -0,0 +1,461 @@
+package com.pb.lunchandlearn.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.lunchandlearn.domain.Employee;
+import com.pb.lunchandlearn.domain.ExportFormat;
+import com.pb.lunchandlearn.domain.SimpleFieldEntry;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
+import com.pb.lunchandlearn.repository.EmployeeRepository;
+import com.pb.lunchandlearn.utils.EmployeeFileReader;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Syncs the employee directory from the extracts HR drops as CSV or NDJSON files in the drop directory. Every
+ * synced employee keeps the hash of its directory fields, so a row whose hash is unchanged is skipped without
+ * reading the employee and only the fields that differ are set on the others. Employees synced before but missing
+ * from the extract are deactivated rather than deleted, unless the extract has rejected rows or misses more of them
+ * than the allowed ratio. An extract is only taken once HR has dropped its done marker next to it. Rows are diffed
+ * and written in batches run in parallel, and a dry run reports the diff without writing anything.
+ */
+@Service
+public class HrSyncService {
+	private static final short THREAD_POOL_SIZE = 4;
+	private static final int MAX_SAMPLES = 100;
+	private static final String PROCESSED_DIR = "processed";
+
+	private Logger logger = LoggerFactory.getLogger(HrSyncService.class);
+	private ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+
+	@Value("${hr.sync.dropDir:}")
+	private String dropDir;
+
+	@Value("${hr.sync.batchSize:500}")
+	private int batchSize;
+
+	@Value("${hr.sync.doneSuffix:.done}")
+	private String doneSuffix;
+
+	@Value("${hr.sync.maxDeactivationRatio:0.1}")
+	private double maxDeactivationRatio;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private EmployeeDirectoryService employeeDirectoryService;
+
+	@Autowired
+	private OrgHierarchyService orgHierarchyService;
+
+	@Autowired
+	private CohortIndexService cohortIndexService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@PreDestroy
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	@Scheduled(cron = "${hr.sync.cron:0 0 2 * * *}")
+	public void syncDropped() {
+		for (File file = nextFile(); file != null; file = nextFile()) {
+			try {
+				sync(file, false);
+			} catch (Exception exp) {
+				logger.error("HR sync of " + file + " failed, leaving it for the next run", exp);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Syncs the oldest extract waiting in the drop directory, a dry run leaves it there.
+	 */
+	public JSONObject syncNext(boolean dryRun) throws IOException {
+		File file = nextFile();
+		if (file == null) {
+			throw new ResourceNotFoundException("No HR extract waiting in the drop directory");
+		}
+		return sync(file, dryRun);
+	}
+
+	private synchronized JSONObject sync(File file, boolean dryRun) throws IOException {
+		if (!file.exists()) {
+			//synced meanwhile by another run
+			return null;
+		}
+		ExportFormat format = getFormat(file);
+		Map<String, Employee> states = new HashMap<>();
+		for (Employee state : employeeRepository.findSyncStates()) {
+			states.put(state.getGuid(), state);
+		}
+		SyncReport report = new SyncReport(file.getName(), dryRun);
+		Set<String> guids = new HashSet<>();
+		List<Future<SyncReport>> batches = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+				StandardCharsets.UTF_8))) {
+			EmployeeFileReader fileReader = new EmployeeFileReader(reader, format, objectMapper);
+			List<Employee> batch = new ArrayList<>(batchSize);
+			while (true) {
+				Employee row;
+				String error;
+				try {
+					row = fileReader.next();
+					if (row == null) {
+						break;
+					}
+					error = EmployeeFileReader.validate(row);
+				} catch (EmployeeFileReader.InvalidRowException exp) {
+					row = null;
+					error = exp.getMessage();
+				}
+				//a rejected row still tells the employee is in the extract
+				if (row != null && row.getGuid() != null && !guids.add(row.getGuid()) && error == null) {
+					error = "Duplicate guid " + row.getGuid();
+				}
+				if (error != null) {
+					report.reject(fileReader.getRowsRead(), error);
+					continue;
+				}
+				row.setSyncHash(hash(row));
+				Employee state = states.get(row.getGuid());
+				if (state != null && row.getSyncHash().equals(state.getSyncHash()) &&
+						!Boolean.FALSE.equals(state.getActive())) {
+					++report.unchanged;
+					continue;
+				}
+				batch.add(row);
+				if (batch.size() == batchSize) {
+					batches.add(submitBatch(batch, dryRun));
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+			if (!batch.isEmpty()) {
+				batches.add(submitBatch(batch, dryRun));
+			}
+		} catch (IOException exp) {
+			awaitBatches(batches);
+			throw exp;
+		}
+		report.merge(awaitBatches(batches));
+		List<String> absent = new ArrayList<>();
+		long synced = 0;
+		for (Employee state : states.values()) {
+			if (state.getSyncHash() != null && !Boolean.FALSE.equals(state.getActive())) {
+				++synced;
+				if (!guids.contains(state.getGuid())) {
+					absent.add(state.getGuid());
+				}
+			}
+		}
+		report.absent = absent.size();
+		//a partial or broken extract must not lock out the employees it misses
+		if (report.rejected > 0) {
+			report.deactivationSkipped = "Extract has rejected rows";
+		} else if (guids.isEmpty()) {
+			report.deactivationSkipped = "Extract has no rows";
+		} else if (absent.size() > synced * maxDeactivationRatio) {
+			report.deactivationSkipped = MessageFormat.format("{0} of {1} synced employees are missing from the " +
+					"extract, more than the allowed ratio {2}", absent.size(), synced, maxDeactivationRatio);
+		} else {
+			report.merge(awaitBatches(deactivate(absent, dryRun)));
+		}
+		if (report.deactivationSkipped != null && !absent.isEmpty()) {
+			logger.warn("HR extract {}: no employee is deactivated, {}", file, report.deactivationSkipped);
+		}
+		if (!dryRun) {
+			if (report.managersChanged) {
+				orgHierarchyService.rebuildAncestors();
+			}
+			if (report.added + report.changed + report.reactivated + report.deactivated > 0) {
+				cohortIndexService.rebuild();
+			}
+			File processedDir = new File(file.getParentFile(), PROCESSED_DIR);
+			processedDir.mkdirs();
+			Files.move(file.toPath(), new File(processedDir, file.getName()).toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			Files.deleteIfExists(getDoneMarker(file).toPath());
+		}
+		logger.info("HR sync of {} done: {}", file, report.toJson());
+		return report.toJson();
+	}
+
+	private Future<SyncReport> submitBatch(final List<Employee> rows, final boolean dryRun) {
+		return executor.submit(new Callable<SyncReport>() {
+			@Override
+			public SyncReport call() {
+				return syncBatch(rows, dryRun);
+			}
+		});
+	}
+
+	private SyncReport syncBatch(List<Employee> rows, boolean dryRun) {
+		List<String> guids = new ArrayList<>(rows.size());
+		for (Employee row : rows) {
+			guids.add(row.getGuid());
+		}
+		Map<String, Employee> stored = new HashMap<>();
+		for (Employee employee : employeeRepository.findDirectoryEntries(guids)) {
+			stored.put(employee.getGuid(), employee);
+		}
+		SyncReport report = new SyncReport();
+		Map<String, List<SimpleFieldEntry>> fieldsByGuid = new LinkedHashMap<>();
+		List<Employee> directoryChanges = new ArrayList<>();
+		for (Employee row : rows) {
+			Employee employee = stored.get(row.getGuid());
+			List<SimpleFieldEntry> fields = new ArrayList<>();
+			addIfChanged(fields, "name", row.getName(), employee == null ? null : employee.getName());
+			addIfChanged(fields, "emailId", row.getEmailId(), employee == null ? null : employee.getEmailId());
+			if (row.getRoles() != null) {
+				addIfChanged(fields, "roles", row.getRoles(), employee == null ? null : employee.getRoles());
+			}
+			if (row.getManagers() != null) {
+				addIfChanged(fields, "managers", row.getManagers(), employee == null ? null : employee.getManagers());
+			}
+			String change;
+			if (employee == null) {
+				change = "ADDED";
+				++report.added;
+			} else if (Boolean.FALSE.equals(employee.getActive())) {
+				change = "REACTIVATED";
+				++report.reactivated;
+			} else if (!fields.isEmpty()) {
+				change = "CHANGED";
+				++report.changed;
+			} else {
+				//only the hash was missing or outdated
+				change = null;
+				++report.unchanged;
+			}
+			if (change != null) {
+				report.sample(row.getGuid(), change, fields);
+			}
+			for (SimpleFieldEntry field : fields) {
+				report.managersChanged |= "managers".equals(field.getName());
+			}
+			if (employee == null || !fields.isEmpty() || Boolean.FALSE.equals(employee.getActive())) {
+				directoryChanges.add(row);
+			}
+			fields.add(new SimpleFieldEntry("syncHash", row.getSyncHash()));
+			fields.add(new SimpleFieldEntry("active", true));
+			fieldsByGuid.put(row.getGuid(), fields);
+		}
+		if (!dryRun) {
+			employeeRepository.updateSyncedFields(fieldsByGuid);
+			employeeDirectoryService.recordChanges(directoryChanges);
+		}
+		return report;
+	}
+
+	private List<Future<SyncReport>> deactivate(List<String> guids, final boolean dryRun) {
+		List<Future<SyncReport>> batches = new ArrayList<>();
+		for (int from = 0; from < guids.size(); from += batchSize) {
+			final List<String> batch = guids.subList(from, Math.min(guids.size(), from + batchSize));
+			batches.add(executor.submit(new Callable<SyncReport>() {
+				@Override
+				public SyncReport call() {
+					SyncReport report = new SyncReport();
+					for (String guid : batch) {
+						++report.deactivated;
+						report.sample(guid, "DEACTIVATED", Collections.<SimpleFieldEntry>emptyList());
+					}
+					if (!dryRun) {
+						employeeRepository.deactivate(batch);
+						for (String guid : batch) {
+							employeeDirectoryService.recordRemoval(guid);
+						}
+					}
+					return report;
+				}
+			}));
+		}
+		return batches;
+	}
+
+	private SyncReport awaitBatches(List<Future<SyncReport>> batches) throws IOException {
+		SyncReport report = new SyncReport();
+		IOException failure = null;
+		for (Future<SyncReport> batch : batches) {
+			try {
+				report.merge(batch.get());
+			} catch (InterruptedException exp) {
+				Thread.currentThread().interrupt();
+				failure = new InterruptedIOException("HR sync interrupted");
+			} catch (ExecutionException exp) {
+				failure = new IOException("HR sync batch failed", exp.getCause());
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return report;
+	}
+
+	private File nextFile() {
+		if (StringUtils.isEmpty(dropDir)) {
+			return null;
+		}
+		File[] files = new File(dropDir).listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.isFile() && getFormat(file) != null && getDoneMarker(file).isFile();
+			}
+		});
+		if (files == null || files.length == 0) {
+			return null;
+		}
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File first, File second) {
+				int order = Long.compare(first.lastModified(), second.lastModified());
+				return order != 0 ? order : first.getName().compareTo(second.getName());
+			}
+		});
+		return files[0];
+	}
+
+	//HR writes the marker once the extract is complete, a file without it may still be being written
+	private File getDoneMarker(File file) {
+		return new File(file.getPath() + doneSuffix);
+	}
+
+	private static ExportFormat getFormat(File file) {
+		String fileName = file.getName().toLowerCase();
+		if (fileName.endsWith(".csv")) {
+			return ExportFormat.CSV;
+		}
+		return fileName.endsWith(".ndjson") || fileName.endsWith(".json") ? ExportFormat.NDJSON : null;
+	}
+
+	private static void addIfChanged(List<SimpleFieldEntry> fields, String name, Object value, Object stored) {
+		if (!ObjectUtils.nullSafeEquals(value, stored)) {
+			fields.add(new SimpleFieldEntry(name, value));
+		}
+	}
+
+	/**
+	 * Hash of the directory fields of the row, roles and managers in a fixed order so a reordered extract hashes
+	 * the same.
+	 */
+	private static String hash(Employee row) {
+		StringBuilder fields = new StringBuilder();
+		fields.append(row.getGuid()).append('\u0000').append(row.getName()).append('\u0000').append(row.getEmailId());
+		fields.append('\u0000');
+		if (row.getRoles() != null) {
+			List<String> roles = new ArrayList<>(row.getRoles());
+			Collections.sort(roles);
+			fields.append(roles);
+		}
+		fields.append('\u0000');
+		if (row.getManagers() != null) {
+			fields.append(new TreeMap<>(row.getManagers()));
+		}
+		return DigestUtils.md5DigestAsHex(fields.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static final class SyncReport {
+		private String file;
+		private boolean dryRun;
+		private long added;
+		private long changed;
+		private long unchanged;
+		private long reactivated;
+		private long deactivated;
+		private long rejected;
+		private long absent;
+		private String deactivationSkipped;
+		private boolean managersChanged;
+		private final JSONArray changes = new JSONArray();
+		private final JSONArray rejects = new JSONArray();
+
+		private SyncReport() {
+		}
+
+		private SyncReport(String file, boolean dryRun) {
+			this.file = file;
+			this.dryRun = dryRun;
+		}
+
+		private void sample(String guid, String change, List<SimpleFieldEntry> fields) {
+			if (changes.size() < MAX_SAMPLES) {
+				JSONObject obj = new JSONObject();
+				obj.put("guid", guid);
+				obj.put("change", change);
+				JSONObject values = new JSONObject();
+				for (SimpleFieldEntry field : fields) {
+					values.put(field.getName(), field.getValue());
+				}
+				obj.put("fields", values);
+				changes.add(obj);
+			}
+		}
+
+		private void reject(long row, String error) {
+			++rejected;
+			if (rejects.size() < MAX_SAMPLES) {
+				JSONObject obj = new JSONObject();
+				obj.put("row", row);
+				obj.put("error", error);
+				rejects.add(obj);
+			}
+		}
+
+		private void merge(SyncReport other) {
+			added += other.added;
+			changed += other.changed;
+			unchanged += other.unchanged;
+			reactivated += other.reactivated;
+			deactivated += other.deactivated;
+			rejected += other.rejected;
+			managersChanged |= other.managersChanged;
+			for (int index = 0; index < other.changes.size() && changes.size() < MAX_SAMPLES; ++index) {
+				changes.add(other.changes.get(index));
+			}
+			for (int index = 0; index < other.rejects.size() && rejects.size() < MAX_SAMPLES; ++index) {
+				rejects.add(other.rejects.get(index));
+			}
+		}
+
+		private JSONObject toJson() {
+			JSONObject obj = new JSONObject();
+			obj.put("file", file);
+			obj.put("dryRun", dryRun);
+			obj.put("added", added);
+			obj.put("changed", changed);
+			obj.put("unchanged", unchanged);
+			obj.put("reactivated", reactivated);
+			obj.put("deactivated", deactivated);
+			obj.put("rejected", rejected);
+			obj.put("absent", absent);
+			obj.put("deactivationSkipped", deactivationSkipped);
+			obj.put("changes", changes);
+			obj.put("rejects", rejects);
+			return obj;
+		}
+	}
+}
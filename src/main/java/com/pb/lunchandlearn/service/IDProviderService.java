@@ -3,8 +3,13 @@ package com.pb.lunchandlearn.service;
 import com.pb.lunchandlearn.domain.CollectionId;
 import com.pb.lunchandlearn.repository.IDRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Created by de007ra on 5/3/2016.
  */
@@ -13,19 +18,70 @@ public class IDProviderService {
 	@Autowired
 	private IDRepository idRepository;
 	private static final Long initialId = 1000l;
+	private static final long BLOCK_SIZE = 50;
+	private final ConcurrentMap<String, IdBlock> blocks = new ConcurrentHashMap<>();
 
 	public Long getNextId(String collectionName) {
-		CollectionId collectionId = idRepository.findByCollectionName(collectionName);
-		if(collectionId == null) {
-			collectionId = new CollectionId(collectionName, initialId);
-			collectionId = idRepository.insert(collectionId);
-			return collectionId.getLastId();
+		return reserve(collectionName, 1);
+	}
+
+	/**
+	 * Reserves count consecutive ids with one write.
+	 * @return the first of them
+	 */
+	public Long getNextIds(String collectionName, int count) {
+		return reserve(collectionName, count) - count + 1;
+	}
+
+	/**
+	 * Hands out ids from a block reserved with one write, for collections inserted into in bursts. Ids left in
+	 * a block at shutdown are never used.
+	 */
+	public Long getNextBlockId(String collectionName) {
+		IdBlock block = blocks.get(collectionName);
+		long id = block == null ? -1 : block.next();
+		if (id > 0) {
+			return id;
 		}
-		else {
-			Long id = collectionId.getLastId();
-			collectionId.setLastId(++id);
-			idRepository.save(collectionId);
+		synchronized (blocks) {
+			block = blocks.get(collectionName);
+			id = block == null ? -1 : block.next();
+			if (id < 0) {
+				long lastId = reserve(collectionName, BLOCK_SIZE);
+				block = new IdBlock(lastId - BLOCK_SIZE + 1, lastId);
+				id = block.next();
+				blocks.put(collectionName, block);
+			}
 			return id;
 		}
 	}
+
+	private Long reserve(String collectionName, long count) {
+		Long lastId = idRepository.incrementLastId(collectionName, count);
+		if (lastId != null) {
+			return lastId;
+		}
+		try {
+			idRepository.insert(new CollectionId(collectionName, initialId + count - 1));
+			return initialId + count - 1;
+		} catch (DuplicateKeyException exp) {
+			//the first id has been reserved meanwhile
+			return idRepository.incrementLastId(collectionName, count);
+		}
+	}
+
+	private static final class IdBlock {
+		private final AtomicLong nextId;
+		private final long lastId;
+
+		private IdBlock(long firstId, long lastId) {
+			this.nextId = new AtomicLong(firstId);
+			this.lastId = lastId;
+		}
+
+		private long next() {
+			long id = nextId.getAndIncrement();
+			return id <= lastId ? id : -1;
+		}
+	}
 }
@@ -0,0 +1,115 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.domain.Employee;
+import com.pb.lunchandlearn.repository.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/**
+ * Keeps the ancestors of each employee, every manager up the hierarchy direct ones first, so an org is one indexed
+ * query on ancestors. When the managers of an employee change, the employee and its org are recomputed, managers
+ * outside the org keep their stored ancestors. A manager cycle is cut where it is found.
+ */
+@Service
+public class OrgHierarchyService {
+	private Logger logger = LoggerFactory.getLogger(OrgHierarchyService.class);
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@PostConstruct
+	public void init() {
+		rebuildAncestors();
+	}
+
+	public void refreshAncestors(String empGuid) {
+		String guid = empGuid.toUpperCase();
+		Map<String, Employee> members = new HashMap<>();
+		for (Employee employee : employeeRepository.findHierarchyByGuids(Collections.singletonList(guid))) {
+			members.put(employee.getGuid(), employee);
+		}
+		for (Employee employee : employeeRepository.findOrgMembers(guid)) {
+			members.put(employee.getGuid(), employee);
+		}
+		employeeRepository.updateAncestors(computeChangedAncestors(members));
+	}
+
+	public void rebuildAncestors() {
+		Map<String, Employee> employees = new HashMap<>();
+		for (Employee employee : employeeRepository.findAllHierarchy()) {
+			employees.put(employee.getGuid(), employee);
+		}
+		Map<String, List<String>> changed = computeChangedAncestors(employees);
+		employeeRepository.updateAncestors(changed);
+		logger.info("Updated ancestors of {} of {} employees", changed.size(), employees.size());
+	}
+
+	private Map<String, List<String>> computeChangedAncestors(Map<String, Employee> members) {
+		Set<String> outsiders = new HashSet<>();
+		for (Employee employee : members.values()) {
+			for (String managerGuid : getManagerGuids(employee)) {
+				if (!members.containsKey(managerGuid)) {
+					outsiders.add(managerGuid);
+				}
+			}
+		}
+		Map<String, Set<String>> ancestors = new HashMap<>();
+		if (!outsiders.isEmpty()) {
+			for (Employee employee : employeeRepository.findHierarchyByGuids(outsiders)) {
+				ancestors.put(employee.getGuid(), employee.getAncestors() == null ? Collections.<String>emptySet() :
+						new LinkedHashSet<>(employee.getAncestors()));
+			}
+		}
+		Map<String, List<String>> changed = new HashMap<>();
+		for (Employee employee : members.values()) {
+			List<String> computed = new ArrayList<>(resolve(employee.getGuid(), members, ancestors,
+					new HashSet<String>()));
+			List<String> stored = employee.getAncestors() == null ? Collections.<String>emptyList() :
+					employee.getAncestors();
+			if (!computed.equals(stored)) {
+				changed.put(employee.getGuid(), computed);
+			}
+		}
+		return changed;
+	}
+
+	private Set<String> resolve(String guid, Map<String, Employee> members, Map<String, Set<String>> ancestors,
+								Set<String> visiting) {
+		Set<String> resolved = ancestors.get(guid);
+		if (resolved != null) {
+			return resolved;
+		}
+		Employee employee = members.get(guid);
+		if (employee == null || !visiting.add(guid)) {
+			//unknown manager or a cycle
+			return Collections.emptySet();
+		}
+		resolved = new LinkedHashSet<>();
+		for (String managerGuid : getManagerGuids(employee)) {
+			resolved.add(managerGuid);
+		}
+		for (String managerGuid : getManagerGuids(employee)) {
+			resolved.addAll(resolve(managerGuid, members, ancestors, visiting));
+		}
+		resolved.remove(guid);
+		visiting.remove(guid);
+		ancestors.put(guid, resolved);
+		return resolved;
+	}
+
+	private static Set<String> getManagerGuids(Employee employee) {
+		if (employee.getManagers() == null) {
+			return Collections.emptySet();
+		}
+		Set<String> guids = new TreeSet<>();
+		for (String managerGuid : employee.getManagers().keySet()) {
+			guids.add(managerGuid.toUpperCase());
+		}
+		return guids;
+	}
+}
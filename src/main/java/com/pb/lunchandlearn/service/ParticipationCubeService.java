@@ -0,0 +1,204 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.domain.*;
+import com.pb.lunchandlearn.exception.BadRequestException;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
+import com.pb.lunchandlearn.repository.ParticipationCubeRepository;
+import com.pb.lunchandlearn.repository.TrainingRatingsRepository;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the participation cube, trainings, attendees, trainers and feedback ratings of completed trainings by month,
+ * topic and location. Each cell keeps the facts of its trainings rather than sums, so refreshing a training sets
+ * the same facts again and a slice rolls up trainings and trainers counted once. A training is refreshed when it
+ * completes and when its feedbacks are added, the nightly rebuild repairs trainings changed afterwards.
+ */
+@Service
+public class ParticipationCubeService {
+	public static final String MONTH = "month";
+	public static final String TOPIC = "topic";
+	public static final String LOCATION = "location";
+	private static final List<String> DIMENSIONS = Arrays.asList(MONTH, TOPIC, LOCATION);
+	private static final Pattern MONTH_PATTERN = Pattern.compile("\\d{4}-(0[1-9]|1[0-2])");
+
+	private Logger logger = LoggerFactory.getLogger(ParticipationCubeService.class);
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Autowired
+	private TrainingRatingsRepository trainingRatingsRepository;
+
+	@Autowired
+	private ParticipationCubeRepository participationCubeRepository;
+
+	public synchronized void refreshTraining(Long trainingId) {
+		Training training;
+		try {
+			training = trainingRepository.findReadModelById(trainingId, TrainingReadModel.PARTICIPATION);
+		} catch (ResourceNotFoundException exp) {
+			//the training has been removed
+			participationCubeRepository.setTrainingFacts(trainingId, null, null, null, null);
+			return;
+		}
+		if (TrainingStatus.COMPLETED != training.getStatus() || training.getScheduledOn() == null) {
+			participationCubeRepository.setTrainingFacts(trainingId, null, null, null, null);
+			return;
+		}
+		ParticipationCell.TrainingFacts facts = new ParticipationCell.TrainingFacts();
+		facts.setAttendees(training.getTrainees() == null ? 0 : training.getTrainees().size());
+		List<String> trainers = new ArrayList<>();
+		if (training.getTrainers() != null) {
+			for (String guid : training.getTrainers().keySet()) {
+				trainers.add(guid.toUpperCase());
+			}
+		}
+		facts.setTrainers(trainers);
+		TrainingRatings trainingRatings = trainingRatingsRepository.findOne(trainingId);
+		if (trainingRatings != null && trainingRatings.getRatings() != null) {
+			for (TrainingRatings.RatingStats stats : trainingRatings.getRatings().values()) {
+				facts.setRatingSum(facts.getRatingSum() + stats.getSum());
+				facts.setRatingCount(facts.getRatingCount() + stats.getCount());
+			}
+		}
+		participationCubeRepository.setTrainingFacts(trainingId, getMonth(training.getScheduledOn()),
+				training.getTopics() == null ? null : training.getTopics().keySet(),
+				StringUtils.hasText(training.getLocation()) ? training.getLocation().trim() : null, facts);
+	}
+
+	public void refresh(Collection<Long> trainingIds) {
+		for (Long trainingId : trainingIds) {
+			refreshTraining(trainingId);
+		}
+	}
+
+	@Scheduled(cron = "${participation.rebuildCron:0 15 4 * * *}")
+	public void rebuild() {
+		Set<Long> trainingIds = new HashSet<>(trainingRepository.findIdsByStatus(TrainingStatus.COMPLETED));
+		trainingIds.addAll(participationCubeRepository.findTrainingIds());
+		for (Long trainingId : trainingIds) {
+			try {
+				refreshTraining(trainingId);
+			} catch (Exception exp) {
+				logger.error("Participation cube refresh failed for training " + trainingId, exp);
+			}
+		}
+		logger.info("Rebuilt participation cube from {} trainings", trainingIds.size());
+	}
+
+	/**
+	 * Slice of the cube between the months (both included, like 2016-07) for the topics and locations, all when not
+	 * given, rolled up by the groupBy dimensions, month, topic and location. Without groupBy only the total is given.
+	 */
+	public JSONObject getCube(String fromMonth, String toMonth, List<String> groupBy, List<Long> topicIds,
+							  List<String> locations) {
+		checkMonth(fromMonth);
+		checkMonth(toMonth);
+		List<String> dimensions = groupBy == null ? Collections.<String>emptyList() : groupBy;
+		for (String dimension : dimensions) {
+			if (!DIMENSIONS.contains(dimension)) {
+				throw new BadRequestException(MessageFormat.format("Invalid dimension {0}", dimension));
+			}
+		}
+		Map<String, Rollup> rollups = new TreeMap<>();
+		Rollup total = new Rollup();
+		for (ParticipationCell cell : participationCubeRepository.findCells(fromMonth, toMonth, topicIds, locations)) {
+			if (cell.getTrainings() == null) {
+				continue;
+			}
+			StringBuilder key = new StringBuilder();
+			for (String dimension : DIMENSIONS) {
+				if (dimensions.contains(dimension)) {
+					key.append(getValue(cell, dimension)).append(':');
+				}
+			}
+			Rollup rollup = rollups.get(key.toString());
+			if (rollup == null) {
+				rollup = new Rollup();
+				rollup.cell = cell;
+				rollups.put(key.toString(), rollup);
+			}
+			rollup.trainings.putAll(cell.getTrainings());
+			total.trainings.putAll(cell.getTrainings());
+		}
+		JSONArray rows = new JSONArray();
+		for (Rollup rollup : rollups.values()) {
+			JSONObject row = rollup.toJson();
+			for (String dimension : dimensions) {
+				row.put(TOPIC.equals(dimension) ? "topicId" : dimension, getValue(rollup.cell, dimension));
+			}
+			rows.add(row);
+		}
+		JSONObject objCube = new JSONObject();
+		objCube.put("from", fromMonth);
+		objCube.put("to", toMonth);
+		objCube.put("groupBy", dimensions);
+		objCube.put("total", total.toJson());
+		objCube.put("rows", rows);
+		return objCube;
+	}
+
+	private static Object getValue(ParticipationCell cell, String dimension) {
+		switch (dimension) {
+			case MONTH:
+				return cell.getMonth();
+			case TOPIC:
+				return cell.getTopicId();
+			default:
+				return cell.getLocation();
+		}
+	}
+
+	private static void checkMonth(String month) {
+		if (month != null && !MONTH_PATTERN.matcher(month).matches()) {
+			throw new BadRequestException(MessageFormat.format("Invalid month {0}", month));
+		}
+	}
+
+	private static String getMonth(Date date) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		return String.format("%04d-%02d", calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1);
+	}
+
+	private static final class Rollup {
+		//a cell of the rollup, for its dimension values
+		private ParticipationCell cell;
+		private final Map<String, ParticipationCell.TrainingFacts> trainings = new HashMap<>();
+
+		private JSONObject toJson() {
+			Set<String> trainers = new HashSet<>();
+			long attendees = 0;
+			long ratingSum = 0;
+			long ratingCount = 0;
+			for (ParticipationCell.TrainingFacts facts : trainings.values()) {
+				if (facts.getTrainers() != null) {
+					trainers.addAll(facts.getTrainers());
+				}
+				attendees += facts.getAttendees();
+				ratingSum += facts.getRatingSum();
+				ratingCount += facts.getRatingCount();
+			}
+			JSONObject objRollup = new JSONObject();
+			objRollup.put("trainings", trainings.size());
+			objRollup.put("attendees", attendees);
+			objRollup.put("trainers", trainers.size());
+			objRollup.put("ratingCount", ratingCount);
+			objRollup.put("averageRating", ratingCount == 0 ? 0 : (double) ratingSum / ratingCount);
+			return objRollup;
+		}
+	}
+}
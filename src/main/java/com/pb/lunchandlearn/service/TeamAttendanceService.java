@@ -0,0 +1,158 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.config.SecuredUser;
+import com.pb.lunchandlearn.domain.*;
+import com.pb.lunchandlearn.exception.BadRequestException;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
+import com.pb.lunchandlearn.exception.UnauthorizedOperationException;
+import com.pb.lunchandlearn.repository.EmployeeRepository;
+import com.pb.lunchandlearn.repository.TeamAttendanceRepository;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static com.pb.lunchandlearn.config.SecurityConfig.getLoggedInUser;
+
+/**
+ * Keeps for each manager and quarter the trainings attended by the org of the manager, so the team dashboard is one
+ * read by id. A completed training sets its attendee count in the attendance of every ancestor of its trainees,
+ * rerunning it for the same training gives the same result. Org changes are picked up by the nightly rebuild.
+ */
+@Service
+public class TeamAttendanceService {
+	private static final Pattern QUARTER = Pattern.compile("\\d{4}Q[1-4]");
+
+	private Logger logger = LoggerFactory.getLogger(TeamAttendanceService.class);
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private TeamAttendanceRepository teamAttendanceRepository;
+
+	@Autowired
+	private OrgHierarchyService orgHierarchyService;
+
+	@PostConstruct
+	public void init() {
+		indexTrainingIds();
+	}
+
+	public void refreshTraining(Long trainingId) {
+		Training training;
+		try {
+			training = trainingRepository.findReadModelById(trainingId, TrainingReadModel.ATTENDANCE);
+		} catch (ResourceNotFoundException exp) {
+			//the training has been removed
+			training = new Training();
+			training.setId(trainingId);
+		}
+		Map<String, Integer> attendeesByManager = new HashMap<>();
+		if (TrainingStatus.COMPLETED == training.getStatus() && training.getScheduledOn() != null &&
+				!CollectionUtils.isEmpty(training.getTrainees())) {
+			List<String> traineeGuids = new ArrayList<>(training.getTrainees().size());
+			for (String guid : training.getTrainees().keySet()) {
+				traineeGuids.add(guid.toUpperCase());
+			}
+			for (Employee trainee : employeeRepository.findHierarchyByGuids(traineeGuids)) {
+				if (trainee.getAncestors() != null) {
+					for (String managerGuid : trainee.getAncestors()) {
+						Integer attendees = attendeesByManager.get(managerGuid);
+						attendeesByManager.put(managerGuid, attendees == null ? 1 : attendees + 1);
+					}
+				}
+			}
+		}
+		teamAttendanceRepository.setTrainingAttendance(training,
+				training.getScheduledOn() == null ? null : getQuarter(training.getScheduledOn()), attendeesByManager);
+	}
+
+	@Scheduled(cron = "${team.attendance.rebuildCron:0 45 3 * * *}")
+	public void rebuild() {
+		orgHierarchyService.rebuildAncestors();
+		List<Long> trainingIds = trainingRepository.findIdsByStatus(TrainingStatus.COMPLETED);
+		for (Long trainingId : trainingIds) {
+			try {
+				refreshTraining(trainingId);
+			} catch (Exception exp) {
+				logger.error("Team attendance refresh failed for training " + trainingId, exp);
+			}
+		}
+		logger.info("Rebuilt team attendance of {} trainings", trainingIds.size());
+	}
+
+	/**
+	 * Team attendance of the manager in the quarter, the current one by default. Only the manager and admins can
+	 * see it.
+	 */
+	public JSONObject getTeamAttendance(String managerGuid, String quarter) {
+		String guid = managerGuid.toUpperCase();
+		SecuredUser user = getLoggedInUser();
+		if (!user.isAdmin() && !guid.equalsIgnoreCase(user.getGuid())) {
+			throw new UnauthorizedOperationException("Only the manager can see the team attendance");
+		}
+		if (StringUtils.isEmpty(quarter)) {
+			quarter = getQuarter(new Date());
+		} else if (!QUARTER.matcher(quarter).matches()) {
+			throw new BadRequestException(MessageFormat.format("Invalid quarter {0}", quarter));
+		}
+		TeamAttendance teamAttendance = teamAttendanceRepository.findOne(TeamAttendance.getId(guid, quarter));
+		List<Map.Entry<String, TeamAttendance.TrainingAttendance>> entries = new ArrayList<>();
+		if (teamAttendance != null && teamAttendance.getTrainings() != null) {
+			entries.addAll(teamAttendance.getTrainings().entrySet());
+		}
+		Collections.sort(entries, new Comparator<Map.Entry<String, TeamAttendance.TrainingAttendance>>() {
+			@Override
+			public int compare(Map.Entry<String, TeamAttendance.TrainingAttendance> first,
+							   Map.Entry<String, TeamAttendance.TrainingAttendance> second) {
+				return first.getValue().getScheduledOn().compareTo(second.getValue().getScheduledOn());
+			}
+		});
+		JSONArray trainings = new JSONArray();
+		int attendees = 0;
+		for (Map.Entry<String, TeamAttendance.TrainingAttendance> entry : entries) {
+			JSONObject objTraining = new JSONObject();
+			objTraining.put("id", Long.valueOf(entry.getKey()));
+			objTraining.put("name", entry.getValue().getName());
+			objTraining.put("scheduledOn", entry.getValue().getScheduledOn());
+			objTraining.put("attendees", entry.getValue().getAttendees());
+			trainings.add(objTraining);
+			attendees += entry.getValue().getAttendees();
+		}
+		JSONObject objTeamAttendance = new JSONObject();
+		objTeamAttendance.put("managerGuid", guid);
+		objTeamAttendance.put("quarter", quarter);
+		objTeamAttendance.put("attendees", attendees);
+		objTeamAttendance.put("trainings", trainings);
+		return objTeamAttendance;
+	}
+
+	//team attendances written before they had trainingIds, a refresh finds their trainings only once indexed
+	private void indexTrainingIds() {
+		int indexed = teamAttendanceRepository.indexTrainingIds();
+		if (indexed > 0) {
+			logger.info("Indexed the trainings of {} team attendances", indexed);
+		}
+	}
+
+	private static String getQuarter(Date date) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		return calendar.get(Calendar.YEAR) + "Q" + (calendar.get(Calendar.MONTH) / 3 + 1);
+	}
+}
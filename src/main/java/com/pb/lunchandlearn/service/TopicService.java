@@ -1,9 +1,12 @@
 package com.pb.lunchandlearn.service;
 
+import com.mongodb.DBObject;
 import com.pb.lunchandlearn.config.LikeType;
 import com.pb.lunchandlearn.config.SecuredUser;
 import com.pb.lunchandlearn.config.SecurityConfig;
 import com.pb.lunchandlearn.domain.*;
+import com.pb.lunchandlearn.exception.ConflictException;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
 import com.pb.lunchandlearn.repository.TopicRepository;
 import com.pb.lunchandlearn.service.mail.MailService;
 import com.pb.lunchandlearn.utils.CommonUtil;
@@ -17,9 +20,7 @@ import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static com.pb.lunchandlearn.config.SecurityConfig.getLoggedInUser;
 import static com.pb.lunchandlearn.utils.CommonUtil.SORT_BY_LIKES;
@@ -29,12 +30,25 @@ import static com.pb.lunchandlearn.utils.CommonUtil.SORT_BY_LIKES;
  */
 @Service
 public class TopicService {
+	public static final Set<String> SELECTABLE_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"name", "desc", "interestedEmployees", "employeesKnowAbout", "trainings", "likesCount", "createdByGuid",
+			"createdByName", "lastModifiedByGuid", "lastModifiedByName", "createDateTime", "lastModifiedOn", "version")));
+
+	//fields a PATCH may write, everything else is maintained by the server
+	public static final Set<String> EDITABLE_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"name", "desc", "employeesKnowAbout")));
+
 	@Autowired
 	private TopicRepository topicRepository;
 
+	@Autowired
+	private TopicStatsService topicStatsService;
+
 	@Autowired
 	private EmployeeService employeeService;
 
+	private static final int DEFAULT_TRAININGS_LIMIT = 20;
+	private static final int MAX_TRAININGS_LIMIT = 100;
 	private static Pageable recentPageable;
 	private static Pageable topByLikesPageable;
 
@@ -45,6 +59,21 @@ public class TopicService {
 		return getTopicsJSON(topicRepository.findAll(pageable), contentOnly);
 	}
 
+	public JSONObject getAllFields(Pageable pageable, String searchTerm, String fields) {
+		TextCriteria textCriteria = StringUtils.isEmpty(searchTerm) ? null :
+				TextCriteria.forDefaultLanguage().matching(searchTerm);
+		return CommonUtil.getFieldsJson(topicRepository.findAllFields(textCriteria,
+				CommonUtil.parseFields(fields, SELECTABLE_FIELDS), CommonUtil.getSortedPageable(pageable)), "id");
+	}
+
+	public JSONObject getTopicFields(Long topicId, String fields) {
+		DBObject topic = topicRepository.findFieldsById(topicId, CommonUtil.parseFields(fields, SELECTABLE_FIELDS));
+		if (topic == null) {
+			throw new ResourceNotFoundException("Topic does not exist");
+		}
+		return CommonUtil.getFieldsJson(topic, "id");
+	}
+
 	public Long getCount() {
 		return topicRepository.count();
 	}
@@ -65,8 +94,26 @@ public class TopicService {
 		return topicRepository.insert(topic);
 	}
 
+	/**
+	 * Writes only the fields that changed since the version the client read, null when nothing changed.
+	 */
 	public Topic update(Topic topic) {
-		return topicRepository.save(topic);
+		Set<String> changedFields = topicRepository.updateChangedFields(topic, getLoggedInUser());
+		if (changedFields == null) {
+			throw new ConflictException("Topic has been modified meanwhile, reload it and try again");
+		}
+		if (changedFields.isEmpty()) {
+			return null;
+		}
+		if (changedFields.contains("name")) {
+			employeeService.updateTopics(topic.getId(), topic.getName());
+		}
+		return topicRepository.findById(topic.getId());
+	}
+
+	public String getETag(Long topicId) {
+		Topic topic = topicRepository.findVersionById(topicId);
+		return CommonUtil.getETag("topic", topicId, topic.getVersion(), topic.getLastModifiedOn());
 	}
 
 	public List<Topic> getTrendingTopics() {
@@ -197,10 +244,19 @@ public class TopicService {
 	}
 
 	public boolean updateField(Long topicId, SimpleFieldEntry simpleFieldEntry) {
-		if(topicRepository.updateByFieldName(topicId, simpleFieldEntry, getLoggedInUser())) {
-			if(simpleFieldEntry.getName() == "name") {
+		return applyFields(topicId, Collections.singletonList(simpleFieldEntry));
+	}
+
+	public boolean updateFields(Long topicId, List<SimpleFieldEntry> simpleFieldEntries) {
+		return applyFields(topicId, simpleFieldEntries);
+	}
+
+	private boolean applyFields(Long topicId, List<SimpleFieldEntry> simpleFieldEntries) {
+		Map<String, SimpleFieldEntry> entries = CommonUtil.getFieldEntries(simpleFieldEntries, EDITABLE_FIELDS);
+		if(topicRepository.updateByFieldNames(topicId, simpleFieldEntries, getLoggedInUser())) {
+			if(entries.containsKey("name")) {
 				//update respective trainings and employees
-				employeeService.updateTopics(topicId, simpleFieldEntry.getValue().toString());
+				employeeService.updateTopics(topicId, entries.get("name").getValue().toString());
 			}
 			return true;
 		}
@@ -208,31 +264,24 @@ public class TopicService {
 	}
 
 	public JSONArray getTrainings(Long topicId) {
-		return getTrainings(topicId, null);
+		Topic topic = topicRepository.findTrainingsById(topicId);
+		return CommonUtil.getMiniTrainingDetails(topic == null ? null : topic.getTrainings());
 	}
 
-	public JSONArray getTrainings(Long topicId, String type) {
-		Topic topic;
-		JSONArray array = new JSONArray();
+	public JSONArray getTrainings(Long topicId, String type, Integer offset, Integer limit) {
+		int pageOffset = offset == null ? 0 : Math.max(0, offset);
+		int pageLimit = CommonUtil.getPageLimit(limit, DEFAULT_TRAININGS_LIMIT, MAX_TRAININGS_LIMIT);
+		List<MiniTrainingDetail> trainings;
 		if("passed".equalsIgnoreCase(type)) {
-			topic = topicRepository.findTrainingsByIdAndBeforeDate(topicId, new Date());
+			trainings = topicRepository.findTrainingsByIdAndBeforeDate(topicId, new Date(), pageOffset, pageLimit);
 		}
 		else if("upcoming".equalsIgnoreCase(type)) {
-			topic = topicRepository.findTrainingsByIdAndAfterDate(topicId, new Date());
+			trainings = topicRepository.findTrainingsByIdAndAfterDate(topicId, new Date(), pageOffset, pageLimit);
 		}
 		else {
-			topic = topicRepository.findTrainingsById(topicId);
-		}
-		if(topic != null && !StringUtils.isEmpty(topic.getTrainings())) {
-			for (MiniTrainingDetail training : topic.getTrainings()) {
-				JSONObject obj = new JSONObject();
-				obj.put("id", training.getId());
-				obj.put("name", training.getName());
-				obj.put("status", training.getStatus());
-				array.add(obj);
-			}
+			return getTrainings(topicId);
 		}
-		return array;
+		return CommonUtil.getMiniTrainingDetails(trainings);
 	}
 
 	public void addTrainingTo(Map<Long, String> topics, Training training) {
@@ -241,6 +290,7 @@ public class TopicService {
 				topicRepository.upsertTraining(topic.getKey(), training);
 			}
 		}
+		topicStatsService.refreshTraining(training.getId());
 	}
 
 	public void removeTrainingFrom(Map<Long, String> topics, Long trainingId) {
@@ -249,6 +299,11 @@ public class TopicService {
 				topicRepository.removeTraining(topic.getKey(), trainingId);
 			}
 		}
+		topicStatsService.refreshTraining(trainingId);
+	}
+
+	public JSONObject getTopicStats(Long topicId) {
+		return CommonUtil.getTopicStats(topicId, topicStatsService.getTopicStats(topicId), new Date());
 	}
 
 	public void removeEmployees(Map<Long, String> topics, String empGuid, String employeesStr) {
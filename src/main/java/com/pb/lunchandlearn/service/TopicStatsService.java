@@ -0,0 +1,106 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.domain.TopicStats;
+import com.pb.lunchandlearn.domain.Training;
+import com.pb.lunchandlearn.domain.TrainingReadModel;
+import com.pb.lunchandlearn.domain.TrainingStatus;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
+import com.pb.lunchandlearn.repository.TopicStatsRepository;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Maintains the topicStats read model from the hooks updating the trainings of topics. Topic stats are cached until
+ * one of their trainings changes, the nightly rebuild repairs trainings changed without a hook.
+ */
+@Service
+public class TopicStatsService {
+	public static final String TOPIC_STATS_CACHE = "topicStats";
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Autowired
+	private TopicStatsRepository topicStatsRepository;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private Logger logger = LoggerFactory.getLogger(TopicStatsService.class);
+
+	@Cacheable(TOPIC_STATS_CACHE)
+	public TopicStats getTopicStats(Long topicId) {
+		return topicStatsRepository.findOne(topicId);
+	}
+
+	/**
+	 * Swaps the entries of the training in the stats of its topics, and removes them from topics it no longer has.
+	 */
+	public void refreshTraining(Long trainingId) {
+		Training training;
+		try {
+			training = trainingRepository.findReadModelById(trainingId, TrainingReadModel.TOPIC_STATS);
+		} catch (ResourceNotFoundException exp) {
+			//the training has been removed
+			training = null;
+		}
+		Set<Long> topicIds = new HashSet<>(topicStatsRepository.findTopicIdsByTraining(trainingId));
+		TopicStats.TrainingEntry entry = null;
+		if (training != null && training.getStatus() != null && training.getTopics() != null) {
+			entry = new TopicStats.TrainingEntry();
+			entry.setName(training.getName());
+			entry.setStatus(training.getStatus());
+			entry.setScheduledOn(training.getScheduledOn());
+			entry.setAttendees(TrainingStatus.COMPLETED != training.getStatus() || training.getTrainees() == null ?
+					0 : training.getTrainees().size());
+			topicIds.addAll(training.getTopics().keySet());
+		}
+		Cache cache = cacheManager.getCache(TOPIC_STATS_CACHE);
+		for (Long topicId : topicIds) {
+			TopicStats.TrainingEntry topicEntry = entry != null && training.getTopics().containsKey(topicId) ?
+					entry : null;
+			topicStatsRepository.swapTraining(topicId, trainingId, topicEntry);
+			cache.evict(topicId);
+		}
+	}
+
+	/**
+	 * Refreshes every training with topics and those of the stats, then recounts the stats from their entries.
+	 */
+	@Scheduled(cron = "${topic.stats.rebuildCron:0 30 3 * * *}")
+	public void rebuild() {
+		Set<Long> trainingIds = new HashSet<>(trainingRepository.findIdsWithTopics());
+		Set<Long> topicIds = new HashSet<>();
+		for (TopicStats topicStats : topicStatsRepository.findAll()) {
+			topicIds.add(topicStats.getTopicId());
+			if (topicStats.getTrainings() != null) {
+				for (String trainingId : topicStats.getTrainings().keySet()) {
+					trainingIds.add(Long.valueOf(trainingId));
+				}
+			}
+		}
+		for (Long trainingId : trainingIds) {
+			try {
+				refreshTraining(trainingId);
+			} catch (Exception exp) {
+				logger.error("Topic stats refresh failed for training " + trainingId, exp);
+			}
+		}
+		Cache cache = cacheManager.getCache(TOPIC_STATS_CACHE);
+		for (Long topicId : topicIds) {
+			topicStatsRepository.recount(topicId);
+			cache.evict(topicId);
+		}
+		logger.info("Rebuilt topic stats from {} trainings", trainingIds.size());
+	}
+}
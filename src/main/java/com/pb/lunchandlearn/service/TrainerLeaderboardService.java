@@ -0,0 +1,300 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.domain.*;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
+import com.pb.lunchandlearn.repository.LeaderboardContributionRepository;
+import com.pb.lunchandlearn.repository.TrainingRatingsRepository;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import com.pb.lunchandlearn.utils.RankedSet;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ranks trainers by trainings imparted, attendance and average feedback rating, overall and per topic. Standings
+ * are the sums of the contributions of completed trainings and are kept ranked in memory, so a page or the rank of
+ * a trainer costs O(log n). A training is refreshed when it completes and when its feedbacks are added, its
+ * contribution is persisted first and the standings are restored from the contributions on restart.
+ */
+@Service
+public class TrainerLeaderboardService {
+	private static final String OVERALL = "all";
+	private static final Map<LeaderboardMetric, Comparator<Standing>> COMPARATORS = new EnumMap<>(
+			LeaderboardMetric.class);
+
+	static {
+		for (final LeaderboardMetric metric : LeaderboardMetric.values()) {
+			COMPARATORS.put(metric, new Comparator<Standing>() {
+				@Override
+				public int compare(Standing first, Standing second) {
+					int compared = Double.compare(second.getValue(metric), first.getValue(metric));
+					return compared != 0 ? compared : first.guid.compareTo(second.guid);
+				}
+			});
+		}
+	}
+
+	private Logger logger = LoggerFactory.getLogger(TrainerLeaderboardService.class);
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Long, LeaderboardContribution> contributions = new HashMap<>();
+	//scope:guid to standing, the scope is all or a topic id
+	private final Map<String, Standing> standings = new HashMap<>();
+	private final Map<String, Map<LeaderboardMetric, RankedSet<Standing>>> rankings = new HashMap<>();
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Autowired
+	private TrainingRatingsRepository trainingRatingsRepository;
+
+	@Autowired
+	private LeaderboardContributionRepository leaderboardContributionRepository;
+
+	@PostConstruct
+	public void init() {
+		List<LeaderboardContribution> saved = leaderboardContributionRepository.findAll();
+		for (LeaderboardContribution contribution : saved) {
+			apply(contribution.getTrainingId(), contribution);
+		}
+		logger.info("Restored trainer leaderboard from {} trainings", saved.size());
+	}
+
+	public synchronized void refresh(Long trainingId) {
+		LeaderboardContribution contribution = getContribution(trainingId);
+		if (contribution == null) {
+			leaderboardContributionRepository.delete(trainingId);
+		} else {
+			leaderboardContributionRepository.save(contribution);
+		}
+		apply(trainingId, contribution);
+	}
+
+	public void refresh(Collection<Long> trainingIds) {
+		for (Long trainingId : trainingIds) {
+			refresh(trainingId);
+		}
+	}
+
+	/**
+	 * Refreshes every completed training and drops the contributions of trainings no longer completed, repairing
+	 * standings that missed a change of trainers, trainees or topics.
+	 */
+	@Scheduled(cron = "${leaderboard.rebuildCron:0 0 3 * * *}")
+	public void rebuild() {
+		Set<Long> trainingIds = new HashSet<>(trainingRepository.findIdsByStatus(TrainingStatus.COMPLETED));
+		lock.readLock().lock();
+		try {
+			trainingIds.addAll(contributions.keySet());
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (Long trainingId : trainingIds) {
+			try {
+				refresh(trainingId);
+			} catch (Exception exp) {
+				logger.error("Trainer leaderboard refresh failed for training " + trainingId, exp);
+			}
+		}
+		logger.info("Rebuilt trainer leaderboard from {} trainings", trainingIds.size());
+	}
+
+	public JSONObject getLeaderboard(LeaderboardMetric metric, Long topicId, Pageable pageable) {
+		JSONObject leaderboard = new JSONObject();
+		JSONArray entries = new JSONArray();
+		lock.readLock().lock();
+		try {
+			RankedSet<Standing> ranking = getRanking(getScope(topicId), metric);
+			leaderboard.put("total", ranking == null ? 0 : ranking.size());
+			if (ranking != null) {
+				int rank = pageable.getOffset();
+				for (Standing standing : ranking.subList(pageable.getOffset(), pageable.getPageSize())) {
+					entries.add(standing.toJson(++rank));
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		leaderboard.put("metric", metric.name());
+		leaderboard.put("topicId", topicId);
+		leaderboard.put("entries", entries);
+		return leaderboard;
+	}
+
+	public JSONObject getStanding(String guid, LeaderboardMetric metric, Long topicId) {
+		String scope = getScope(topicId);
+		lock.readLock().lock();
+		try {
+			Standing standing = standings.get(getKey(scope, guid.toUpperCase()));
+			if (standing == null) {
+				throw new ResourceNotFoundException("Trainer has no standing");
+			}
+			JSONObject objStanding = standing.toJson(getRanking(scope, metric).indexOf(standing) + 1);
+			objStanding.put("metric", metric.name());
+			objStanding.put("topicId", topicId);
+			return objStanding;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private LeaderboardContribution getContribution(Long trainingId) {
+		Training training;
+		try {
+			training = trainingRepository.findReadModelById(trainingId, TrainingReadModel.LEADERBOARD);
+		} catch (ResourceNotFoundException exp) {
+			//the training has been removed
+			return null;
+		}
+		if (TrainingStatus.COMPLETED != training.getStatus() ||
+				CollectionUtils.isEmpty(training.getTrainers())) {
+			return null;
+		}
+		LeaderboardContribution contribution = new LeaderboardContribution();
+		contribution.setTrainingId(trainingId);
+		contribution.setTrainers(new HashMap<>(training.getTrainers()));
+		contribution.setTopicIds(training.getTopics() == null ? new ArrayList<Long>() :
+				new ArrayList<>(training.getTopics().keySet()));
+		contribution.setAttendees(training.getTrainees() == null ? 0 : training.getTrainees().size());
+		TrainingRatings trainingRatings = trainingRatingsRepository.findOne(trainingId);
+		if (trainingRatings != null && trainingRatings.getRatings() != null) {
+			for (TrainingRatings.RatingStats stats : trainingRatings.getRatings().values()) {
+				contribution.setRatingSum(contribution.getRatingSum() + stats.getSum());
+				contribution.setRatingCount(contribution.getRatingCount() + stats.getCount());
+			}
+		}
+		contribution.setUpdatedOn(new Date());
+		return contribution;
+	}
+
+	private void apply(Long trainingId, LeaderboardContribution contribution) {
+		lock.writeLock().lock();
+		try {
+			LeaderboardContribution previous = contribution == null ? contributions.remove(trainingId) :
+					contributions.put(trainingId, contribution);
+			if (previous != null) {
+				add(previous, -1);
+			}
+			if (contribution != null) {
+				add(contribution, 1);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void add(LeaderboardContribution contribution, int sign) {
+		List<String> scopes = new ArrayList<>();
+		scopes.add(OVERALL);
+		for (Long topicId : contribution.getTopicIds()) {
+			scopes.add(getScope(topicId));
+		}
+		for (String scope : scopes) {
+			for (Map.Entry<String, String> trainer : contribution.getTrainers().entrySet()) {
+				String key = getKey(scope, trainer.getKey().toUpperCase());
+				Standing standing = standings.get(key);
+				if (standing == null) {
+					standing = new Standing(scope, trainer.getKey().toUpperCase());
+					standings.put(key, standing);
+				} else {
+					rank(standing, false);
+				}
+				if (sign > 0) {
+					standing.name = trainer.getValue();
+				}
+				standing.trainingsImparted += sign;
+				standing.attendance += sign * contribution.getAttendees();
+				standing.ratingSum += sign * contribution.getRatingSum();
+				standing.ratingCount += sign * contribution.getRatingCount();
+				if (standing.trainingsImparted > 0) {
+					rank(standing, true);
+				} else {
+					standings.remove(key);
+				}
+			}
+		}
+	}
+
+	private void rank(Standing standing, boolean add) {
+		Map<LeaderboardMetric, RankedSet<Standing>> scopeRankings = rankings.get(standing.scope);
+		if (scopeRankings == null) {
+			scopeRankings = new EnumMap<>(LeaderboardMetric.class);
+			for (LeaderboardMetric metric : LeaderboardMetric.values()) {
+				scopeRankings.put(metric, new RankedSet<>(COMPARATORS.get(metric)));
+			}
+			rankings.put(standing.scope, scopeRankings);
+		}
+		for (RankedSet<Standing> ranking : scopeRankings.values()) {
+			if (add) {
+				ranking.add(standing);
+			} else {
+				ranking.remove(standing);
+			}
+		}
+	}
+
+	private RankedSet<Standing> getRanking(String scope, LeaderboardMetric metric) {
+		Map<LeaderboardMetric, RankedSet<Standing>> scopeRankings = rankings.get(scope);
+		return scopeRankings == null ? null : scopeRankings.get(metric);
+	}
+
+	private static String getScope(Long topicId) {
+		return topicId == null ? OVERALL : topicId.toString();
+	}
+
+	private static String getKey(String scope, String guid) {
+		return scope + ":" + guid;
+	}
+
+	private static final class Standing {
+		private final String scope;
+		private final String guid;
+		private String name;
+		private long trainingsImparted;
+		private long attendance;
+		private long ratingSum;
+		private long ratingCount;
+
+		private Standing(String scope, String guid) {
+			this.scope = scope;
+			this.guid = guid;
+		}
+
+		private double getAverageRating() {
+			return ratingCount == 0 ? 0 : (double) ratingSum / ratingCount;
+		}
+
+		private double getValue(LeaderboardMetric metric) {
+			switch (metric) {
+				case TRAININGS_IMPARTED:
+					return trainingsImparted;
+				case ATTENDANCE:
+					return attendance;
+				default:
+					return getAverageRating();
+			}
+		}
+
+		private JSONObject toJson(int rank) {
+			JSONObject objStanding = new JSONObject();
+			objStanding.put("rank", rank);
+			objStanding.put("guid", guid);
+			objStanding.put("name", name);
+			objStanding.put("trainingsImparted", trainingsImparted);
+			objStanding.put("attendance", attendance);
+			objStanding.put("averageRating", getAverageRating());
+			objStanding.put("ratingCount", ratingCount);
+			return objStanding;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.domain.TrainingStatus;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves completed and cancelled trainings scheduled long ago to the archive collection, in small batches with a
+ * pause in between so the job does not compete with user traffic.
+ */
+@Service
+public class TrainingArchiveService {
+	private static final List<TrainingStatus> ARCHIVABLE_STATUSES = Arrays.asList(TrainingStatus.COMPLETED,
+			TrainingStatus.CANCELLED);
+
+	private Logger logger = LoggerFactory.getLogger(TrainingArchiveService.class);
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	@Value("${archive.trainings.ageDays:180}")
+	private int ageDays;
+
+	@Value("${archive.trainings.batchSize:50}")
+	private int batchSize;
+
+	@Value("${archive.trainings.pauseMillis:500}")
+	private long pauseMillis;
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Scheduled(cron = "${archive.trainings.cron:0 0 2 * * *}")
+	public void archiveTrainings() {
+		if (!running.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			Calendar calendar = Calendar.getInstance();
+			calendar.add(Calendar.DAY_OF_MONTH, -ageDays);
+			Date scheduledBefore = calendar.getTime();
+			int archived = 0;
+			List<Long> trainingIds;
+			do {
+				trainingIds = trainingRepository.findArchivableIds(ARCHIVABLE_STATUSES, scheduledBefore, batchSize);
+				for (Long trainingId : trainingIds) {
+					if (trainingRepository.archiveTraining(trainingId)) {
+						++archived;
+					}
+				}
+				Thread.sleep(pauseMillis);
+			} while (trainingIds.size() == batchSize);
+			logger.info("Archived {} trainings scheduled before {}", archived, scheduledBefore);
+		} catch (InterruptedException exp) {
+			Thread.currentThread().interrupt();
+		} finally {
+			running.set(false);
+		}
+	}
+}
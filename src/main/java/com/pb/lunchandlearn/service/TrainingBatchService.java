@@ -0,0 +1,202 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.config.SecuredUser;
+import com.pb.lunchandlearn.domain.BatchRequestEntry;
+import com.pb.lunchandlearn.domain.Training;
+import com.pb.lunchandlearn.exception.BadRequestException;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import com.pb.lunchandlearn.utils.CommonUtil;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import javax.annotation.PreDestroy;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.pb.lunchandlearn.config.SecurityConfig.getLoggedInUser;
+
+/**
+ * Serves several training sub-resource reads in one round trip. Parts of the same training are read with one
+ * query over the union of their fields, the whole training is read like GET /training/{id}, feedbacks and comments
+ * come from their own collections, and all reads run in parallel.
+ */
+@Service
+public class TrainingBatchService {
+	public static final String FEEDBACKS_PART = "feedbacks";
+	public static final String COMMENTS_PART = "comments";
+	private static final String TRAINING_PART = "training";
+	private static final Map<String, List<String>> PART_FIELDS;
+	private static final short THREAD_POOL_SIZE = 10;
+	private static final short MAX_BATCH_SIZE = 20;
+	private static final long BATCH_TIMEOUT_SECONDS = 30;
+
+	static {
+		Map<String, List<String>> partFields = new HashMap<>();
+		partFields.put("minimal", Arrays.asList("name", "likesCount", "scheduledOn", "topics", "location", "duration"));
+		partFields.put("topics", Collections.singletonList("topics"));
+		partFields.put("trainees", Collections.singletonList("trainees"));
+		partFields.put("attachments", Arrays.asList("attachmentInfos.fileName", "attachmentInfos.size"));
+		PART_FIELDS = Collections.unmodifiableMap(partFields);
+	}
+
+	private Logger logger = LoggerFactory.getLogger(TrainingBatchService.class);
+	private ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@PreDestroy
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	public JSONArray execute(List<BatchRequestEntry> entries) {
+		validate(entries);
+		Map<Long, Set<String>> fieldsByTraining = new LinkedHashMap<>();
+		Set<Long> feedbackTrainings = new LinkedHashSet<>();
+		Set<Long> commentTrainings = new LinkedHashSet<>();
+		Set<Long> wholeTrainings = new LinkedHashSet<>();
+		for (BatchRequestEntry entry : entries) {
+			if (FEEDBACKS_PART.equals(entry.getPart())) {
+				feedbackTrainings.add(entry.getId());
+				continue;
+			}
+			if (COMMENTS_PART.equals(entry.getPart())) {
+				commentTrainings.add(entry.getId());
+				continue;
+			}
+			if (TRAINING_PART.equals(entry.getPart())) {
+				wholeTrainings.add(entry.getId());
+				continue;
+			}
+			Set<String> fields = fieldsByTraining.get(entry.getId());
+			if (fields == null) {
+				fields = new HashSet<>();
+				fieldsByTraining.put(entry.getId(), fields);
+			}
+			fields.addAll(PART_FIELDS.get(entry.getPart()));
+		}
+
+		Map<Long, Future<Training>> trainings = new HashMap<>(fieldsByTraining.size());
+		for (final Map.Entry<Long, Set<String>> fieldsEntry : fieldsByTraining.entrySet()) {
+			trainings.put(fieldsEntry.getKey(), executor.submit(new Callable<Training>() {
+				@Override
+				public Training call() throws Exception {
+					return trainingRepository.findPartsById(fieldsEntry.getKey(), fieldsEntry.getValue());
+				}
+			}));
+		}
+		//same read and exclusions as GET /training/{id}, the batch must not expose more than the single resource
+		Map<Long, Future<Training>> fullTrainings = new HashMap<>(wholeTrainings.size());
+		for (final Long trainingId : wholeTrainings) {
+			fullTrainings.put(trainingId, executor.submit(new Callable<Training>() {
+				@Override
+				public Training call() throws Exception {
+					return trainingService.getTrainingById(trainingId);
+				}
+			}));
+		}
+		//security context is bound to the request thread, hand the user over explicitly
+		final SecuredUser user = feedbackTrainings.isEmpty() ? null : getLoggedInUser();
+		Map<Long, Future<JSONArray>> feedbacks = new HashMap<>(feedbackTrainings.size());
+		for (final Long trainingId : feedbackTrainings) {
+			feedbacks.put(trainingId, executor.submit(new Callable<JSONArray>() {
+				@Override
+				public JSONArray call() throws Exception {
+					return trainingService.getFeedBacks(trainingId, user);
+				}
+			}));
+		}
+
+		Map<Long, Future<JSONObject>> comments = new HashMap<>(commentTrainings.size());
+		for (final Long trainingId : commentTrainings) {
+			comments.put(trainingId, executor.submit(new Callable<JSONObject>() {
+				@Override
+				public JSONObject call() throws Exception {
+					return trainingService.getComments(trainingId, null, null, null);
+				}
+			}));
+		}
+
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(BATCH_TIMEOUT_SECONDS);
+		JSONArray results = new JSONArray();
+		for (BatchRequestEntry entry : entries) {
+			JSONObject result = new JSONObject();
+			result.put("id", entry.getId());
+			result.put("part", entry.getPart());
+			try {
+				if (FEEDBACKS_PART.equals(entry.getPart())) {
+					result.put("body", await(feedbacks.get(entry.getId()), deadline));
+				} else if (COMMENTS_PART.equals(entry.getPart())) {
+					result.put("body", await(comments.get(entry.getId()), deadline));
+				} else if (TRAINING_PART.equals(entry.getPart())) {
+					result.put("body", await(fullTrainings.get(entry.getId()), deadline));
+				} else {
+					result.put("body", getPart(await(trainings.get(entry.getId()), deadline), entry.getPart()));
+				}
+				result.put("status", HttpStatus.OK.value());
+			} catch (ResourceNotFoundException exp) {
+				result.put("status", HttpStatus.NOT_FOUND.value());
+				result.put("error", exp.getMessage());
+			} catch (TimeoutException exp) {
+				result.put("status", HttpStatus.GATEWAY_TIMEOUT.value());
+			} catch (Exception exp) {
+				logger.error("Batch read failed for " + entry, exp);
+				result.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
+			}
+			results.add(result);
+		}
+		return results;
+	}
+
+	private static <T> T await(Future<T> future, long deadline) throws Exception {
+		try {
+			return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		} catch (ExecutionException exp) {
+			if (exp.getCause() instanceof Exception) {
+				throw (Exception) exp.getCause();
+			}
+			throw exp;
+		}
+	}
+
+	private static Object getPart(Training training, String part) {
+		switch (part) {
+			case "minimal":
+				return CommonUtil.getTrainingJsonBrief(training);
+			case "topics":
+				return training.getTopics() == null ? new JSONObject() : new JSONObject(training.getTopics());
+			case "trainees":
+				return training.getTrainees();
+			default:
+				return CommonUtil.getFileAttachmentInfosBrief(training.getAttachmentInfos());
+		}
+	}
+
+	private static void validate(List<BatchRequestEntry> entries) {
+		if (CollectionUtils.isEmpty(entries)) {
+			throw new BadRequestException("Batch is empty");
+		}
+		if (entries.size() > MAX_BATCH_SIZE) {
+			throw new BadRequestException(MessageFormat.format("Batch can''t have more than {0} entries", MAX_BATCH_SIZE));
+		}
+		for (BatchRequestEntry entry : entries) {
+			if (entry.getId() == null || (!FEEDBACKS_PART.equals(entry.getPart()) &&
+					!COMMENTS_PART.equals(entry.getPart()) && !TRAINING_PART.equals(entry.getPart()) &&
+					!PART_FIELDS.containsKey(entry.getPart()))) {
+				throw new BadRequestException(MessageFormat.format("Invalid batch entry {0}", entry));
+			}
+		}
+	}
+}
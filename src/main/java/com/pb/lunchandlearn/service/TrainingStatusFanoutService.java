@@ -0,0 +1,122 @@
+package com.pb.lunchandlearn.service;
+
+import com.pb.lunchandlearn.domain.Training;
+import com.pb.lunchandlearn.domain.TrainingStatus;
+import com.pb.lunchandlearn.repository.TrainingRepository;
+import com.pb.lunchandlearn.service.mail.MailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updates topics and trainers and sends the mails of a status change off the request thread. The change marks the
+ * training pending with a token in the same write, so a fan-out lost with a restart is picked up by the sweep and
+ * a fan-out done is cleared only for the change it was done for.
+ */
+@Service
+public class TrainingStatusFanoutService {
+	private static final short THREAD_POOL_SIZE = 4;
+
+	private Logger logger = LoggerFactory.getLogger(TrainingStatusFanoutService.class);
+	private ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+
+	//a pending fan-out younger than this is left to the task submitted with the change
+	@Value("${training.statusFanout.graceSeconds:60}")
+	private long graceSeconds;
+
+	@Value("${training.statusFanout.batchSize:100}")
+	private int batchSize;
+
+	@Autowired
+	private TrainingRepository trainingRepository;
+
+	@Autowired
+	private TopicService topicService;
+
+	@Autowired
+	private EmployeeService employeeService;
+
+	@Autowired
+	private MailService mailService;
+
+	@Autowired
+	private TrainerLeaderboardService trainerLeaderboardService;
+
+	@Autowired
+	private TeamAttendanceService teamAttendanceService;
+
+	@Autowired
+	private ParticipationCubeService participationCubeService;
+
+	@Autowired
+	private CohortIndexService cohortIndexService;
+
+	@PreDestroy
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	public void submit(final Long trainingId) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				fanout(trainingId);
+			}
+		});
+	}
+
+	@Scheduled(fixedDelayString = "${training.statusFanout.sweepMillis:60000}")
+	public void sweep() {
+		Date modifiedBefore = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(graceSeconds));
+		List<Long> trainingIds = trainingRepository.findPendingStatusFanoutIds(modifiedBefore, batchSize);
+		for (Long trainingId : trainingIds) {
+			fanout(trainingId);
+		}
+		if (!trainingIds.isEmpty()) {
+			logger.info("Completed {} pending training status fan-outs", trainingIds.size());
+		}
+	}
+
+	private void fanout(Long trainingId) {
+		try {
+			Object token = trainingRepository.findStatusFanoutToken(trainingId);
+			if (token == null) {
+				return;
+			}
+			Training training = trainingRepository.loadPendingStatusFanout(trainingId, token);
+			if (training == null) {
+				//changed meanwhile, the fan-out of the later change takes over
+				return;
+			}
+			topicService.addTrainingTo(training.getTopics(), training);
+			//only the trainees of a completed training attended its topics
+			cohortIndexService.refreshTraining(trainingId);
+			if (TrainingStatus.COMPLETED == training.getStatus()) {
+				//update trainers
+				employeeService.addTrainingTo(training.getTrainers(), training, "trainingsImparted");
+				trainerLeaderboardService.refresh(trainingId);
+				teamAttendanceService.refreshTraining(trainingId);
+				participationCubeService.refreshTraining(trainingId);
+			} else if (TrainingStatus.SCHEDULED == training.getStatus()) {
+				//send training invites
+				mailService.sendMail(MailService.MailType.TRAINING_SCHEDULED, trainingId);
+			} else if (TrainingStatus.CANCELLED == training.getStatus() ||
+					TrainingStatus.POSTPONED == training.getStatus()) {
+				mailService.sendMail(MailService.MailType.TRAINING_CANCELLED, trainingId);
+			}
+			trainingRepository.clearStatusFanout(trainingId, token);
+		} catch (Exception exp) {
+			logger.error("Status fan-out failed for training " + trainingId + ", the sweep retries it", exp);
+		}
+	}
+}
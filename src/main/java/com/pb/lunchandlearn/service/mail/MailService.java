@@ -57,6 +57,21 @@ public class MailService {
 		executor.execute(mailingTask);
 	}
 
+	public void sendMail(MailType mailType, Long trainingId, int feedbackCount) {
+		MailingTask mailingTask = context.getBean(MailingTask.class);
+		mailingTask.setMailType(mailType);
+		mailingTask.setParentId(trainingId);
+		mailingTask.setFeedbackCount(feedbackCount);
+		executor.execute(mailingTask);
+	}
+
+	public void sendMail(MailType mailType, EmployeeImportJob employeeImportJob) {
+		MailingTask mailingTask = context.getBean(MailingTask.class);
+		mailingTask.setMailType(mailType);
+		mailingTask.setEmployeeImportJob(employeeImportJob);
+		executor.execute(mailingTask);
+	}
+
 	public void sendMail(MailType mailType, FileAttachmentInfo fileInfo) {
 		MailingTask mailingTask = context.getBean(MailingTask.class);
 		mailingTask.setMailType(mailType);
@@ -89,6 +104,6 @@ public class MailService {
 		ATTACHMENT_ADDED, ATTACHMENT_REMOVED, COMMENT_ADDED,
 		COMMENT_REMOVED, FEEDBACK_ADDED, TRAINING_ADDED, TRAINING_UPDATED,
 		FEEDBACK_REQUEST, EMPLOYEE_ADDED, EMPLOYEE_UPDATED, TOPIC_ADDED,
-		TOPIC_UPDATED, TRAINING_SCHEDULED, TRAINING_CANCELLED;
+		TOPIC_UPDATED, TRAINING_SCHEDULED, TRAINING_CANCELLED, EMPLOYEES_IMPORTED;
 	}
 }
\ No newline at end of file
@@ -76,6 +76,8 @@ public final class MailingTask implements Runnable {
 
 	private Long parentId;
 	private String employeeGuid;
+	private int feedbackCount = 1;
+	private EmployeeImportJob employeeImportJob;
 
 	public MailService.MailType getMailType() {
 		return mailType;
@@ -149,6 +151,22 @@ public final class MailingTask implements Runnable {
 		this.parentId = parentId;
 	}
 
+	public int getFeedbackCount() {
+		return feedbackCount;
+	}
+
+	public void setFeedbackCount(int feedbackCount) {
+		this.feedbackCount = feedbackCount;
+	}
+
+	public EmployeeImportJob getEmployeeImportJob() {
+		return employeeImportJob;
+	}
+
+	public void setEmployeeImportJob(EmployeeImportJob employeeImportJob) {
+		this.employeeImportJob = employeeImportJob;
+	}
+
 	public MailingTask(MailService.MailType mailType, Comment comment, Long parentId) {
 		this.mailType = mailType;
 		this.comment = comment;
@@ -197,6 +215,13 @@ public final class MailingTask implements Runnable {
 			case EMPLOYEE_ADDED:
 				mailingSet.add(employee.getEmailId());
 				break;
+			case EMPLOYEES_IMPORTED:
+				//one summary instead of a mail per employee
+				Employee startedBy = employeeRepository.findByGuid(employeeImportJob.getStartedByGuid());
+				if (startedBy != null) {
+					mailingSet.add(startedBy.getEmailId());
+				}
+				break;
 			case EMPLOYEE_UPDATED:
 				if(employee == null) {
 					employee = employeeRepository.findByGuid(employeeGuid);
@@ -205,7 +230,7 @@ public final class MailingTask implements Runnable {
 				break;
 			case ATTACHMENT_ADDED:
 			case ATTACHMENT_REMOVED:
-				training = trainingRepository.findById(parentId);
+				training = trainingRepository.findReadModelById(getTrainingId(), TrainingReadModel.RECIPIENTS);
 				employees = employeeRepository.findAllByGuidIn(Arrays.asList
 						(training.getTrainees().keySet().toArray(new String[0])));
 				mailingSet = addEmails(employees, mailingSet);
@@ -215,7 +240,7 @@ public final class MailingTask implements Runnable {
 				break;
 			case COMMENT_ADDED:
 			case COMMENT_REMOVED:
-				training = trainingRepository.findById(parentId);
+				training = trainingRepository.findReadModelById(getTrainingId(), TrainingReadModel.RECIPIENTS);
 				employees = employeeRepository.findAllByGuidIn(Arrays.asList
 						(training.getTrainees().keySet().toArray(new String[0])));
 				mailingSet = addEmails(employees, mailingSet);
@@ -224,20 +249,24 @@ public final class MailingTask implements Runnable {
 				}
 				break;
 			case FEEDBACK_ADDED:
-				training = trainingRepository.findById(feedBack.getParentId());
+				//a batch of feedbacks is mailed to the trainers only
+				training = trainingRepository.findReadModelById(feedBack == null ? parentId : feedBack.getParentId(),
+						TrainingReadModel.RECIPIENTS);
 				employees = employeeRepository.findAllByGuidIn(Arrays.asList
 						(training.getTrainers().keySet().toArray(new String[0])));
 				mailingSet = addEmails(employees, mailingSet);
-				mailingSet.add(employeeRepository.findByGuid(feedBack.getRespondentGuid()).getEmailId());
+				if (feedBack != null) {
+					mailingSet.add(employeeRepository.findByGuid(feedBack.getRespondentGuid()).getEmailId());
+				}
 				break;
 			case FEEDBACK_REQUEST:
-				training = trainingRepository.findById(parentId);
+				training = trainingRepository.findReadModelById(getTrainingId(), TrainingReadModel.RECIPIENTS);
 				employees = employeeRepository.findAllByGuidIn(Arrays.asList
 						(training.getTrainees().keySet().toArray(new String[0])));
 				mailingSet = addEmails(employees, mailingSet);
 				break;
 			case TRAINING_UPDATED:
-				training = trainingRepository.findById(parentId);
+				training = trainingRepository.findReadModelById(getTrainingId(), TrainingReadModel.RECIPIENTS);
 				employees = employeeRepository.findAllByGuidIn(Arrays.asList
 						(training.getTrainers().keySet().toArray(new String[0])));
 				mailingSet = addEmails(employees, mailingSet);
@@ -247,7 +276,7 @@ public final class MailingTask implements Runnable {
 				}
 				break;
 			case TRAINING_ADDED:
-				training = trainingRepository.findById(parentId);
+				training = trainingRepository.findReadModelById(getTrainingId(), TrainingReadModel.RECIPIENTS);
 				employee = employeeRepository.findByGuid(training.getCreatedByGuid());
 				if(employee != null) {
 					mailingSet.add(employee.getEmailId());
@@ -277,6 +306,11 @@ public final class MailingTask implements Runnable {
 		}
 	}
 
+	//a task built from a training carries no parent id
+	private Long getTrainingId() {
+		return parentId != null || training == null ? parentId : training.getId();
+	}
+
 	private Set<String> addEmails(List<Employee> employees, Set<String> emails) {
 		if (!CollectionUtils.isEmpty(employees)) {
 			if (CollectionUtils.isEmpty(emails)) {
@@ -376,6 +410,12 @@ public final class MailingTask implements Runnable {
 				subject = MessageFormat.format("User {0} has been updated", employee.getName());
 				msgPage = "employee_updated";
 				break;
+			case EMPLOYEES_IMPORTED:
+				subject = MessageFormat.format("Employee import of {0} {1}", employeeImportJob.getFileName(),
+						employeeImportJob.getStatus().name().toLowerCase());
+				setEmployeeImportParams(ctx);
+				msgPage = "employees_imported";
+				break;
 			case ATTACHMENT_ADDED:
 				subject = MessageFormat.format("File attached in {0}", training.getName());
 				setFileAttachmentParams(ctx);
@@ -387,7 +427,8 @@ public final class MailingTask implements Runnable {
 				msgPage = "attachment_removed";
 				break;
 			case FEEDBACK_ADDED:
-				subject = MessageFormat.format("Feedback added to {0}", training.getName());
+				subject = feedbackCount > 1 ? MessageFormat.format("{0} feedbacks added to {1}", feedbackCount,
+						training.getName()) : MessageFormat.format("Feedback added to {0}", training.getName());
 				msgPage = "feedback_added";
 				break;
 			case TRAINING_ADDED:
@@ -416,7 +457,7 @@ public final class MailingTask implements Runnable {
 	public void sendCalenderRequest() throws Exception {
 		try {
 			Set<String> mailingSet = null;
-			training = trainingRepository.findById(parentId);
+			training = trainingRepository.findReadModelById(getTrainingId(), TrainingReadModel.HEADER);
 			List<Employee> employees = employeeRepository.findAllByGuidIn(Arrays.asList
 					(training.getTrainers().keySet().toArray(new String[0])));
 			mailingSet = addEmails(employees, mailingSet);
@@ -440,7 +481,7 @@ public final class MailingTask implements Runnable {
 					"METHOD:" + getCalendarMethod() + "\n" +
 					getCalendarStatus() +
 					"BEGIN:VEVENT\n" +
-					"ORGANIZER:" + securedUser.getEmailId() + "\n" +
+					"ORGANIZER:" + getOrganizerEmailId() + "\n" +
 					"DTSTART:" + df.format(training.getScheduledOn()) + "\n" +
 					"DTEND:" + df.format(getTrainingEndDateTime(training)) + "\n" +
 					"LOCATION:" + training.getLocation() + "\n" +
@@ -489,6 +530,11 @@ public final class MailingTask implements Runnable {
 		}
 	}
 
+	//status fan-out mails are sent from a background task, without a logged in user
+	private String getOrganizerEmailId() {
+		return securedUser == null ? serviceAccountSettings.getEmailId() : securedUser.getEmailId();
+	}
+
 	private String getCalendarStatus() {
 		switch (training.getStatus()) {
 			case CANCELLED:
@@ -524,6 +570,17 @@ public final class MailingTask implements Runnable {
 		ctx.setVariable("employee_id_link", getEmployeeLink());
 	}
 
+	private void setEmployeeImportParams(Context ctx) {
+		ctx.setVariable("import_file", employeeImportJob.getFileName());
+		ctx.setVariable("import_status", employeeImportJob.getStatus().name());
+		ctx.setVariable("import_rows", employeeImportJob.getRowsRead());
+		ctx.setVariable("import_inserted", employeeImportJob.getInserted());
+		ctx.setVariable("import_updated", employeeImportJob.getUpdated());
+		ctx.setVariable("import_unchanged", employeeImportJob.getUnchanged());
+		ctx.setVariable("import_rejected", employeeImportJob.getRejected());
+		ctx.setVariable("import_errors", employeeImportJob.getErrors());
+	}
+
 	private void setCommentParams(Context ctx) {
 		ctx.setVariable("training_comment", comment.getText());
 	}
@@ -4,13 +4,20 @@ import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
 import com.mongodb.DBObject;
 import com.mongodb.util.JSON;
 import com.pb.lunchandlearn.domain.*;
+import com.pb.lunchandlearn.exception.BadRequestException;
 import com.pb.lunchandlearn.exception.ResourceNotFoundException;
 import org.apache.commons.lang3.time.DateUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 import java.text.DateFormat;
 import java.text.MessageFormat;
@@ -60,8 +67,10 @@ public final class CommonUtil {
 		objComment.put("ownerName", comment.getOwnerName());
 		objComment.put("ownerGuid", comment.getOwnerGuid());
 		objComment.put("id", comment.getId());
+		objComment.put("parentId", comment.getParentId());
 		objComment.put("text", comment.getText());
-		objComment.put("replies", getComments(comment.getReplies()));
+		objComment.put("dateTime", comment.getDateTime());
+		objComment.put("repliesCount", comment.getRepliesCount());
 		return objComment;
 	}
 
@@ -100,6 +109,33 @@ public final class CommonUtil {
 		return jsonArray;
 	}
 
+	public static JSONObject getEmployeeDirectoryChange(EmployeeDirectoryChange change) {
+		JSONObject objEmployee = new JSONObject();
+		objEmployee.put("guid", change.getGuid());
+		objEmployee.put("name", change.getName());
+		objEmployee.put("emailId", change.getEmailId());
+		return objEmployee;
+	}
+
+	public static JSONObject getMiniTrainingDetail(MiniTrainingDetail training) {
+		JSONObject obj = new JSONObject();
+		obj.put("id", training.getId());
+		obj.put("name", training.getName());
+		obj.put("status", training.getStatus());
+		obj.put("scheduledOn", training.getScheduledOn());
+		return obj;
+	}
+
+	public static JSONArray getMiniTrainingDetails(List<MiniTrainingDetail> trainings) {
+		JSONArray jsonArray = new JSONArray();
+		if(!CollectionUtils.isEmpty(trainings)) {
+			for (MiniTrainingDetail training : trainings) {
+				jsonArray.add(getMiniTrainingDetail(training));
+			}
+		}
+		return jsonArray;
+	}
+
 	public static JSONObject getEmployeeGuidName(Employee employee) {
 		JSONObject objEmployee = new JSONObject();
 		objEmployee.put("guid", employee.getGuid());
@@ -136,6 +172,59 @@ public final class CommonUtil {
 		return jsonArray;
 	}
 
+	public static JSONObject getTrainingRatings(TrainingRatings trainingRatings) {
+		JSONObject objRatings = new JSONObject();
+		JSONObject ratings = new JSONObject();
+		objRatings.put("count", trainingRatings == null ? 0 : trainingRatings.getCount());
+		objRatings.put("ratings", ratings);
+		if (trainingRatings != null && trainingRatings.getRatings() != null) {
+			for (Map.Entry<String, TrainingRatings.RatingStats> entry : trainingRatings.getRatings().entrySet()) {
+				TrainingRatings.RatingStats stats = entry.getValue();
+				JSONObject objStats = new JSONObject();
+				objStats.put("count", stats.getCount());
+				objStats.put("average", stats.getAverage());
+				objStats.put("standardDeviation", stats.getStandardDeviation());
+				objStats.put("histogram", stats.getHistogram());
+				ratings.put(entry.getKey(), objStats);
+			}
+		}
+		return objRatings;
+	}
+
+	/**
+	 * Stats of the topic, the next session is the earliest scheduled training after now.
+	 */
+	public static JSONObject getTopicStats(Long topicId, TopicStats topicStats, Date now) {
+		JSONObject objStats = new JSONObject();
+		Map<String, Long> statusCounts = new HashMap<>();
+		for (TrainingStatus status : TrainingStatus.values()) {
+			Long count = topicStats == null || topicStats.getStatusCounts() == null ? null :
+					topicStats.getStatusCounts().get(status.name());
+			statusCounts.put(status.name(), count == null ? 0 : count);
+		}
+		JSONObject nextSession = null;
+		if (topicStats != null && topicStats.getTrainings() != null) {
+			Date nextScheduledOn = null;
+			for (Map.Entry<String, TopicStats.TrainingEntry> entry : topicStats.getTrainings().entrySet()) {
+				TopicStats.TrainingEntry training = entry.getValue();
+				if (TrainingStatus.SCHEDULED == training.getStatus() && training.getScheduledOn() != null &&
+						training.getScheduledOn().after(now) &&
+						(nextScheduledOn == null || training.getScheduledOn().before(nextScheduledOn))) {
+					nextScheduledOn = training.getScheduledOn();
+					nextSession = new JSONObject();
+					nextSession.put("id", Long.valueOf(entry.getKey()));
+					nextSession.put("name", training.getName());
+					nextSession.put("scheduledOn", training.getScheduledOn());
+				}
+			}
+		}
+		objStats.put("topicId", topicId);
+		objStats.put("statusCounts", statusCounts);
+		objStats.put("attendees", topicStats == null ? 0 : topicStats.getAttendees());
+		objStats.put("nextSession", nextSession);
+		return objStats;
+	}
+
 	public static JSONObject getFileAttachmentInfoBrief(FileAttachmentInfo fileAttachmentInfo) {
 		JSONObject objComment = new JSONObject();
 		objComment.put("fileName", fileAttachmentInfo.getFileName());
@@ -195,6 +284,117 @@ public final class CommonUtil {
 		return addedEntries;
 	}
 
+	/**
+	 * Parses a comma separated fields= parameter, rejecting anything outside the whitelist.
+	 */
+	public static Set<String> parseFields(String fields, Set<String> allowedFields) {
+		Set<String> selectedFields = new LinkedHashSet<>();
+		for (String field : fields.split(",")) {
+			field = field.trim();
+			if (field.isEmpty()) {
+				continue;
+			}
+			if (!allowedFields.contains(field)) {
+				throw new BadRequestException(MessageFormat.format("Field {0} can''t be selected", field));
+			}
+			selectedFields.add(field);
+		}
+		if (selectedFields.isEmpty()) {
+			throw new BadRequestException("No fields selected");
+		}
+		return selectedFields;
+	}
+
+	/**
+	 * @param editableFields fields a client may patch, any other name is rejected before anything is written
+	 * @return entries of a patch by field name, in request order
+	 */
+	public static Map<String, SimpleFieldEntry> getFieldEntries(List<SimpleFieldEntry> simpleFieldEntries,
+																Set<String> editableFields) {
+		if (CollectionUtils.isEmpty(simpleFieldEntries)) {
+			throw new BadRequestException("No fields to update");
+		}
+		Map<String, SimpleFieldEntry> entries = new LinkedHashMap<>(simpleFieldEntries.size());
+		for (SimpleFieldEntry simpleFieldEntry : simpleFieldEntries) {
+			if (simpleFieldEntry == null || StringUtils.isEmpty(simpleFieldEntry.getName())) {
+				throw new BadRequestException("Field name is missing");
+			}
+			if (!editableFields.contains(simpleFieldEntry.getName())) {
+				throw new BadRequestException(MessageFormat.format("Field {0} can't be updated",
+						simpleFieldEntry.getName()));
+			}
+			if (entries.put(simpleFieldEntry.getName(), simpleFieldEntry) != null) {
+				throw new BadRequestException(MessageFormat.format("Field {0} is updated more than once",
+						simpleFieldEntry.getName()));
+			}
+		}
+		return entries;
+	}
+
+	public static int getPageLimit(Integer limit, int defaultLimit, int maxLimit) {
+		if (limit == null) {
+			return defaultLimit;
+		}
+		return Math.max(1, Math.min(limit, maxLimit));
+	}
+
+	public static Pageable getSortedPageable(Pageable pageable) {
+		if (pageable.getSort() == null) {
+			return new PageRequest(pageable.getPageNumber(), pageable.getPageSize(), SORT_BY_DEFAULT);
+		}
+		return pageable;
+	}
+
+	/**
+	 * Page of an embedded training list read with limit + 1 entries, next is the cursor of the following page.
+	 */
+	public static JSONObject getProfileSection(List<MiniTrainingDetail> trainings, int offset, int limit) {
+		JSONObject obj = new JSONObject();
+		if (trainings == null) {
+			trainings = Collections.emptyList();
+		}
+		boolean hasMore = trainings.size() > limit;
+		obj.put("content", hasMore ? trainings.subList(0, limit) : trainings);
+		obj.put("next", hasMore ? offset + limit : null);
+		return obj;
+	}
+
+	public static JSONObject getFieldsJson(DBObject dbObject, String idName) {
+		JSONObject obj = new JSONObject();
+		for (String key : dbObject.keySet()) {
+			obj.put("_id".equals(key) ? idName : key, dbObject.get(key));
+		}
+		return obj;
+	}
+
+	public static JSONObject getFieldsJson(Page<DBObject> page, String idName) {
+		JSONObject jsonObject = setPaginationInfo(page, new JSONObject());
+		JSONArray content = new JSONArray();
+		for (DBObject dbObject : page) {
+			content.add(getFieldsJson(dbObject, idName));
+		}
+		jsonObject.put("content", content);
+		return jsonObject;
+	}
+
+	/**
+	 * Strong ETag of a document, built from its version counter and last modification time.
+	 */
+	public static String getETag(String resourceName, Object id, Long version, Date lastModifiedOn) {
+		return "\"" + resourceName + "-" + id + "-" + (version == null ? 0 : version) + "-" +
+				(lastModifiedOn == null ? 0 : lastModifiedOn.getTime()) + "\"";
+	}
+
+	/**
+	 * Makes the client revalidate on every use and answers 304 when its If-None-Match matches the eTag.
+	 */
+	public static boolean checkNotModified(WebRequest request, String eTag) {
+		if (request instanceof ServletWebRequest && ((ServletWebRequest) request).getResponse() != null) {
+			((ServletWebRequest) request).getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+		}
+		return request.checkNotModified(eTag);
+	}
+
 	public static String getDayMonthWithOrdinal(Date date) {
 		Calendar calendar = Calendar.getInstance();
 		calendar.setTime(date);
@@ -0,0 +1,76 @@
+package com.pb.lunchandlearn.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV a row at a time: fields separated by commas, quoted fields may hold commas, line breaks and
+ * doubled quotes, rows end with CRLF or LF. Not thread safe.
+ */
+public final class CsvReader {
+	private final Reader reader;
+	private int next = -2;
+
+	public CsvReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Fields of the next row, null at the end of the input.
+	 */
+	public List<String> readRow() throws IOException {
+		int ch = read();
+		if (ch < 0) {
+			return null;
+		}
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (ch < 0) {
+					throw new IOException("Unterminated quoted field");
+				}
+				if (ch == '"') {
+					if (peek() == '"') {
+						field.append('"');
+						read();
+					} else {
+						quoted = false;
+					}
+				} else {
+					field.append((char) ch);
+				}
+			} else if (ch == '"' && field.length() == 0) {
+				quoted = true;
+			} else if (ch == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (ch < 0 || ch == '\n' || (ch == '\r' && peek() == '\n')) {
+				if (ch == '\r') {
+					read();
+				}
+				fields.add(field.toString());
+				return fields;
+			} else {
+				field.append((char) ch);
+			}
+			ch = read();
+		}
+	}
+
+	private int read() throws IOException {
+		int ch = next == -2 ? reader.read() : next;
+		next = -2;
+		return ch;
+	}
+
+	private int peek() throws IOException {
+		if (next == -2) {
+			next = reader.read();
+		}
+		return next;
+	}
+}
@@ -0,0 +1,164 @@
+package com.pb.lunchandlearn.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.lunchandlearn.domain.Employee;
+import com.pb.lunchandlearn.domain.ExportFormat;
+import com.pb.lunchandlearn.domain.UserRole;
+import org.springframework.util.StringUtils;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.*;
+
+/**
+ * Reads the employees of a CSV or NDJSON employee file a row at a time, guids and roles upper cased. CSV has a
+ * header row with guid, name and emailId, and optionally roles (role;role) and managers (guid:name;guid:name), a
+ * column missing from the header leaves the field null. NDJSON has an employee object per line. Not thread safe.
+ */
+public final class EmployeeFileReader {
+	private static final List<String> REQUIRED_COLUMNS = Arrays.asList("guid", "name", "emailId");
+	private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+	private final BufferedReader reader;
+	private final CsvReader csvReader;
+	private final ObjectMapper objectMapper;
+	private Map<String, Integer> columns;
+	private long rowsRead;
+
+	public EmployeeFileReader(BufferedReader reader, ExportFormat format, ObjectMapper objectMapper) {
+		this.reader = reader;
+		this.csvReader = format == ExportFormat.CSV ? new CsvReader(reader) : null;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * @return the employee of the next row, null at the end of the file
+	 * @throws InvalidRowException for a row that can't be read, the next call goes on with the following row
+	 */
+	public Employee next() throws IOException, InvalidRowException {
+		return csvReader == null ? nextJson() : nextCsv();
+	}
+
+	public long getRowsRead() {
+		return rowsRead;
+	}
+
+	/**
+	 * @return what is wrong with the employee, null when it is valid
+	 */
+	public static String validate(Employee employee) {
+		if (employee.getRoles() != null) {
+			for (String role : employee.getRoles()) {
+				try {
+					UserRole.valueOf(role);
+				} catch (IllegalArgumentException exp) {
+					return "Invalid role " + role;
+				}
+			}
+		}
+		Set<ConstraintViolation<Employee>> violations = VALIDATOR.validate(employee);
+		if (violations.isEmpty()) {
+			return null;
+		}
+		StringBuilder error = new StringBuilder();
+		for (ConstraintViolation<Employee> violation : violations) {
+			if (error.length() > 0) {
+				error.append(", ");
+			}
+			error.append(violation.getPropertyPath()).append(' ').append(violation.getMessage());
+		}
+		return error.toString();
+	}
+
+	private Employee nextCsv() throws IOException {
+		if (columns == null) {
+			List<String> header = csvReader.readRow();
+			columns = new HashMap<>();
+			for (int index = 0; header != null && index < header.size(); ++index) {
+				columns.put(header.get(index).trim(), index);
+			}
+			if (!columns.keySet().containsAll(REQUIRED_COLUMNS)) {
+				throw new IOException(MessageFormat.format("Header must have the columns {0}",
+						StringUtils.collectionToCommaDelimitedString(REQUIRED_COLUMNS)));
+			}
+		}
+		List<String> row = csvReader.readRow();
+		while (row != null && row.size() == 1 && row.get(0).trim().isEmpty()) {
+			row = csvReader.readRow();
+		}
+		if (row == null) {
+			return null;
+		}
+		++rowsRead;
+		String rolesValue = get(row, "roles");
+		String managersValue = get(row, "managers");
+		Map<String, String> managers = null;
+		if (managersValue != null) {
+			managers = new LinkedHashMap<>();
+			for (String manager : StringUtils.tokenizeToStringArray(managersValue, ";")) {
+				int separator = manager.indexOf(':');
+				managers.put(separator < 0 ? manager : manager.substring(0, separator),
+						separator < 0 ? null : manager.substring(separator + 1).trim());
+			}
+		}
+		return toEmployee(get(row, "guid"), get(row, "name"), get(row, "emailId"), rolesValue == null ? null :
+				Arrays.asList(StringUtils.tokenizeToStringArray(rolesValue, ";")), managers);
+	}
+
+	private Employee nextJson() throws IOException, InvalidRowException {
+		for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			++rowsRead;
+			Employee row;
+			try {
+				row = objectMapper.readValue(line, Employee.class);
+			} catch (JsonProcessingException exp) {
+				throw new InvalidRowException("Invalid JSON, " + exp.getOriginalMessage());
+			}
+			return toEmployee(row.getGuid(), row.getName(), row.getEmailId(), row.getRoles(), row.getManagers());
+		}
+		return null;
+	}
+
+	//null when the file has no such column
+	private String get(List<String> row, String column) {
+		Integer index = columns.get(column);
+		return index == null ? null : index < row.size() ? row.get(index) : "";
+	}
+
+	private static Employee toEmployee(String guid, String name, String emailId, List<String> roles,
+									   Map<String, String> managers) {
+		Employee employee = new Employee();
+		employee.setGuid(StringUtils.hasText(guid) ? guid.trim().toUpperCase() : null);
+		employee.setName(StringUtils.hasText(name) ? name.trim() : null);
+		employee.setEmailId(StringUtils.hasText(emailId) ? emailId.trim() : null);
+		if (roles != null) {
+			List<String> roleNames = new ArrayList<>(roles.size());
+			for (String role : roles) {
+				roleNames.add(role.trim().toUpperCase());
+			}
+			employee.setRoles(roleNames);
+		}
+		if (managers != null) {
+			Map<String, String> managerNames = new LinkedHashMap<>();
+			for (Map.Entry<String, String> manager : managers.entrySet()) {
+				managerNames.put(manager.getKey().trim().toUpperCase(), manager.getValue());
+			}
+			employee.setManagers(managerNames);
+		}
+		return employee;
+	}
+
+	public static final class InvalidRowException extends Exception {
+		public InvalidRowException(String message) {
+			super(message);
+		}
+	}
+}
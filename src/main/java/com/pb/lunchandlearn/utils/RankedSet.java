@@ -0,0 +1,142 @@
+package com.pb.lunchandlearn.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sorted set that also answers the position of an element and the elements at a range of positions, a treap whose
+ * nodes keep the size of their subtree. Every operation is O(log n) expected, a range adds its length. Elements
+ * must not change their ordering while in the set, remove them first. Not thread safe.
+ */
+public final class RankedSet<E> {
+	private final Comparator<? super E> comparator;
+	private final Random random = new Random();
+	private Node<E> root;
+
+	public RankedSet(Comparator<? super E> comparator) {
+		this.comparator = comparator;
+	}
+
+	public int size() {
+		return size(root);
+	}
+
+	public boolean add(E element) {
+		Node<E>[] lower = split(root, element, false);
+		Node<E>[] upper = split(lower[1], element, true);
+		if (upper[0] != null) {
+			root = merge(lower[0], merge(upper[0], upper[1]));
+			return false;
+		}
+		root = merge(merge(lower[0], new Node<>(element, random.nextInt())), upper[1]);
+		return true;
+	}
+
+	public boolean remove(E element) {
+		Node<E>[] lower = split(root, element, false);
+		Node<E>[] upper = split(lower[1], element, true);
+		root = merge(lower[0], upper[1]);
+		return upper[0] != null;
+	}
+
+	/**
+	 * @return zero based position of the element, -1 when it is not in the set
+	 */
+	public int indexOf(E element) {
+		Node<E> node = root;
+		int index = 0;
+		while (node != null) {
+			int compared = comparator.compare(element, node.element);
+			if (compared < 0) {
+				node = node.left;
+			} else if (compared > 0) {
+				index += size(node.left) + 1;
+				node = node.right;
+			} else {
+				return index + size(node.left);
+			}
+		}
+		return -1;
+	}
+
+	public List<E> subList(int offset, int limit) {
+		List<E> elements = new ArrayList<>(Math.max(0, Math.min(limit, size() - offset)));
+		collect(root, offset, limit, elements);
+		return elements;
+	}
+
+	private void collect(Node<E> node, int offset, int limit, List<E> elements) {
+		if (node == null || elements.size() >= limit) {
+			return;
+		}
+		int leftSize = size(node.left);
+		if (offset < leftSize) {
+			collect(node.left, offset, limit, elements);
+		}
+		if (offset <= leftSize && elements.size() < limit) {
+			elements.add(node.element);
+		}
+		collect(node.right, Math.max(0, offset - leftSize - 1), limit, elements);
+	}
+
+	//[elements before, elements from] the given one, or [up to and including, after] it
+	@SuppressWarnings("unchecked")
+	private Node<E>[] split(Node<E> node, E element, boolean inclusive) {
+		if (node == null) {
+			return new Node[]{null, null};
+		}
+		int compared = comparator.compare(node.element, element);
+		Node<E>[] parts;
+		if (compared < 0 || (inclusive && compared == 0)) {
+			parts = split(node.right, element, inclusive);
+			node.right = parts[0];
+			parts[0] = node;
+		} else {
+			parts = split(node.left, element, inclusive);
+			node.left = parts[1];
+			parts[1] = node;
+		}
+		node.resize();
+		return parts;
+	}
+
+	private Node<E> merge(Node<E> left, Node<E> right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			left.resize();
+			return left;
+		}
+		right.left = merge(left, right.left);
+		right.resize();
+		return right;
+	}
+
+	private static int size(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static final class Node<E> {
+		private final E element;
+		private final int priority;
+		private Node<E> left;
+		private Node<E> right;
+		private int size = 1;
+
+		private Node(E element, int priority) {
+			this.element = element;
+			this.priority = priority;
+		}
+
+		private void resize() {
+			size = size(left) + size(right) + 1;
+		}
+	}
+}
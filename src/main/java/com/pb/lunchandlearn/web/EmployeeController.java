@@ -4,8 +4,18 @@ package com.pb.lunchandlearn.web;
  * Created by DE007RA on 4/27/2016.
  */
 import com.pb.lunchandlearn.domain.Employee;
+import com.pb.lunchandlearn.domain.EmployeeImportJob;
+import com.pb.lunchandlearn.domain.ExportFormat;
+import com.pb.lunchandlearn.domain.LeaderboardMetric;
 import com.pb.lunchandlearn.domain.SimpleFieldEntry;
+import com.pb.lunchandlearn.exception.UnauthorizedOperationException;
+import com.pb.lunchandlearn.service.CohortIndexService;
+import com.pb.lunchandlearn.service.EmployeeImportService;
 import com.pb.lunchandlearn.service.EmployeeService;
+import com.pb.lunchandlearn.service.HrSyncService;
+import com.pb.lunchandlearn.service.TeamAttendanceService;
+import com.pb.lunchandlearn.service.TrainerLeaderboardService;
+import com.pb.lunchandlearn.utils.CommonUtil;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,20 +28,44 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
 import java.text.ParseException;
 import java.util.List;
 
+import static com.pb.lunchandlearn.config.SecurityConfig.getLoggedInUser;
+
 @RestController
 @RequestMapping("/employees")
 public class EmployeeController {
 	@Autowired
 	public EmployeeService employeeService;
 
+	@Autowired
+	private TrainerLeaderboardService trainerLeaderboardService;
+
+	@Autowired
+	private CohortIndexService cohortIndexService;
+
+	@Autowired
+	private TeamAttendanceService teamAttendanceService;
+
+	@Autowired
+	private EmployeeImportService employeeImportService;
+
+	@Autowired
+	private HrSyncService hrSyncService;
+
 	@RequestMapping(value = "", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public Page<Employee> list(Pageable pageable, @RequestParam(value = "search", required = false) String searchTerm) {
+	public Object list(Pageable pageable, @RequestParam(value = "search", required = false) String searchTerm,
+					   @RequestParam(value = "fields", required = false) String fields) {
+		if(!StringUtils.isEmpty(fields)) {
+			return employeeService.getAllFields(pageable, searchTerm, fields);
+		}
 		if(!StringUtils.isEmpty(searchTerm)) {
 			return employeeService.search(searchTerm, pageable);
 		}
@@ -43,6 +77,41 @@ public class EmployeeController {
 		return employeeService.getEmployeesMinimal();
 	}
 
+	@RequestMapping(value = "/directory", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject directoryChanges(@RequestParam(value = "since", required = false) Long sinceVersion) {
+		return employeeService.getDirectoryChanges(sinceVersion);
+	}
+
+	@RequestMapping(value = "/leaderboard", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject leaderboard(Pageable pageable,
+								  @RequestParam(value = "metric", defaultValue = "TRAININGS_IMPARTED") LeaderboardMetric metric,
+								  @RequestParam(value = "topicId", required = false) Long topicId) {
+		return trainerLeaderboardService.getLeaderboard(metric, topicId, pageable);
+	}
+
+	@RequestMapping(value = "/employee/{guid}/standing", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject standing(@PathVariable("guid") String guid,
+							   @RequestParam(value = "metric", defaultValue = "TRAININGS_IMPARTED") LeaderboardMetric metric,
+							   @RequestParam(value = "topicId", required = false) Long topicId) {
+		return trainerLeaderboardService.getStanding(guid, metric, topicId);
+	}
+
+	@RequestMapping(value = "/employee/{guid}/team-attendance", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject teamAttendance(@PathVariable("guid") String guid,
+									 @RequestParam(value = "quarter", required = false) String quarter) {
+		return teamAttendanceService.getTeamAttendance(guid, quarter);
+	}
+
+	@RequestMapping(value = "/cohort", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject cohort(Pageable pageable, @RequestParam(value = "all", required = false) List<String> allRefs,
+							 @RequestParam(value = "any", required = false) List<String> anyRefs,
+							 @RequestParam(value = "none", required = false) List<String> noneRefs) {
+		if (!getLoggedInUser().isAdmin()) {
+			throw new UnauthorizedOperationException("Only admin can query cohorts");
+		}
+		return cohortIndexService.getCohort(allRefs, anyRefs, noneRefs, pageable);
+	}
+
 	@RequestMapping(value = "/names", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
 	public List<Employee> listNames() {
 		return employeeService.getAllNames();
@@ -59,10 +128,60 @@ public class EmployeeController {
 	}
 
 	@RequestMapping(value="/employee/{guid}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public Employee getEmployee(@PathVariable("guid") String guid) {
+	public Object getEmployee(@PathVariable("guid") String guid,
+							  @RequestParam(value = "fields", required = false) String fields, WebRequest request) {
+		if (CommonUtil.checkNotModified(request, employeeService.getETag(guid))) {
+			return null;
+		}
+		if(!StringUtils.isEmpty(fields)) {
+			return employeeService.getEmployeeFields(guid, fields);
+		}
 		return employeeService.getEmployee(guid);
 	}
 
+	@RequestMapping(value="/employee/{guid}/profile", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject getProfile(@PathVariable("guid") String guid,
+								 @RequestParam(value = "limit", required = false) Integer limit) {
+		return employeeService.getProfile(guid, limit);
+	}
+
+	@RequestMapping(value="/employee/{guid}/profile/{section}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject getProfileSection(@PathVariable("guid") String guid, @PathVariable("section") String section,
+										@RequestParam(value = "status", required = false) String status,
+										@RequestParam(value = "cursor", required = false) Integer cursor,
+										@RequestParam(value = "limit", required = false) Integer limit) {
+		return employeeService.getProfileSection(guid, section, status, cursor, limit);
+	}
+
+	@RequestMapping(value = "/import", method = RequestMethod.POST)
+	public ResponseEntity<EmployeeImportJob> importEmployees(@RequestParam("file") MultipartFile file,
+															 @RequestParam(value = "format", required = false) ExportFormat format) throws IOException {
+		if (!getLoggedInUser().isAdmin()) {
+			throw new UnauthorizedOperationException("Only admin can import employees");
+		}
+		EmployeeImportJob job = employeeImportService.submit(file, format);
+		HttpHeaders responseHeaders = new HttpHeaders();
+		responseHeaders.setLocation(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
+				.buildAndExpand(job.getId()).toUri());
+		return new ResponseEntity<>(job, responseHeaders, HttpStatus.ACCEPTED);
+	}
+
+	@RequestMapping(value = "/import/{id}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public EmployeeImportJob importJob(@PathVariable("id") Long jobId) {
+		if (!getLoggedInUser().isAdmin()) {
+			throw new UnauthorizedOperationException("Only admin can see employee imports");
+		}
+		return employeeImportService.getJob(jobId);
+	}
+
+	@RequestMapping(value = "/hr-sync", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject hrSync(@RequestParam(value = "dryRun", defaultValue = "true") boolean dryRun) throws IOException {
+		if (!getLoggedInUser().isAdmin()) {
+			throw new UnauthorizedOperationException("Only admin can sync employees from HR");
+		}
+		return hrSyncService.syncNext(dryRun);
+	}
+
 	@RequestMapping(value="/employee", method = RequestMethod.POST)
 	@ResponseStatus(HttpStatus.CREATED)
 	public ResponseEntity<?> addEmployee(@RequestBody Employee employee, BindingResult result) {
@@ -100,4 +219,11 @@ public class EmployeeController {
 									  @RequestBody SimpleFieldEntry fieldEntry) throws ParseException {
 		employeeService.updateField(employeeGuid, fieldEntry);
 	}
+
+	@RequestMapping(value = "/employee/{guid}", method = RequestMethod.PATCH)
+	@ResponseStatus(HttpStatus.OK)
+	public void updateEmployeeByFields(@PathVariable("guid") String employeeGuid,
+									   @RequestBody List<SimpleFieldEntry> fieldEntries) throws ParseException {
+		employeeService.updateFields(employeeGuid, fieldEntries);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.pb.lunchandlearn.web;
+
+import com.pb.lunchandlearn.domain.ExportFormat;
+import com.pb.lunchandlearn.domain.ExportType;
+import com.pb.lunchandlearn.exception.UnauthorizedOperationException;
+import com.pb.lunchandlearn.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import static com.pb.lunchandlearn.config.SecurityConfig.getLoggedInUser;
+
+@RestController
+@RequestMapping("/exports")
+public class ExportController {
+	@Autowired
+	private ExportService exportService;
+
+	//exports stream for as long as the collections take to read, other async requests keep the default timeout
+	@Value("${export.timeoutMillis:3600000}")
+	private long timeoutMillis;
+
+	@RequestMapping(value = "/trainings", method = RequestMethod.GET)
+	public WebAsyncTask<Void> trainings(@RequestParam(value = "format", defaultValue = "CSV") ExportFormat format,
+										@RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+										HttpServletResponse response) {
+		return export(ExportType.TRAININGS, format, gzip, response);
+	}
+
+	@RequestMapping(value = "/feedbacks", method = RequestMethod.GET)
+	public WebAsyncTask<Void> feedbacks(@RequestParam(value = "format", defaultValue = "CSV") ExportFormat format,
+										@RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+										HttpServletResponse response) {
+		return export(ExportType.FEEDBACKS, format, gzip, response);
+	}
+
+	@RequestMapping(value = "/attendance", method = RequestMethod.GET)
+	public WebAsyncTask<Void> attendance(@RequestParam(value = "format", defaultValue = "CSV") ExportFormat format,
+										 @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+										 HttpServletResponse response) {
+		return export(ExportType.ATTENDANCE, format, gzip, response);
+	}
+
+	/**
+	 * The export is written to the response on the async request thread, within the timeout of exports.
+	 */
+	private WebAsyncTask<Void> export(ExportType type, ExportFormat format, boolean gzip,
+									  final HttpServletResponse response) {
+		if (!getLoggedInUser().isAdmin()) {
+			throw new UnauthorizedOperationException("Only admin can export");
+		}
+		String fileName = type.name().toLowerCase() + "." + format.getExtension() + (gzip ? ".gz" : "");
+		response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+		response.setHeader("Content-Disposition", "attachment;filename=\"" + fileName + "\"");
+		response.setContentType(gzip ? "application/gzip" : format.getContentType());
+		final StreamingResponseBody body = exportService.export(type, format, gzip);
+		return new WebAsyncTask<Void>(timeoutMillis, new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				body.writeTo(response.getOutputStream());
+				response.flushBuffer();
+				return null;
+			}
+		});
+	}
+}
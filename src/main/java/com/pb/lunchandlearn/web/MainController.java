@@ -4,13 +4,18 @@ package com.pb.lunchandlearn.web;
  * Created by DE007RA on 4/27/2016.
  */
 import com.pb.lunchandlearn.domain.Training;
+import com.pb.lunchandlearn.exception.UnauthorizedOperationException;
+import com.pb.lunchandlearn.repository.ReadModelMetrics;
 import com.pb.lunchandlearn.repository.TopicRepository;
+import com.pb.lunchandlearn.service.DashboardService;
 import com.pb.lunchandlearn.service.EmployeeService;
 import com.pb.lunchandlearn.service.TopicService;
 import com.pb.lunchandlearn.service.TrainingService;
+import org.json.simple.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,6 +25,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.pb.lunchandlearn.config.SecurityConfig.getLoggedInUser;
+
 @RestController
 @RequestMapping("/sections")
 public class MainController {
@@ -32,6 +39,17 @@ public class MainController {
 	@Autowired
 	public EmployeeService employeeService;
 
+	@Autowired
+	private DashboardService dashboardService;
+
+	@Autowired
+	private ReadModelMetrics readModelMetrics;
+
+	@RequestMapping(value = "/dashboard", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<byte[]> dashboard() throws Exception {
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(dashboardService.getHomeDashboard());
+	}
+
 	@RequestMapping(value = "/count", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
 	public Map<String, Long> sectionsCount() {
 		Map<String, Long> sectionsCount = new HashMap<String, Long>(3);
@@ -43,4 +61,12 @@ public class MainController {
 //				employeeService.getCount(), topicService.getCount(), trainingService.getCount());
 	}
 
+	@RequestMapping(value = "/readmodels", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject readModelStats() {
+		if (!getLoggedInUser().isAdmin()) {
+			throw new UnauthorizedOperationException("Only admin can see read model stats");
+		}
+		return readModelMetrics.getStats();
+	}
+
 }
\ No newline at end of file
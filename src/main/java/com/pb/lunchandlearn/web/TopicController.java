@@ -8,6 +8,7 @@ import com.pb.lunchandlearn.domain.MiniTrainingDetail;
 import com.pb.lunchandlearn.domain.SimpleFieldEntry;
 import com.pb.lunchandlearn.domain.Topic;
 import com.pb.lunchandlearn.service.TopicService;
+import com.pb.lunchandlearn.utils.CommonUtil;
 import org.json.simple.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
@@ -16,6 +17,7 @@ import org.springframework.http.MediaType;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -31,17 +33,31 @@ public class TopicController {
 	}
 
 	@RequestMapping(value = "topic/{id}/trainings/{type}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public List<MiniTrainingDetail> trainings(@PathVariable("id") Long topicId, @PathVariable("type") String type) {
-		return topicService.getTrainings(topicId, type);
+	public List<MiniTrainingDetail> trainings(@PathVariable("id") Long topicId, @PathVariable("type") String type,
+											  @RequestParam(value = "offset", required = false) Integer offset,
+											  @RequestParam(value = "limit", required = false) Integer limit) {
+		return topicService.getTrainings(topicId, type, offset, limit);
+	}
+
+	@RequestMapping(value = "topic/{id}/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject getTopicStats(@PathVariable("id") Long topicId) {
+		return topicService.getTopicStats(topicId);
 	}
 
 	@RequestMapping(value = "topic/{id}/trainings", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public List<MiniTrainingDetail> trainings(@PathVariable("id") Long topicId) {
+	public List<MiniTrainingDetail> trainings(@PathVariable("id") Long topicId, WebRequest request) {
+		if (CommonUtil.checkNotModified(request, topicService.getETag(topicId))) {
+			return null;
+		}
 		return topicService.getTrainings(topicId);
 	}
 
 	@RequestMapping(value = "", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public JSONObject list(Pageable pageable, @RequestParam(value = "search", required = false) String searchTerm) {
+	public JSONObject list(Pageable pageable, @RequestParam(value = "search", required = false) String searchTerm,
+						   @RequestParam(value = "fields", required = false) String fields) {
+		if(!StringUtils.isEmpty(fields)) {
+			return topicService.getAllFields(pageable, searchTerm, fields);
+		}
 		if(!StringUtils.isEmpty(searchTerm)) {
 			return topicService.search(searchTerm, pageable);
 		}
@@ -66,7 +82,14 @@ public class TopicController {
 	}
 
 	@RequestMapping(value="/topic/{id}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public Topic getTopic(@PathVariable("id") Long topicId) {
+	public Object getTopic(@PathVariable("id") Long topicId,
+						   @RequestParam(value = "fields", required = false) String fields, WebRequest request) {
+		if (CommonUtil.checkNotModified(request, topicService.getETag(topicId))) {
+			return null;
+		}
+		if(!StringUtils.isEmpty(fields)) {
+			return topicService.getTopicFields(topicId, fields);
+		}
 		return topicService.getTopicById(topicId);
 	}
 
@@ -96,6 +119,13 @@ public class TopicController {
 		topicService.updateField(topicId, fieldEntry);
 	}
 
+	@RequestMapping(value="/topic/{id}", method = RequestMethod.PATCH)
+	@ResponseStatus(HttpStatus.OK)
+	public void updateTopicByFields(@PathVariable("id") Long topicId,
+									@RequestBody List<SimpleFieldEntry> fieldEntries) {
+		topicService.updateFields(topicId, fieldEntries);
+	}
+
 	@RequestMapping(value="/topic/{id}", method = RequestMethod.DELETE)
 	@ResponseStatus(HttpStatus.OK)
 	public void deleteTopic(@PathVariable("id") String empId) {
@@ -6,7 +6,11 @@ package com.pb.lunchandlearn.web;
 
 import com.pb.lunchandlearn.config.LikeType;
 import com.pb.lunchandlearn.domain.*;
+import com.pb.lunchandlearn.exception.UnauthorizedOperationException;
+import com.pb.lunchandlearn.service.ParticipationCubeService;
+import com.pb.lunchandlearn.service.TrainingBatchService;
 import com.pb.lunchandlearn.service.TrainingService;
+import com.pb.lunchandlearn.utils.CommonUtil;
 import org.apache.commons.io.IOUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -20,6 +24,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -28,25 +33,57 @@ import java.text.ParseException;
 import java.util.List;
 import java.util.Map;
 
+import static com.pb.lunchandlearn.config.SecurityConfig.getLoggedInUser;
+
 @RestController
 @RequestMapping("/trainings")
 public class TrainingController {
 	@Autowired
 	public TrainingService trainingService;
 
+	@Autowired
+	private TrainingBatchService trainingBatchService;
+
+	@Autowired
+	private ParticipationCubeService participationCubeService;
+
 	@RequestMapping(value = "/ids", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
 	public JSONObject byIds(@RequestParam(value = "ids") List<Long> trainingIds) {
 		return trainingService.getAllByIds(trainingIds);
 	}
 
+	@RequestMapping(value = "/batch", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE,
+			consumes = MediaType.APPLICATION_JSON_VALUE)
+	public JSONArray batch(@RequestBody List<BatchRequestEntry> entries) {
+		return trainingBatchService.execute(entries);
+	}
+
 	@RequestMapping(value = "training/{id}/topics", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public JSONObject topics(@PathVariable("id") Long trainingId) {
+	public JSONObject topics(@PathVariable("id") Long trainingId, WebRequest request) {
+		if (CommonUtil.checkNotModified(request, trainingService.getETag(trainingId))) {
+			return null;
+		}
 		return trainingService.getTopics(trainingId);
 	}
 
 	@RequestMapping(value = "training/{id}/comments", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public JSONArray comments(@PathVariable("id") Long trainingId) {
-		return trainingService.getComments(trainingId);
+	public JSONObject comments(@PathVariable("id") Long trainingId,
+							   @RequestParam(value = "cursor", required = false) String cursor,
+							   @RequestParam(value = "limit", required = false) Integer limit, WebRequest request) {
+		if (CommonUtil.checkNotModified(request, trainingService.getETag(trainingId))) {
+			return null;
+		}
+		return trainingService.getComments(trainingId, null, cursor, limit);
+	}
+
+	@RequestMapping(value = "training/{id}/comments/{commentId}/replies", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject commentReplies(@PathVariable("id") Long trainingId, @PathVariable("commentId") Long commentId,
+									 @RequestParam(value = "cursor", required = false) String cursor,
+									 @RequestParam(value = "limit", required = false) Integer limit, WebRequest request) {
+		if (CommonUtil.checkNotModified(request, trainingService.getETag(trainingId))) {
+			return null;
+		}
+		return trainingService.getComments(trainingId, commentId, cursor, limit);
 	}
 
 	@RequestMapping(value = "training/{id}/feedbacks", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -54,6 +91,11 @@ public class TrainingController {
 		return trainingService.getFeedBacks(trainingId);
 	}
 
+	@RequestMapping(value = "training/{id}/feedbacks/rating", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject getFeedbackRatings(@PathVariable("id") Long trainingId) {
+		return trainingService.getRatings(trainingId);
+	}
+
 	@RequestMapping(value = "training/{id}/feedbacks/{feedbackId}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
 	public FeedBack getFeedback(@PathVariable("id") Long trainingId, @PathVariable("feedbackId") Long feedbackId) {
 		return trainingService.getFeedBack(feedbackId);
@@ -93,7 +135,11 @@ public class TrainingController {
 
 	@RequestMapping(value = "", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
 	public JSONObject list(Pageable pageable, @RequestParam(value = "search", required = false) String searchTerm,
-						   @RequestParam(value = "filterBy", required = false) String filterBy) {
+						   @RequestParam(value = "filterBy", required = false) String filterBy,
+						   @RequestParam(value = "fields", required = false) String fields) {
+		if (!StringUtils.isEmpty(fields)) {
+			return trainingService.getAllFields(pageable, searchTerm, filterBy, fields);
+		}
 		if (!StringUtils.isEmpty(searchTerm)) {
 			return trainingService.search(searchTerm, pageable, filterBy);
 		}
@@ -112,23 +158,48 @@ public class TrainingController {
 		return trainingService.getAll(pageable, true, null);
 	}
 
+	@RequestMapping(value = "/participation", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public JSONObject participation(@RequestParam(value = "from", required = false) String fromMonth,
+									@RequestParam(value = "to", required = false) String toMonth,
+									@RequestParam(value = "groupBy", required = false) List<String> groupBy,
+									@RequestParam(value = "topicIds", required = false) List<Long> topicIds,
+									@RequestParam(value = "locations", required = false) List<String> locations) {
+		if (!getLoggedInUser().isAdmin()) {
+			throw new UnauthorizedOperationException("Only admin can query participation");
+		}
+		return participationCubeService.getCube(fromMonth, toMonth, groupBy, topicIds, locations);
+	}
+
 	@RequestMapping(value = "/count", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
 	public Long getCount() {
 		return trainingService.getCount();
 	}
 
 	@RequestMapping(value = "/training/{id}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public Training getTraining(@PathVariable("id") Long trainingId) {
+	public Object getTraining(@PathVariable("id") Long trainingId,
+							  @RequestParam(value = "fields", required = false) String fields, WebRequest request) {
+		if (CommonUtil.checkNotModified(request, trainingService.getETag(trainingId))) {
+			return null;
+		}
+		if (!StringUtils.isEmpty(fields)) {
+			return trainingService.getTrainingFields(trainingId, fields);
+		}
 		return trainingService.getTrainingById(trainingId);
 	}
 
 	@RequestMapping(value = "/training/{id}/minimal", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public JSONObject getMinimalTraining(@PathVariable("id") Long trainingId) {
+	public JSONObject getMinimalTraining(@PathVariable("id") Long trainingId, WebRequest request) {
+		if (CommonUtil.checkNotModified(request, trainingService.getETag(trainingId))) {
+			return null;
+		}
 		return trainingService.getTrainingMinimal(trainingId);
 	}
 
 	@RequestMapping(value = "/training/{id}/trainees", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public Map<String, String> getTrainees(@PathVariable("id") Long trainingId) {
+	public Map<String, String> getTrainees(@PathVariable("id") Long trainingId, WebRequest request) {
+		if (CommonUtil.checkNotModified(request, trainingService.getETag(trainingId))) {
+			return null;
+		}
 		return trainingService.getTraineesById(trainingId);
 	}
 
@@ -141,11 +212,11 @@ public class TrainingController {
 	}
 
 	@RequestMapping(value = "/training/{id}/feedbacks", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
-	public FeedBack addFeedback(@RequestBody FeedBack feedBack, BindingResult result) {
+	@ResponseStatus(HttpStatus.ACCEPTED)
+	public void addFeedback(@PathVariable("id") Long trainingId, @RequestBody FeedBack feedBack, BindingResult result) {
 		if (!result.hasErrors()) {
-			return trainingService.add(feedBack);
+			trainingService.submitFeedBack(trainingId, feedBack);
 		}
-		return null;
 	}
 
 	@RequestMapping(value = "/{id}/likes", method = RequestMethod.POST)
@@ -166,9 +237,16 @@ public class TrainingController {
 		trainingService.updateField(trainingId, fieldEntry);
 	}
 
+	@RequestMapping(value = "/training/{id}", method = RequestMethod.PATCH)
+	@ResponseStatus(HttpStatus.OK)
+	public void updateTrainingByFields(@PathVariable("id") Long trainingId,
+									   @RequestBody List<SimpleFieldEntry> fieldEntries) throws ParseException {
+		trainingService.updateFields(trainingId, fieldEntries);
+	}
+
 	@RequestMapping(value = "/training/{id}", method = RequestMethod.DELETE)
 	@ResponseStatus(HttpStatus.OK)
-	public void deleteTraining(@PathVariable("id") String trainingId) {
+	public void deleteTraining(@PathVariable("id") Long trainingId) {
 		trainingService.deleteTraining(trainingId);
 	}
 
@@ -193,7 +271,10 @@ public class TrainingController {
 	}
 
 	@RequestMapping(value = "training/{id}/attachments", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public JSONArray attachments(@PathVariable("id") Long trainingId) throws IOException {
+	public JSONArray attachments(@PathVariable("id") Long trainingId, WebRequest request) throws IOException {
+		if (CommonUtil.checkNotModified(request, trainingService.getETag(trainingId))) {
+			return null;
+		}
 		return trainingService.getAttachedFiles(trainingId);
 	}
 
@@ -1,8 +1,10 @@
 /**
  * Created by DE007RA on 6/23/2016.
  */
-angular.module('services').service('utilitiesService', ['restService', function(restService) {
+angular.module('services').service('utilitiesService', ['restService', '$q', '$timeout', function(restService, $q, $timeout) {
     var self = this;
+    var FIELD_SAVE_DELAY = 300;
+    var pendingFieldSaves = {};
     self.addUnique = function (map, obj, objMapKey, objValueKey, sort){
         if(angular.isDefined(obj)) {
             if (!map) {
@@ -74,6 +76,20 @@ angular.module('services').service('utilitiesService', ['restService', function(
         return data;
     }
 
+    //field saves of the same item queued within FIELD_SAVE_DELAY ms go out as one patch of all their fields
+    self.saveFields = function (key, entry, patch) {
+        var pending = pendingFieldSaves[key];
+        if (!pending) {
+            pending = pendingFieldSaves[key] = {entries: {}, deferred: $q.defer()};
+            $timeout(function () {
+                delete pendingFieldSaves[key];
+                patch(_.values(pending.entries)).then(pending.deferred.resolve, pending.deferred.reject);
+            }, FIELD_SAVE_DELAY);
+        }
+        pending.entries[entry.name] = entry;
+        return pending.deferred.promise;
+    };
+
     self.setLastModifiedBy = function(parent, obj) {
         if(!obj) {
             restService.getLoggedInUser().then(function(user) {
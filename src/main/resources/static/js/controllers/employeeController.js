@@ -73,7 +73,10 @@ angular.module('controllers').controller('employeeController', ['$scope', 'emplo
 
 		self.saveByField = function (fieldName) {
 			var data = {name: fieldName, value: _.get(self.item, fieldName)};
-			employeeService.updateEmployeeByField(self.item.guid, data).then(function (response) {
+			var empGuid = self.item.guid;
+			utilitiesService.saveFields('employee' + empGuid, data, function (entries) {
+				return employeeService.updateEmployeeByFields(empGuid, entries);
+			}).then(function (response) {
 				if (restService.isResponseOk(response)) {
 					utilitiesService.setEditable(self, fieldName, false);
 				}
@@ -98,7 +98,10 @@ angular.module('controllers').controller('topicController', [
 
 		self.saveByField = function(fieldName) {
 			var data = {name: fieldName, value: _.get(self.item, fieldName)};
-			topicService.updateTopicByField(self.item.id, data).then(function(response) {
+			var topicId = self.item.id;
+			utilitiesService.saveFields('topic' + topicId, data, function(entries) {
+				return topicService.updateTopicByFields(topicId, entries);
+			}).then(function(response) {
 				if(restService.isResponseOk(response)) {
 					if(restService.isResponseOk(response)) {
 						utilitiesService.setEditable(self, fieldName, false);
@@ -181,7 +181,10 @@ angular.module('controllers').controller('trainingController', ['$scope', '$uibM
                     data.value = $scope.selected.agenda;
                     break;
             }
-            trainingService.updateTrainingByField($scope.item.id, data).then(function (response) {
+            var trainingId = $scope.item.id;
+            utilitiesService.saveFields('training' + trainingId, data, function (entries) {
+                return trainingService.updateTrainingByFields(trainingId, entries);
+            }).then(function (response) {
                 if (restService.isResponseOk(response)) {
                     utilitiesService.setEditable(self, fieldName, false);
                     self['error' + _.upperFirst(fieldName)] = undefined;
@@ -27,15 +27,44 @@ angular.module('directives').directive('comments', function() {
             }
         });
 
+        //comments and replies come a page at a time, next holds the cursor of the following page
         self.getComments = function () {
             if(self.sectionName === 'trainings') {
                 trainingService.getComments(self.parentId).then(function (response) {
-                    self.comments = response.data;
-                    $scope.commentsCount = self.comments ? self.comments.length : 0;
+                    self.comments = [];
+                    self.next = undefined;
+                    addComments(response.data);
                 });
             }
         };
 
+        self.getMoreComments = function () {
+            trainingService.getComments(self.parentId, self.next).then(function (response) {
+                addComments(response.data);
+            });
+        };
+
+        self.getReplies = function (comment) {
+            trainingService.getCommentReplies(self.parentId, comment.id, comment.next).then(function (response) {
+                comment.replies = (comment.replies || []).concat(response.data.content);
+                comment.next = response.data.next;
+            });
+        };
+
+        function addComments(page) {
+            self.comments = self.comments.concat(page.content);
+            self.next = page.next;
+            _.forEach(page.content, function (comment) {
+                comment.replies = [];
+                if (comment.repliesCount > 0) {
+                    self.getReplies(comment);
+                }
+            });
+            $scope.commentsCount = _.sumBy(self.comments, function (comment) {
+                return 1 + comment.repliesCount;
+            });
+        }
+
         self.addReply = function (comment) {
             $scope.parentCommentId = comment.id;
             self.newReply = '';
@@ -72,6 +72,10 @@ angular.module('services').factory('employeeService', [ 'restService', 'utilitie
 			return restService.put(this.employeeUrl  + "/" +  empGuid + '/field', item);
 		},
 
+		updateEmployeeByFields: function(empGuid, items) {
+			return restService.patch(this.employeeUrl  + "/" +  empGuid, items);
+		},
+
 		addEmployee: function(item) {
 			return restService.post(this.employeeUrl, item);
 		},
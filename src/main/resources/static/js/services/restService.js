@@ -45,6 +45,10 @@ angular.module('services', ['ngStorage']).factory('restService', [ '$http', '$q'
 			return $http.put(url, data, {headers: {'Content-Type': 'application/json'}});
 		},
 
+		patch: function(url, data) {
+			return $http.patch(url, data, {headers: {'Content-Type': 'application/json'}});
+		},
+
 		delete: function(url, config) {
 			return $http.delete(url, config);
 		},
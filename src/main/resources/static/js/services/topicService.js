@@ -40,6 +40,10 @@ angular.module('services').factory('topicService', [ 'restService', '$localStora
 			return restService.put(this.topicUrl  + "/" +  topicId + '/field', item);
 		},
 
+		updateTopicByFields: function(topicId, items) {
+			return restService.patch(this.topicUrl  + "/" +  topicId, items);
+		},
+
 		removeTopic: function(topicId) {
 			return restService.delete(this.topicUrl + "/" + topicId);
 		},
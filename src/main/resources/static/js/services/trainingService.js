@@ -57,6 +57,10 @@ angular.module('services').factory('trainingService', [ 'restService', '$localSt
 			return restService.put(this.trainingUrl  + '/' +  trainingId + '/field', item);
 		},
 
+		updateTrainingByFields: function(trainingId, items) {
+			return restService.patch(this.trainingUrl  + '/' +  trainingId, items);
+		},
+
 		removeTraining: function(trainingId) {
 			return restService.delete(this.trainingUrl + '/' + trainingId);
 		},
@@ -73,8 +77,14 @@ angular.module('services').factory('trainingService', [ 'restService', '$localSt
 			return restService.get(this.trainingUrl  + '/' + trainingId + '/feedbacks/' + id);
 		},
 
-		getComments: function (trainingId) {
-			return restService.get(this.trainingUrl + '/' + trainingId + '/comments');
+		//a page of top level comments, {content, next}, next is the cursor of the following page
+		getComments: function (trainingId, cursor) {
+			return restService.get(this.trainingUrl + '/' + trainingId + '/comments', {params: {cursor: cursor}});
+		},
+
+		getCommentReplies: function (trainingId, commentId, cursor) {
+			return restService.get(this.trainingUrl + '/' + trainingId + '/comments/' + commentId + '/replies',
+				{params: {cursor: cursor}});
 		},
 
 		removeComment: function(trainingId, commentId) {
@@ -107,10 +117,6 @@ angular.module('services').factory('trainingService', [ 'restService', '$localSt
 			floatPrecission: 2// decimal precission
 		},
 
-		getComments: function (trainingId) {
-			return restService.get(this.trainingUrl + '/' + trainingId + '/comments');
-		},
-
 		getFeedbacks: function (trainingId) {
 			return restService.get(this.trainingUrl + '/' + trainingId + '/feedbacks');
 		},
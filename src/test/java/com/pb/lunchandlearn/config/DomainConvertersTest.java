@@ -0,0 +1,150 @@
+package com.pb.lunchandlearn.config;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.pb.lunchandlearn.domain.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver.IndexDefinitionHolder;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class DomainConvertersTest {
+	private static final List<Class<?>> CONVERTED_TYPES = Arrays.<Class<?>>asList(Training.class, Topic.class,
+			Employee.class, MiniTrainingDetail.class, Comment.class);
+
+	private CustomConversions conversions;
+	private MongoMappingContext mappingContext;
+	private MappingMongoConverter converter;
+	private MappingMongoConverter reflectiveConverter;
+
+	@Before
+	public void setUp() {
+		conversions = new CustomConversions(DomainConverters.getConverters());
+		mappingContext = createMappingContext(conversions);
+		converter = createConverter(mappingContext, conversions);
+		CustomConversions noConversions = new CustomConversions(Collections.emptyList());
+		reflectiveConverter = createConverter(createMappingContext(noConversions), noConversions);
+	}
+
+	@Test
+	public void convertedTypesKeepTheirPersistentEntity() {
+		for (Class<?> type : CONVERTED_TYPES) {
+			assertFalse(type + " is a simple type", conversions.getSimpleTypeHolder().isSimpleType(type));
+			assertFalse(type + " has a custom write target", conversions.hasCustomWriteTarget(type));
+			assertTrue(type + " has no custom read target", conversions.hasCustomReadTarget(DBObject.class, type));
+		}
+		assertEquals("id", mappingContext.getPersistentEntity(Training.class).getIdProperty().getName());
+		assertEquals("guid", mappingContext.getPersistentEntity(Employee.class).getIdProperty().getName());
+		assertEquals("employees", mappingContext.getPersistentEntity(Employee.class).getCollection());
+	}
+
+	@Test
+	public void indexesAreStillResolved() {
+		MongoPersistentEntityIndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mappingContext);
+		boolean ancestorsIndex = false;
+		boolean textIndex = false;
+		for (IndexDefinitionHolder index : indexResolver.resolveIndexForClass(Employee.class)) {
+			ancestorsIndex |= index.getIndexKeys().containsField("ancestors");
+			textIndex |= "text".equals(index.getIndexKeys().get("name"));
+		}
+		assertTrue(ancestorsIndex);
+		assertTrue(textIndex);
+		textIndex = false;
+		for (IndexDefinitionHolder index : indexResolver.resolveIndexForClass(Training.class)) {
+			textIndex |= "text".equals(index.getIndexKeys().get("name"));
+		}
+		assertTrue(textIndex);
+	}
+
+	@Test
+	public void trainingRoundTrip() {
+		Training training = new Training();
+		training.setId(1L);
+		training.setName("Concurrency");
+		training.setLikedBy(Collections.singletonMap("EMP1", "Alice Smith"));
+		training.setTrainees(Collections.singletonMap("EMP2", "Bob Brown"));
+		training.setTopics(Collections.singletonMap(5L, "Java"));
+		training.setScheduledOn(new Date());
+		training.setStatus(TrainingStatus.SCHEDULED);
+		training.setFeedBackList(Arrays.asList(1L, 2L));
+		training.setDuration(1.5f);
+		training.setLikesCount(1);
+		training.setVersion(2L);
+		FileAttachmentInfo attachmentInfo = new FileAttachmentInfo();
+		attachmentInfo.setFileName("slides.pdf");
+		attachmentInfo.setSize(100L);
+		training.setAttachmentInfos(Collections.singletonList(attachmentInfo));
+		assertRoundTrip(training);
+	}
+
+	@Test
+	public void topicRoundTrip() {
+		Topic topic = new Topic();
+		topic.setId(1L);
+		topic.setName("Java");
+		topic.setEmployeesKnowAbout(Collections.singletonMap("EMP1", "Alice Smith"));
+		topic.setTrainings(Collections.singletonList(new MiniTrainingDetail(2L, "Concurrency",
+				TrainingStatus.COMPLETED, new Date())));
+		topic.setVersion(3L);
+		assertRoundTrip(topic);
+	}
+
+	@Test
+	public void employeeRoundTrip() {
+		Employee employee = new Employee("EMP1", "Alice Smith", "alice@pb.com", Collections.singletonList("ADMIN"));
+		employee.setManagers(Collections.singletonMap("EMP2", "Bob Brown"));
+		employee.setAncestors(Collections.singletonList("EMP2"));
+		employee.setTopicsKnown(Collections.singletonMap(5L, "Java"));
+		employee.setTrainingsAttended(Collections.singletonList(new MiniTrainingDetail(2L, "Concurrency",
+				TrainingStatus.COMPLETED, new Date())));
+		employee.setActive(false);
+		employee.setVersion(4L);
+		assertRoundTrip(employee);
+	}
+
+	@Test
+	public void commentRoundTrip() {
+		Comment comment = new Comment("Slides please");
+		comment.setId(1L);
+		comment.setTrainingId(2L);
+		comment.setParentId(3L);
+		comment.setOwnerGuid("EMP1");
+		comment.setDateTime(new Date());
+		comment.setRepliesCount(4);
+		assertRoundTrip(comment);
+	}
+
+	//written by the mapping converter, read back the same by the hand-written and the reflective reading
+	private void assertRoundTrip(Object entity) {
+		DBObject dbo = new BasicDBObject();
+		converter.write(entity, dbo);
+		assertEquals(entity, converter.read(entity.getClass(), dbo));
+		assertEquals(reflectiveConverter.read(entity.getClass(), dbo), converter.read(entity.getClass(), dbo));
+	}
+
+	private static MongoMappingContext createMappingContext(CustomConversions conversions) {
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		mappingContext.initialize();
+		return mappingContext;
+	}
+
+	private static MappingMongoConverter createConverter(MongoMappingContext mappingContext,
+														 CustomConversions conversions) {
+		MappingMongoConverter converter = new MappingMongoConverter(new DefaultDbRefResolver(
+				mock(MongoDbFactory.class)), mappingContext);
+		converter.setCustomConversions(conversions);
+		converter.afterPropertiesSet();
+		return converter;
+	}
+}
@@ -0,0 +1,38 @@
+package com.pb.lunchandlearn.domain;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.pb.lunchandlearn.domain.TrainingStatus.*;
+import static org.junit.Assert.*;
+
+public class TrainingStatusTest {
+	@Test
+	public void completedIsFinal() {
+		for (TrainingStatus status : values()) {
+			assertFalse(status + " can follow " + COMPLETED, status.getAllowedPrevious().contains(COMPLETED));
+		}
+	}
+
+	@Test
+	public void statusDoesNotFollowItself() {
+		for (TrainingStatus status : values()) {
+			assertFalse(status.getAllowedPrevious().contains(status));
+		}
+	}
+
+	@Test
+	public void allowedPrevious() {
+		assertEquals(Arrays.asList(SCHEDULED, CANCELLED, POSTPONED), NOMINATED.getAllowedPrevious());
+		assertEquals(Arrays.asList(NOMINATED, CANCELLED, POSTPONED), SCHEDULED.getAllowedPrevious());
+		assertEquals(Arrays.asList(NOMINATED, SCHEDULED, POSTPONED), CANCELLED.getAllowedPrevious());
+		assertEquals(Arrays.asList(NOMINATED, SCHEDULED, CANCELLED, POSTPONED), COMPLETED.getAllowedPrevious());
+		assertEquals(Arrays.asList(NOMINATED, SCHEDULED, CANCELLED), POSTPONED.getAllowedPrevious());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void allowedPreviousIsUnmodifiable() {
+		SCHEDULED.getAllowedPrevious().add(COMPLETED);
+	}
+}
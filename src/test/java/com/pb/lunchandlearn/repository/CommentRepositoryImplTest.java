@@ -0,0 +1,74 @@
+package com.pb.lunchandlearn.repository;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.pb.lunchandlearn.domain.Comment;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CommentRepositoryImplTest {
+	private CommentRepositoryImpl commentRepository;
+	private MongoTemplate mongoTemplate;
+
+	@Before
+	public void setUp() {
+		mongoTemplate = mock(MongoTemplate.class);
+		when(mongoTemplate.find(any(Query.class), eq(Comment.class))).thenReturn(Collections.<Comment>emptyList());
+		commentRepository = new CommentRepositoryImpl();
+		ReflectionTestUtils.setField(commentRepository, "mongoTemplate", mongoTemplate);
+	}
+
+	@Test
+	public void firstPageOfComments() {
+		Query query = findThread(5L, null, null, null, 11);
+
+		assertEquals(new BasicDBObject("trainingId", 5L).append("parentId", null), query.getQueryObject());
+		assertThreadOrder(query, 11);
+	}
+
+	@Test
+	public void firstPageOfReplies() {
+		Query query = findThread(5L, 3L, null, null, 11);
+
+		assertEquals(new BasicDBObject("trainingId", 5L).append("parentId", 3L), query.getQueryObject());
+		assertThreadOrder(query, 11);
+	}
+
+	@Test
+	public void pageAfterCursor() {
+		Date afterDateTime = new Date(1000L);
+		Query query = findThread(5L, null, afterDateTime, 7L, 11);
+
+		//comments of the same dateTime as the cursor are told apart by id, the sort's tie breaker
+		BasicDBList after = new BasicDBList();
+		after.add(new BasicDBObject("dateTime", new BasicDBObject("$gt", afterDateTime)));
+		after.add(new BasicDBObject("dateTime", afterDateTime).append("id", new BasicDBObject("$gt", 7L)));
+		assertEquals(new BasicDBObject("trainingId", 5L).append("parentId", null).append("$or", after),
+				query.getQueryObject());
+		assertThreadOrder(query, 11);
+	}
+
+	private Query findThread(Long trainingId, Long parentId, Date afterDateTime, Long afterId, int limit) {
+		commentRepository.findThread(trainingId, parentId, afterDateTime, afterId, limit);
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).find(query.capture(), eq(Comment.class));
+		return query.getValue();
+	}
+
+	private static void assertThreadOrder(Query query, int limit) {
+		assertEquals(new BasicDBObject("dateTime", 1).append("id", 1), query.getSortObject());
+		assertEquals(limit, query.getLimit());
+	}
+}
@@ -0,0 +1,238 @@
+package com.pb.lunchandlearn.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pb.lunchandlearn.domain.Employee;
+import com.pb.lunchandlearn.domain.SimpleFieldEntry;
+import com.pb.lunchandlearn.exception.ResourceNotFoundException;
+import com.pb.lunchandlearn.repository.EmployeeRepository;
+import org.json.simple.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class HrSyncServiceTest {
+	private static final String HEADER = "guid,name,emailId";
+
+	@Rule
+	public TemporaryFolder dropDir = new TemporaryFolder();
+
+	private HrSyncService hrSyncService;
+	private EmployeeRepository employeeRepository;
+	private EmployeeDirectoryService employeeDirectoryService;
+	private OrgHierarchyService orgHierarchyService;
+	private CohortIndexService cohortIndexService;
+
+	@Before
+	public void setUp() {
+		employeeRepository = mock(EmployeeRepository.class);
+		employeeDirectoryService = mock(EmployeeDirectoryService.class);
+		orgHierarchyService = mock(OrgHierarchyService.class);
+		cohortIndexService = mock(CohortIndexService.class);
+		hrSyncService = new HrSyncService();
+		ReflectionTestUtils.setField(hrSyncService, "dropDir", dropDir.getRoot().getPath());
+		ReflectionTestUtils.setField(hrSyncService, "batchSize", 500);
+		ReflectionTestUtils.setField(hrSyncService, "doneSuffix", ".done");
+		ReflectionTestUtils.setField(hrSyncService, "maxDeactivationRatio", 0.1);
+		ReflectionTestUtils.setField(hrSyncService, "employeeRepository", employeeRepository);
+		ReflectionTestUtils.setField(hrSyncService, "employeeDirectoryService", employeeDirectoryService);
+		ReflectionTestUtils.setField(hrSyncService, "orgHierarchyService", orgHierarchyService);
+		ReflectionTestUtils.setField(hrSyncService, "cohortIndexService", cohortIndexService);
+		ReflectionTestUtils.setField(hrSyncService, "objectMapper", new ObjectMapper());
+		when(employeeRepository.findSyncStates()).thenReturn(Collections.<Employee>emptyList());
+		when(employeeRepository.findDirectoryEntries(anyCollectionOf(String.class)))
+				.thenReturn(Collections.<Employee>emptyList());
+	}
+
+	@After
+	public void tearDown() {
+		hrSyncService.shutdown();
+	}
+
+	@Test
+	public void extractWithoutDoneMarkerIsNotTaken() throws IOException {
+		drop("extract.csv", false, HEADER, "EMP1,Alice Smith,alice@pb.com");
+		try {
+			hrSyncService.syncNext(false);
+			fail("Extract without done marker was synced");
+		} catch (ResourceNotFoundException exp) {
+			assertTrue(new File(dropDir.getRoot(), "extract.csv").isFile());
+		}
+		verify(employeeRepository, never()).updateSyncedFields(anyMap());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void onlyChangedFieldsAreWritten() throws IOException {
+		when(employeeRepository.findSyncStates()).thenReturn(Arrays.asList(
+				state("EMP2", "stale"), state("EMP3", "stale")));
+		when(employeeRepository.findDirectoryEntries(anyCollectionOf(String.class))).thenReturn(Arrays.asList(
+				new Employee("EMP2", "Bob Old", "bob@pb.com", null),
+				new Employee("EMP3", "Carol Jones", "carol@pb.com", null)));
+		drop("extract.csv", true, HEADER, "EMP1,Alice Smith,alice@pb.com", "EMP2,Bob Brown,bob@pb.com",
+				"EMP3,Carol Jones,carol@pb.com");
+
+		JSONObject report = hrSyncService.syncNext(false);
+
+		assertEquals(1L, report.get("added"));
+		assertEquals(1L, report.get("changed"));
+		assertEquals(1L, report.get("unchanged"));
+		assertEquals(0L, report.get("deactivated"));
+		ArgumentCaptor<Map> written = ArgumentCaptor.forClass(Map.class);
+		verify(employeeRepository).updateSyncedFields(written.capture());
+		Map<String, List<SimpleFieldEntry>> fieldsByGuid = written.getValue();
+		assertEquals(new HashSet<>(Arrays.asList("name", "emailId", "syncHash", "active")),
+				getNames(fieldsByGuid.get("EMP1")));
+		assertEquals(new HashSet<>(Arrays.asList("name", "syncHash", "active")), getNames(fieldsByGuid.get("EMP2")));
+		assertEquals(new HashSet<>(Arrays.asList("syncHash", "active")), getNames(fieldsByGuid.get("EMP3")));
+		ArgumentCaptor<List> changes = ArgumentCaptor.forClass(List.class);
+		verify(employeeDirectoryService).recordChanges(changes.capture());
+		assertEquals(2, changes.getValue().size());
+		verify(employeeDirectoryService, never()).recordRemoval(anyString());
+		assertFalse(new File(dropDir.getRoot(), "extract.csv").exists());
+		assertFalse(new File(dropDir.getRoot(), "extract.csv.done").exists());
+		assertTrue(new File(dropDir.getRoot(), "processed/extract.csv").isFile());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void unchangedHashIsSkipped() throws IOException {
+		drop("first.csv", true, HEADER, "EMP1,Alice Smith,alice@pb.com");
+		hrSyncService.syncNext(false);
+		ArgumentCaptor<Map> written = ArgumentCaptor.forClass(Map.class);
+		verify(employeeRepository).updateSyncedFields(written.capture());
+		Object hash = getValue((List) written.getValue().get("EMP1"), "syncHash");
+		assertNotNull(hash);
+
+		reset(employeeRepository);
+		when(employeeRepository.findSyncStates()).thenReturn(Collections.singletonList(state("EMP1", (String) hash)));
+		drop("second.csv", true, HEADER, "EMP1,Alice Smith,alice@pb.com");
+		JSONObject report = hrSyncService.syncNext(false);
+
+		assertEquals(1L, report.get("unchanged"));
+		verify(employeeRepository, never()).findDirectoryEntries(anyCollectionOf(String.class));
+		verify(employeeRepository, never()).updateSyncedFields(anyMap());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void absentEmployeesAreDeactivated() throws IOException {
+		ReflectionTestUtils.setField(hrSyncService, "maxDeactivationRatio", 0.5);
+		when(employeeRepository.findSyncStates()).thenReturn(Arrays.asList(
+				state("EMP1", "stale"), state("EMP2", "stale")));
+		when(employeeRepository.findDirectoryEntries(anyCollectionOf(String.class))).thenReturn(
+				Collections.singletonList(new Employee("EMP1", "Alice Smith", "alice@pb.com", null)));
+		drop("extract.csv", true, HEADER, "EMP1,Alice Smith,alice@pb.com");
+
+		JSONObject report = hrSyncService.syncNext(false);
+
+		assertEquals(1L, report.get("absent"));
+		assertEquals(1L, report.get("deactivated"));
+		assertNull(report.get("deactivationSkipped"));
+		//only the extract rows are upserted, the absent employee is deactivated without upsert
+		ArgumentCaptor<Map> written = ArgumentCaptor.forClass(Map.class);
+		verify(employeeRepository).updateSyncedFields(written.capture());
+		assertFalse(written.getValue().containsKey("EMP2"));
+		verify(employeeRepository).deactivate(Collections.singletonList("EMP2"));
+		verify(employeeDirectoryService).recordRemoval("EMP2");
+	}
+
+	@Test
+	public void deactivationIsSkippedAboveRatio() throws IOException {
+		when(employeeRepository.findSyncStates()).thenReturn(Arrays.asList(
+				state("EMP1", "stale"), state("EMP2", "stale")));
+		drop("extract.csv", true, HEADER, "EMP1,Alice Smith,alice@pb.com");
+
+		JSONObject report = hrSyncService.syncNext(false);
+
+		assertEquals(1L, report.get("absent"));
+		assertEquals(0L, report.get("deactivated"));
+		assertNotNull(report.get("deactivationSkipped"));
+		verify(employeeDirectoryService, never()).recordRemoval(anyString());
+	}
+
+	@Test
+	public void rejectedRowCountsAsPresentAndSkipsDeactivation() throws IOException {
+		ReflectionTestUtils.setField(hrSyncService, "maxDeactivationRatio", 1.0);
+		when(employeeRepository.findSyncStates()).thenReturn(Arrays.asList(
+				state("EMP1", "stale"), state("EMP2", "stale"), state("EMP3", "stale")));
+		drop("extract.csv", true, HEADER + ",roles", "EMP1,Alice Smith,alice@pb.com,ADMIN",
+				"EMP2,Bob Brown,bob@pb.com,BOGUS");
+
+		JSONObject report = hrSyncService.syncNext(false);
+
+		assertEquals(1L, report.get("rejected"));
+		//EMP2 is in the extract even though its row was rejected, only EMP3 is missing
+		assertEquals(1L, report.get("absent"));
+		assertEquals(0L, report.get("deactivated"));
+		assertNotNull(report.get("deactivationSkipped"));
+		verify(employeeDirectoryService, never()).recordRemoval(anyString());
+	}
+
+	@Test
+	public void dryRunWritesNothing() throws IOException {
+		when(employeeRepository.findSyncStates()).thenReturn(Collections.singletonList(state("EMP2", "stale")));
+		ReflectionTestUtils.setField(hrSyncService, "maxDeactivationRatio", 1.0);
+		drop("extract.csv", true, HEADER, "EMP1,Alice Smith,alice@pb.com");
+
+		JSONObject report = hrSyncService.syncNext(true);
+
+		assertEquals(1L, report.get("added"));
+		assertEquals(1L, report.get("deactivated"));
+		verify(employeeRepository, never()).updateSyncedFields(anyMap());
+		verify(employeeRepository, never()).deactivate(anyCollectionOf(String.class));
+		verify(employeeDirectoryService, never()).recordChanges(anyListOf(Employee.class));
+		verify(employeeDirectoryService, never()).recordRemoval(anyString());
+		verifyZeroInteractions(cohortIndexService, orgHierarchyService);
+		assertTrue(new File(dropDir.getRoot(), "extract.csv").isFile());
+	}
+
+	private static Object getValue(List<SimpleFieldEntry> fields, String name) {
+		for (SimpleFieldEntry field : fields) {
+			if (name.equals(field.getName())) {
+				return field.getValue();
+			}
+		}
+		return null;
+	}
+
+	private void drop(String fileName, boolean done, String... lines) throws IOException {
+		File file = new File(dropDir.getRoot(), fileName);
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+		if (done) {
+			assertTrue(new File(dropDir.getRoot(), fileName + ".done").createNewFile());
+		}
+	}
+
+	private static Employee state(String guid, String syncHash) {
+		Employee state = new Employee();
+		state.setGuid(guid);
+		state.setSyncHash(syncHash);
+		state.setActive(true);
+		return state;
+	}
+
+	private static Set<String> getNames(List<SimpleFieldEntry> fields) {
+		Set<String> names = new HashSet<>();
+		for (SimpleFieldEntry field : fields) {
+			names.add(field.getName());
+		}
+		return names;
+	}
+}
@@ -0,0 +1,88 @@
+package com.pb.lunchandlearn.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RankedSetTest {
+	private static final Comparator<Integer> DESCENDING = Collections.reverseOrder();
+
+	private RankedSet<Integer> set;
+
+	@Before
+	public void setUp() {
+		set = new RankedSet<>(DESCENDING);
+	}
+
+	@Test
+	public void emptySet() {
+		assertEquals(0, set.size());
+		assertEquals(-1, set.indexOf(1));
+		assertFalse(set.remove(1));
+		assertTrue(set.subList(0, 10).isEmpty());
+	}
+
+	@Test
+	public void addKeepsComparatorOrder() {
+		assertTrue(set.add(3));
+		assertTrue(set.add(7));
+		assertTrue(set.add(5));
+		assertFalse(set.add(5));
+		assertEquals(3, set.size());
+		assertEquals(Arrays.asList(7, 5, 3), set.subList(0, 10));
+		assertEquals(0, set.indexOf(7));
+		assertEquals(1, set.indexOf(5));
+		assertEquals(2, set.indexOf(3));
+		assertEquals(-1, set.indexOf(4));
+	}
+
+	@Test
+	public void removeShiftsPositions() {
+		set.add(1);
+		set.add(2);
+		set.add(3);
+		assertTrue(set.remove(2));
+		assertFalse(set.remove(2));
+		assertEquals(2, set.size());
+		assertEquals(1, set.indexOf(1));
+		assertEquals(Arrays.asList(3, 1), set.subList(0, 10));
+	}
+
+	@Test
+	public void subListPages() {
+		for (int element = 0; element < 10; ++element) {
+			set.add(element);
+		}
+		assertEquals(Arrays.asList(9, 8, 7), set.subList(0, 3));
+		assertEquals(Arrays.asList(6, 5, 4), set.subList(3, 3));
+		assertEquals(Arrays.asList(0), set.subList(9, 3));
+		assertTrue(set.subList(10, 3).isEmpty());
+		assertTrue(set.subList(0, 0).isEmpty());
+	}
+
+	@Test
+	public void matchesTreeSet() {
+		Random random = new Random(42);
+		TreeSet<Integer> expected = new TreeSet<>(DESCENDING);
+		for (int operation = 0; operation < 5000; ++operation) {
+			Integer element = random.nextInt(500);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(element), set.remove(element));
+			} else {
+				assertEquals(expected.add(element), set.add(element));
+			}
+		}
+		List<Integer> elements = new ArrayList<>(expected);
+		assertEquals(elements.size(), set.size());
+		assertEquals(elements, set.subList(0, elements.size()));
+		for (int index = 0; index < elements.size(); ++index) {
+			assertEquals(index, set.indexOf(elements.get(index)));
+		}
+		for (int offset = 0; offset < elements.size(); offset += 17) {
+			assertEquals(elements.subList(offset, Math.min(offset + 20, elements.size())), set.subList(offset, 20));
+		}
+	}
+}